@@ -3,13 +3,18 @@ package ssellm;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ssellm.analyzers.MinHash;
+import ssellm.analyzers.TextFeatures;
 import ssellm.models.ResponseMetadata;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -21,17 +26,75 @@ import java.util.stream.Collectors;
  * - Completeness (truncation detection)
  * - Temporal patterns (quality degradation over time)
  * - Category-specific patterns
+ *
+ * Semantic similarity is the average pairwise keyword Jaccard per prompt, exact or estimated from MinHash
+ * signatures for large prompt groups (see {@link SimilarityMode}).
  */
 public class ConsistencyAnalyzer {
 
+    /**
+     * How the average pairwise keyword similarity of a prompt's responses is computed
+     * (-Dconsistency.similarity=exact|minhash|auto|compare).
+     */
+    public enum SimilarityMode {
+        /** All-pairs Jaccard on the keyword sets */
+        EXACT,
+        /** Estimate from MinHash signatures, plus LSH outlier detection */
+        MINHASH,
+        /** EXACT up to {@code consistency.exactMaxResponses} responses per prompt, MINHASH above */
+        AUTO,
+        /** Both: the exact score is reported, along with the MinHash estimate and its error */
+        COMPARE
+    }
+
+    private static final long MINHASH_SEED = 42L;
+    private static final int LSH_ROWS_PER_BAND = 5;
+    private static final double LSH_MIN_CANDIDATE_FRACTION = 0.1;
+    private static final double OUTLIER_SIMILARITY_RATIO = 0.5;
+    private static final int MAX_OUTLIERS_PER_PROMPT = 5;
+
     private final ResponseAggregator aggregator;
     private final ObjectMapper objectMapper;
+    private final SimilarityMode similarityMode;
+    private final int exactMaxResponses;
+    private final double minHashMaxError;
+    private final MinHash minHash;
+    private final int parallelism;
+    private final ThreadLocal<TextFeatures.Scanner> scanner = ThreadLocal.withInitial(TextFeatures.Scanner::new);
+    // Keyed by record identity: session ids repeat across merged runs
+    private final Map<ResponseMetadata, TextFeatures> featureCache = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    // Pool of the analysis in progress
+    private ForkJoinPool pool;
 
     public ConsistencyAnalyzer(Path metadataFile) {
+        this(metadataFile,
+                SimilarityMode.valueOf(System.getProperty("consistency.similarity", "auto").toUpperCase(Locale.ROOT)),
+                Integer.getInteger("consistency.exactMaxResponses", 200),
+                Double.parseDouble(System.getProperty("consistency.minhashError", "0.05")),
+                Integer.getInteger("consistency.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param similarityMode    How pairwise similarity is computed
+     * @param exactMaxResponses Largest prompt group computed exactly in AUTO mode
+     * @param minHashMaxError   Bound on the standard error of a MinHash pair estimate (sets the signature length)
+     * @param parallelism       Worker threads of the per-prompt analysis (the report does not depend on it)
+     */
+    public ConsistencyAnalyzer(Path metadataFile, SimilarityMode similarityMode, int exactMaxResponses,
+                               double minHashMaxError, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
         this.aggregator = new ResponseAggregator(metadataFile);
         this.objectMapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule())
                 .enable(SerializationFeature.INDENT_OUTPUT);
+        this.similarityMode = similarityMode;
+        this.exactMaxResponses = exactMaxResponses;
+        this.minHashMaxError = minHashMaxError;
+        this.minHash = MinHash.forError(minHashMaxError, MINHASH_SEED);
+        this.parallelism = parallelism;
     }
 
     /**
@@ -41,27 +104,44 @@ public class ConsistencyAnalyzer {
      * @throws IOException if file operations fail
      */
     public Map<String, Object> analyze() throws IOException {
+        return analyze(aggregator.buildIndex());
+    }
+
+    /**
+     * Performs complete consistency analysis on an already built index.
+     *
+     * @param index Responses grouped in a single pass
+     * @return Map containing the full analysis report
+     */
+    public Map<String, Object> analyze(ResponseIndex index) {
         System.out.println("\n🔍 Starting Consistency Analysis...\n");
 
         Map<String, Object> report = new HashMap<>();
         report.put("analysis_timestamp", new Date().toString());
 
-        // Load grouped responses
-        Map<String, List<ResponseMetadata>> byPrompt = aggregator.groupByPrompt();
-        Map<String, List<ResponseMetadata>> byCategory = aggregator.groupByCategory();
-        Map<String, List<ResponseMetadata>> byPhase = aggregator.groupByTestPhase();
+        // Grouped responses
+        Map<String, List<ResponseMetadata>> byPrompt = aggregator.groupByPrompt(index);
+        Map<String, List<ResponseMetadata>> byCategory = aggregator.groupByCategory(index);
+        Map<String, List<ResponseMetadata>> byPhase = aggregator.groupByTestPhase(index);
 
         // Overall statistics
-        List<ResponseMetadata> allResponses = aggregator.readAllResponses();
+        List<ResponseMetadata> allResponses = index.getResponses();
         report.put("total_responses", allResponses.size());
         report.put("unique_prompts", byPrompt.size());
 
-        // Analyze each dimension
-        report.put("completeness_analysis", analyzeCompleteness(allResponses));
-        report.put("structural_analysis", analyzeStructuralConsistency(byPrompt));
-        report.put("semantic_analysis", analyzeSemanticConsistency(byPrompt));
-        report.put("temporal_analysis", analyzeTemporalPatterns(byPhase));
-        report.put("category_analysis", analyzeCategoryImpact(byCategory));
+        // Analyze each dimension (prompts are analyzed in parallel, merged in prompt order)
+        pool = new ForkJoinPool(parallelism);
+        try {
+            report.put("completeness_analysis", analyzeCompleteness(allResponses));
+            report.put("structural_analysis", analyzeStructuralConsistency(byPrompt));
+            report.put("semantic_analysis", analyzeSemanticConsistency(byPrompt));
+            report.put("temporal_analysis", analyzeTemporalPatterns(byPhase));
+            report.put("category_analysis", analyzeCategoryImpact(byCategory));
+        } finally {
+            pool.shutdown();
+            pool = null;
+            featureCache.clear();
+        }
 
         // Calculate global consistency score
         double globalScore = calculateGlobalScore(report);
@@ -125,72 +205,10 @@ public class ConsistencyAnalyzer {
         double totalScore = 0.0;
         int promptCount = 0;
 
-        for (Map.Entry<String, List<ResponseMetadata>> entry : byPrompt.entrySet()) {
-            String prompt = entry.getKey();
-            List<ResponseMetadata> responses = entry.getValue();
-
-            if (responses.size() < 2) continue;
+        for (PromptResult result : analyzePerPrompt(byPrompt, this::analyzePromptStructure)) {
             promptCount++;
-
-            double promptScore = 1.0;
-
-            // Analyze length variation
-            IntSummaryStatistics lengthStats = responses.stream()
-                    .mapToInt(ResponseMetadata::getResponseLength)
-                    .summaryStatistics();
-
-            double avgLength = lengthStats.getAverage();
-            double maxLength = lengthStats.getMax();
-            double minLength = lengthStats.getMin();
-
-            double lengthVariation = avgLength > 0 ? (maxLength - minLength) / avgLength : 0;
-
-            if (lengthVariation > 0.5) { // More than 50% variation
-                promptScore -= 0.1;
-                Map<String, Object> issue = new HashMap<>();
-                issue.put("prompt", truncate(prompt, 60));
-                issue.put("description", "High length variation: " + String.format("%.1f%%", lengthVariation * 100));
-                issue.put("severity", lengthVariation > 0.8 ? "high" : "medium");
-                issue.put("min_length", minLength);
-                issue.put("max_length", maxLength);
-                issue.put("avg_length", avgLength);
-                issues.add(issue);
-            }
-
-            // Detect format issues (Markdown, code blocks)
-            long markdownCount = responses.stream()
-                    .filter(r -> containsMarkdown(r.getResponse()))
-                    .count();
-
-            if (markdownCount > 0 && markdownCount < responses.size()) {
-                promptScore -= 0.15;
-                Map<String, Object> issue = new HashMap<>();
-                issue.put("prompt", truncate(prompt, 60));
-                issue.put("description", "Inconsistent Markdown formatting");
-                issue.put("severity", "medium");
-                issue.put("markdown_count", markdownCount);
-                issue.put("total_count", responses.size());
-                issues.add(issue);
-            }
-
-            // Detect language mixing
-            Map<String, Long> languages = responses.stream()
-                    .collect(Collectors.groupingBy(
-                            r -> detectLanguage(r.getResponse()),
-                            Collectors.counting()
-                    ));
-
-            if (languages.size() > 1) {
-                promptScore -= 0.2;
-                Map<String, Object> issue = new HashMap<>();
-                issue.put("prompt", truncate(prompt, 60));
-                issue.put("description", "Multiple languages detected");
-                issue.put("severity", "high");
-                issue.put("languages", languages);
-                issues.add(issue);
-            }
-
-            totalScore += Math.max(0.0, promptScore);
+            issues.addAll(result.issues);
+            totalScore += result.score;
         }
 
         double structuralScore = promptCount > 0 ? totalScore / promptCount : 1.0;
@@ -203,44 +221,96 @@ public class ConsistencyAnalyzer {
         return analysis;
     }
 
+    /**
+     * Structural consistency of the responses to one prompt (format, length, language).
+     */
+    private PromptResult analyzePromptStructure(String prompt, List<ResponseMetadata> responses) {
+        PromptResult result = new PromptResult();
+        double promptScore = 1.0;
+
+        // Analyze length variation
+        IntSummaryStatistics lengthStats = responses.stream()
+                .mapToInt(ResponseMetadata::getResponseLength)
+                .summaryStatistics();
+
+        double avgLength = lengthStats.getAverage();
+        double maxLength = lengthStats.getMax();
+        double minLength = lengthStats.getMin();
+
+        double lengthVariation = avgLength > 0 ? (maxLength - minLength) / avgLength : 0;
+
+        if (lengthVariation > 0.5) { // More than 50% variation
+            promptScore -= 0.1;
+            Map<String, Object> issue = new HashMap<>();
+            issue.put("prompt", truncate(prompt, 60));
+            issue.put("description", "High length variation: " + String.format("%.1f%%", lengthVariation * 100));
+            issue.put("severity", lengthVariation > 0.8 ? "high" : "medium");
+            issue.put("min_length", minLength);
+            issue.put("max_length", maxLength);
+            issue.put("avg_length", avgLength);
+            result.issues.add(issue);
+        }
+
+        // Detect format issues (Markdown, code blocks)
+        long markdownCount = responses.stream()
+                .filter(r -> features(r).hasMarkdown())
+                .count();
+
+        if (markdownCount > 0 && markdownCount < responses.size()) {
+            promptScore -= 0.15;
+            Map<String, Object> issue = new HashMap<>();
+            issue.put("prompt", truncate(prompt, 60));
+            issue.put("description", "Inconsistent Markdown formatting");
+            issue.put("severity", "medium");
+            issue.put("markdown_count", markdownCount);
+            issue.put("total_count", responses.size());
+            result.issues.add(issue);
+        }
+
+        // Detect language mixing
+        Map<String, Long> languages = responses.stream()
+                .collect(Collectors.groupingBy(
+                        r -> features(r).getLanguage(),
+                        Collectors.counting()
+                ));
+
+        if (languages.size() > 1) {
+            promptScore -= 0.2;
+            Map<String, Object> issue = new HashMap<>();
+            issue.put("prompt", truncate(prompt, 60));
+            issue.put("description", "Multiple languages detected");
+            issue.put("severity", "high");
+            issue.put("languages", languages);
+            result.issues.add(issue);
+        }
+
+        result.score = Math.max(0.0, promptScore);
+        return result;
+    }
+
     /**
      * Analyzes semantic consistency using keyword overlap and similarity heuristics.
      */
     private Map<String, Object> analyzeSemanticConsistency(Map<String, List<ResponseMetadata>> byPrompt) {
-        System.out.println("📊 Analyzing semantic consistency...");
+        System.out.println("📊 Analyzing semantic consistency (similarity mode " + similarityMode + ")...");
 
         List<Map<String, Object>> issues = new ArrayList<>();
         double totalScore = 0.0;
         int promptCount = 0;
+        int exactPrompts = 0;
+        int estimatedPrompts = 0;
+        double maxEstimateError = 0.0;
 
-        for (Map.Entry<String, List<ResponseMetadata>> entry : byPrompt.entrySet()) {
-            String prompt = entry.getKey();
-            List<ResponseMetadata> responses = entry.getValue();
-
-            if (responses.size() < 2) continue;
+        for (PromptResult result : analyzePerPrompt(byPrompt, this::analyzePromptSemantics)) {
             promptCount++;
-
-            // Extract keywords from all responses
-            List<Set<String>> keywordSets = responses.stream()
-                    .map(r -> extractKeywords(r.getResponse()))
-                    .collect(Collectors.toList());
-
-            // Calculate average pairwise Jaccard similarity
-            double avgSimilarity = calculateAverageJaccardSimilarity(keywordSets);
-
-            double promptScore = avgSimilarity;
-
-            if (avgSimilarity < 0.6) { // Low semantic similarity
-                Map<String, Object> issue = new HashMap<>();
-                issue.put("prompt", truncate(prompt, 60));
-                issue.put("description", "Low semantic similarity between responses");
-                issue.put("severity", avgSimilarity < 0.4 ? "high" : "medium");
-                issue.put("similarity_score", avgSimilarity);
-                issue.put("response_count", responses.size());
-                issues.add(issue);
+            issues.addAll(result.issues);
+            totalScore += result.score;
+            if (result.exact) {
+                exactPrompts++;
+            } else {
+                estimatedPrompts++;
             }
-
-            totalScore += promptScore;
+            maxEstimateError = Math.max(maxEstimateError, result.estimateError);
         }
 
         double semanticScore = promptCount > 0 ? totalScore / promptCount : 1.0;
@@ -248,11 +318,113 @@ public class ConsistencyAnalyzer {
         Map<String, Object> analysis = new HashMap<>();
         analysis.put("score", semanticScore);
         analysis.put("issues", issues);
+        analysis.put("similarity_mode", similarityMode.name().toLowerCase(Locale.ROOT));
+        analysis.put("exact_prompts", exactPrompts);
+        analysis.put("minhash_prompts", estimatedPrompts);
+        if (similarityMode != SimilarityMode.EXACT) {
+            analysis.put("minhash_hashes", minHash.getNumHashes());
+            analysis.put("minhash_max_error", minHash.getMaxError());
+        }
+        if (similarityMode == SimilarityMode.COMPARE) {
+            analysis.put("minhash_max_observed_error", maxEstimateError);
+            System.out.println("  ✓ MinHash vs exact: max error " + String.format("%.4f", maxEstimateError)
+                    + " (bound per pair " + String.format("%.4f", minHash.getMaxError()) + ")");
+        }
 
         System.out.println("  ✓ Semantic score: " + String.format("%.3f", semanticScore));
         return analysis;
     }
 
+    /**
+     * Semantic consistency of the responses to one prompt: average pairwise keyword similarity.
+     */
+    private PromptResult analyzePromptSemantics(String prompt, List<ResponseMetadata> responses) {
+        PromptResult result = new PromptResult();
+
+        // Extract keywords from all responses
+        List<Set<String>> keywordSets = responses.stream()
+                .map(r -> features(r).getKeywords())
+                .collect(Collectors.toList());
+
+        result.exact = similarityMode == SimilarityMode.EXACT || similarityMode == SimilarityMode.COMPARE
+                || (similarityMode == SimilarityMode.AUTO && responses.size() <= exactMaxResponses);
+        boolean estimated = !result.exact || similarityMode == SimilarityMode.COMPARE;
+
+        // Average pairwise Jaccard similarity: exact all-pairs, and/or estimated from MinHash signatures
+        double avgSimilarity = 0.0;
+        if (result.exact) {
+            avgSimilarity = calculateAverageJaccardSimilarity(keywordSets);
+        }
+        if (estimated) {
+            List<int[]> signatures = keywordSets.stream()
+                    .map(minHash::signature)
+                    .collect(Collectors.toList());
+            double[] similarities = minHash.averageSimilarities(signatures);
+            double estimate = MinHash.averagePairwiseSimilarity(similarities);
+            if (result.exact) {
+                result.estimateError = Math.abs(estimate - avgSimilarity);
+            } else {
+                avgSimilarity = estimate;
+            }
+            result.issues.addAll(findOutlierResponses(prompt, responses, signatures, similarities, avgSimilarity));
+        }
+
+        if (avgSimilarity < 0.6) { // Low semantic similarity
+            Map<String, Object> issue = new HashMap<>();
+            issue.put("prompt", truncate(prompt, 60));
+            issue.put("description", "Low semantic similarity between responses");
+            issue.put("severity", avgSimilarity < 0.4 ? "high" : "medium");
+            issue.put("similarity_score", avgSimilarity);
+            issue.put("response_count", responses.size());
+            result.issues.add(issue);
+        }
+
+        result.score = avgSimilarity;
+        return result;
+    }
+
+    /**
+     * Runs a per-prompt analysis on every prompt with at least two responses, in parallel on the pool.
+     *
+     * Prompts are submitted largest first, so a big prompt starts early instead of finishing last, and the
+     * results are returned in the map's prompt order: the merge (issue order, floating-point sums) is the
+     * same whatever the number of threads.
+     */
+    private List<PromptResult> analyzePerPrompt(Map<String, List<ResponseMetadata>> byPrompt,
+                                                BiFunction<String, List<ResponseMetadata>, PromptResult> analysis) {
+        List<Map.Entry<String, List<ResponseMetadata>>> prompts = byPrompt.entrySet().stream()
+                .filter(entry -> entry.getValue().size() >= 2)
+                .collect(Collectors.toList());
+
+        List<Integer> submitOrder = new ArrayList<>();
+        for (int i = 0; i < prompts.size(); i++) {
+            submitOrder.add(i);
+        }
+        submitOrder.sort(Comparator.comparingInt((Integer i) -> prompts.get(i).getValue().size()).reversed());
+
+        List<ForkJoinTask<PromptResult>> tasks = new ArrayList<>(Collections.nCopies(prompts.size(), null));
+        for (int i : submitOrder) {
+            Map.Entry<String, List<ResponseMetadata>> entry = prompts.get(i);
+            tasks.set(i, pool.submit(() -> analysis.apply(entry.getKey(), entry.getValue())));
+        }
+
+        List<PromptResult> results = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<PromptResult> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Score and issues of one prompt.
+     */
+    private static final class PromptResult {
+        private double score;
+        private final List<Map<String, Object>> issues = new ArrayList<>();
+        private boolean exact;
+        private double estimateError;
+    }
+
     /**
      * Analyzes temporal patterns (quality degradation over test phases).
      */
@@ -388,62 +560,154 @@ public class ConsistencyAnalyzer {
 
     // Helper Methods
 
-    private boolean containsMarkdown(String text) {
-        return text.contains("```") || text.contains("**") || text.contains("##") || text.contains("- ");
+    /**
+     * Text features of a response, scanned once and shared by the structural and semantic analysis.
+     */
+    private TextFeatures features(ResponseMetadata response) {
+        TextFeatures features = featureCache.get(response);
+        if (features == null) {
+            // Scanned outside the map's lock; a concurrent scan of the same record gives the same features
+            features = scanner.get().scan(textOf(response));
+            TextFeatures cached = featureCache.putIfAbsent(response, features);
+            if (cached != null) {
+                features = cached;
+            }
+        }
+        return features;
     }
 
-    private String detectLanguage(String text) {
-        // Simple heuristic: count Spanish vs English common words
-        String[] spanishWords = {"el", "la", "los", "las", "de", "que", "es", "un", "una", "para", "con"};
-        String[] englishWords = {"the", "is", "are", "of", "to", "and", "a", "in", "that", "have"};
-
-        long spanishCount = Arrays.stream(spanishWords)
-                .filter(word -> text.toLowerCase().contains(" " + word + " "))
-                .count();
+    private static String textOf(ResponseMetadata response) {
+        return response.getResponse() != null ? response.getResponse() : "";
+    }
 
-        long englishCount = Arrays.stream(englishWords)
-                .filter(word -> text.toLowerCase().contains(" " + word + " "))
-                .count();
+    private double calculateAverageJaccardSimilarity(List<Set<String>> keywordSets) {
+        if (keywordSets.size() < 2) return 1.0;
 
-        return spanishCount > englishCount ? "Spanish" : "English";
+        long n = keywordSets.size();
+        return PairwiseJaccardTask.forAllPairs(keywordSets).invoke() / (n * (n - 1) / 2);
     }
 
-    private Set<String> extractKeywords(String text) {
-        // Extract words longer than 3 characters, lowercase, remove common words
-        Set<String> stopwords = Set.of("the", "is", "are", "and", "or", "but", "with", "for",
-                "el", "la", "de", "que", "es", "un", "una", "para", "con", "por");
-
-        return Pattern.compile("\\w+")
-                .matcher(text.toLowerCase())
-                .results()
-                .map(m -> m.group())
-                .filter(word -> word.length() > 3)
-                .filter(word -> !stopwords.contains(word))
-                .collect(Collectors.toSet());
-    }
+    /**
+     * Sum of the Jaccard similarities of the pairs (i, j), i in [from, to), j > i.
+     *
+     * Large ranges are split in two halves with about the same number of pairs, so one big prompt is spread
+     * over the pool: a prompt is cut into about {@link #TASKS_PER_PROMPT} tasks, down to
+     * {@link #MIN_PAIRS_PER_TASK} pairs each (at the default 200-response exact limit, 19,900 pairs make 16
+     * tasks of about 1,200). The split points depend only on the number of responses and the partial sums are
+     * added in a fixed order, so the result does not depend on the number of threads.
+     */
+    private static final class PairwiseJaccardTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private static final int TASKS_PER_PROMPT = 16;
+        private static final long MIN_PAIRS_PER_TASK = 500;
+
+        private final List<Set<String>> keywordSets;
+        private final int from;
+        private final int to;
+        private final long pairsPerTask;
+
+        private PairwiseJaccardTask(List<Set<String>> keywordSets, int from, int to, long pairsPerTask) {
+            this.keywordSets = keywordSets;
+            this.from = from;
+            this.to = to;
+            this.pairsPerTask = pairsPerTask;
+        }
 
-    private double calculateAverageJaccardSimilarity(List<Set<String>> keywordSets) {
-        if (keywordSets.size() < 2) return 1.0;
+        private static PairwiseJaccardTask forAllPairs(List<Set<String>> keywordSets) {
+            int n = keywordSets.size();
+            long pairsPerTask = Math.max(MIN_PAIRS_PER_TASK, pairsFrom(0, n) / TASKS_PER_PROMPT);
+            return new PairwiseJaccardTask(keywordSets, 0, n, pairsPerTask);
+        }
+
+        @Override
+        protected Double compute() {
+            int n = keywordSets.size();
+            long pairs = pairsFrom(from, n) - pairsFrom(to, n);
+            if (pairs <= pairsPerTask || to - from < 2) {
+                double sum = 0.0;
+                for (int i = from; i < to; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        sum += jaccardSimilarity(keywordSets.get(i), keywordSets.get(j));
+                    }
+                }
+                return sum;
+            }
 
-        List<Double> similarities = new ArrayList<>();
-        for (int i = 0; i < keywordSets.size(); i++) {
-            for (int j = i + 1; j < keywordSets.size(); j++) {
-                double similarity = jaccardSimilarity(keywordSets.get(i), keywordSets.get(j));
-                similarities.add(similarity);
+            // Row where half of the range's pairs are behind
+            long half = pairsFrom(from, n) - pairs / 2;
+            int mid = from + 1;
+            while (mid < to - 1 && pairsFrom(mid, n) > half) {
+                mid++;
             }
+            PairwiseJaccardTask left = new PairwiseJaccardTask(keywordSets, from, mid, pairsPerTask);
+            PairwiseJaccardTask right = new PairwiseJaccardTask(keywordSets, mid, to, pairsPerTask);
+            right.fork();
+            double leftSum = left.compute();
+            return leftSum + right.join();
         }
 
-        return similarities.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        /**
+         * @return Number of pairs (i, j) with i >= row, j > i
+         */
+        private static long pairsFrom(int row, int n) {
+            long rows = n - row;
+            return rows * (rows - 1) / 2;
+        }
     }
 
-    private double jaccardSimilarity(Set<String> set1, Set<String> set2) {
-        Set<String> intersection = new HashSet<>(set1);
-        intersection.retainAll(set2);
+    static double jaccardSimilarity(Set<String> set1, Set<String> set2) {
+        // |A ∩ B| by probing the larger set with the smaller one; |A ∪ B| = |A| + |B| - |A ∩ B|
+        Set<String> smaller = set1.size() <= set2.size() ? set1 : set2;
+        Set<String> larger = smaller == set1 ? set2 : set1;
+        int intersection = 0;
+        for (String keyword : smaller) {
+            if (larger.contains(keyword)) {
+                intersection++;
+            }
+        }
+        int union = set1.size() + set2.size() - intersection;
 
-        Set<String> union = new HashSet<>(set1);
-        union.addAll(set2);
+        return union == 0 ? 0.0 : (double) intersection / union;
+    }
 
-        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+    /**
+     * Flags responses that share no LSH bucket with most of the other responses to the same prompt, and
+     * whose estimated similarity to the others is below half the prompt's average (LSH candidates alone
+     * also catch responses that are only slightly below the average).
+     */
+    private List<Map<String, Object>> findOutlierResponses(String prompt, List<ResponseMetadata> responses,
+                                                           List<int[]> signatures, double[] similarities,
+                                                           double avgSimilarity) {
+        List<Integer> outliers = new ArrayList<>();
+        for (int index : minHash.findOutliers(signatures, LSH_ROWS_PER_BAND, LSH_MIN_CANDIDATE_FRACTION)) {
+            if (similarities[index] < avgSimilarity * OUTLIER_SIMILARITY_RATIO) {
+                outliers.add(index);
+            }
+        }
+        if (outliers.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Map<String, Object>> issues = new ArrayList<>();
+        for (int index : outliers.subList(0, Math.min(outliers.size(), MAX_OUTLIERS_PER_PROMPT))) {
+            Map<String, Object> issue = new HashMap<>();
+            issue.put("prompt", truncate(prompt, 60));
+            issue.put("description", "Outlier response (few similar responses to the same prompt)");
+            issue.put("severity", "medium");
+            issue.put("session_id", responses.get(index).getSessionId());
+            issue.put("similarity_to_others", similarities[index]);
+            issues.add(issue);
+        }
+        if (outliers.size() > MAX_OUTLIERS_PER_PROMPT) {
+            Map<String, Object> issue = new HashMap<>();
+            issue.put("prompt", truncate(prompt, 60));
+            issue.put("description", (outliers.size() - MAX_OUTLIERS_PER_PROMPT) + " more outlier responses");
+            issue.put("severity", "medium");
+            issue.put("affected_count", outliers.size());
+            issues.add(issue);
+        }
+        return issues;
     }
 
     private double calculateTruncationRate(List<ResponseMetadata> responses) {
@@ -473,6 +737,45 @@ public class ConsistencyAnalyzer {
         System.out.println("💾 Analysis report saved to: " + outputFile);
     }
 
+    /**
+     * Times the analysis of the same index with 1, 2, 4... up to maxParallelism threads, and checks that
+     * every report is identical to the single-threaded one (analysis timestamp aside).
+     */
+    static void runScalingBenchmark(Path metadataFile, int maxParallelism) throws IOException {
+        ConsistencyAnalyzer base = new ConsistencyAnalyzer(metadataFile);
+        ResponseIndex index = base.aggregator.buildIndex();
+
+        List<Integer> levels = new ArrayList<>();
+        for (int p = 1; p < maxParallelism; p *= 2) {
+            levels.add(p);
+        }
+        levels.add(maxParallelism);
+
+        String baseline = null;
+        double baselineSeconds = 0.0;
+        List<String> rows = new ArrayList<>();
+        for (int parallelism : levels) {
+            ConsistencyAnalyzer analyzer = new ConsistencyAnalyzer(metadataFile, base.similarityMode,
+                    base.exactMaxResponses, base.minHashMaxError, parallelism);
+            analyzer.analyze(index); // warm-up
+            long start = System.nanoTime();
+            Map<String, Object> report = analyzer.analyze(index);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            report.remove("analysis_timestamp");
+            String json = analyzer.objectMapper.writeValueAsString(report);
+            if (baseline == null) {
+                baseline = json;
+                baselineSeconds = seconds;
+            }
+            rows.add(String.format("  %2d threads: %7.3fs  speedup %5.2fx  report %s", parallelism, seconds,
+                    baselineSeconds / seconds, json.equals(baseline) ? "identical" : "DIFFERENT"));
+        }
+
+        System.out.println("\n⏱️ Scaling of the consistency analysis (" + index.size() + " responses):");
+        rows.forEach(System.out::println);
+    }
+
     /**
      * Main method for running the analyzer independently.
      */
@@ -481,6 +784,14 @@ public class ConsistencyAnalyzer {
             Path metadataFile = Path.of("target/responses_metadata.jsonl");
             Path reportFile = Path.of("target/consistency_analysis.json");
 
+            if (args.length > 0 && args[0].equals("--scaling")) {
+                int maxParallelism = args.length > 1
+                        ? Integer.parseInt(args[1])
+                        : Runtime.getRuntime().availableProcessors();
+                runScalingBenchmark(metadataFile, maxParallelism);
+                return;
+            }
+
             ConsistencyAnalyzer analyzer = new ConsistencyAnalyzer(metadataFile);
             Map<String, Object> report = analyzer.analyze();
             analyzer.saveReport(report, reportFile);
@@ -1,31 +1,53 @@
 package ssellm;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ssellm.analyzers.AdvancedMetrics;
 import ssellm.models.ResponseMetadata;
+import ssellm.store.ColumnarStore;
+import ssellm.store.ColumnarStoreWriter;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Aggregates LLM responses by prompt from JSONL metadata file.
  *
  * This class reads the responses_metadata.jsonl file generated during load tests
  * and groups responses by their prompt text for consistency analysis.
+ *
+ * Records are streamed one line at a time (each line's UTF-8 bytes mapped by Jackson directly), so
+ * aggregations built on {@link #forEachResponse} or {@link #streamResponses()} (truncation stats, per-category
+ * latency) run in constant memory regardless of the file size. Only the grouping methods materialize the
+ * responses.
+ *
+ * Analyses that need several groupings should call {@link #buildIndex()} once and work on the returned
+ * {@link ResponseIndex}: every grouping is built in the same pass instead of re-reading the file for each.
  */
 public class ResponseAggregator {
 
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
     private final ObjectMapper objectMapper;
+    private final ObjectReader metadataReader;
     private final Path metadataFile;
 
     public ResponseAggregator(Path metadataFile) {
         this.metadataFile = metadataFile;
         this.objectMapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule());
+        this.metadataReader = objectMapper.readerFor(ResponseMetadata.class);
     }
 
     /**
@@ -35,30 +57,204 @@ public class ResponseAggregator {
      * @throws IOException if file reading fails
      */
     public List<ResponseMetadata> readAllResponses() throws IOException {
+        List<ResponseMetadata> responses = new ArrayList<>();
+        forEachResponse(responses::add);
+        System.out.println("✅ Loaded " + responses.size() + " responses from " + metadataFile);
+        return responses;
+    }
+
+    /**
+     * Streams every response of the JSONL file to a visitor, one record at a time.
+     *
+     * Lines that are not valid JSON (e.g. a line cut off when the test was killed) or do not map onto
+     * {@link ResponseMetadata} are reported and skipped; the following lines are still read.
+     *
+     * @param visitor Called once per response, in file order
+     * @return Number of responses visited
+     * @throws IOException if file reading fails
+     */
+    public long forEachResponse(Consumer<? super ResponseMetadata> visitor) throws IOException {
         if (!Files.exists(metadataFile)) {
             System.err.println("⚠️ Metadata file not found: " + metadataFile);
-            return Collections.emptyList();
+            return 0;
         }
 
-        List<ResponseMetadata> responses = new ArrayList<>();
-        List<String> lines = Files.readAllLines(metadataFile);
+        long startNanos = System.nanoTime();
+        long count = 0;
+        try (RecordReader reader = new RecordReader()) {
+            while (true) {
+                ResponseMetadata metadata = reader.next();
+                if (metadata == null) {
+                    break;
+                }
+                visitor.accept(metadata);
+                count++;
+            }
+        }
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.println(String.format("📈 Streamed %d responses from %s in %.2fs (%.0f records/sec)",
+                count, metadataFile, seconds, seconds > 0 ? count / seconds : 0.0));
+        return count;
+    }
+
+    /**
+     * Lazily streams the responses of the JSONL file. The stream holds the file open: close it
+     * (try-with-resources) when done.
+     *
+     * @return Sequential stream of responses, in file order
+     * @throws IOException if the file cannot be opened
+     */
+    public Stream<ResponseMetadata> streamResponses() throws IOException {
+        if (!Files.exists(metadataFile)) {
+            System.err.println("⚠️ Metadata file not found: " + metadataFile);
+            return Stream.empty();
+        }
+
+        RecordReader reader = new RecordReader();
+        Iterator<ResponseMetadata> responses = new Iterator<ResponseMetadata>() {
+            private ResponseMetadata next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = reader.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
 
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
-            if (line.isEmpty()) {
-                continue;
+            @Override
+            public ResponseMetadata next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ResponseMetadata current = next;
+                next = null;
+                return current;
             }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(responses, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 
-            try {
-                ResponseMetadata metadata = objectMapper.readValue(line, ResponseMetadata.class);
-                responses.add(metadata);
-            } catch (IOException e) {
-                System.err.println("⚠️ Error parsing line " + (i + 1) + ": " + e.getMessage());
+    /**
+     * Reads the JSONL file one record per line
+     */
+    private final class RecordReader implements Closeable {
+        private final InputStream in;
+        private final byte[] buffer = new byte[READ_BUFFER_BYTES];
+        private int position = 0;
+        private int limit = 0;
+        private byte[] line = new byte[4096];
+        private long lineNumber = 0;
+
+        private RecordReader() throws IOException {
+            this.in = Files.newInputStream(metadataFile);
+        }
+
+        /**
+         * @return The next line that maps onto ResponseMetadata, or null at the end of the file
+         */
+        private ResponseMetadata next() throws IOException {
+            while (true) {
+                int length = readLine();
+                if (length < 0) {
+                    return null;
+                }
+                while (length > 0 && (line[length - 1] == '\r' || line[length - 1] == ' ')) {
+                    length--;
+                }
+                if (length == 0) {
+                    continue;
+                }
+                try {
+                    return metadataReader.readValue(line, 0, length);
+                } catch (JsonProcessingException e) {
+                    // One record per line: a bad line is skipped without losing the following ones
+                    System.err.println("⚠️ Skipping unparseable record at line " + lineNumber + ": " +
+                            e.getOriginalMessage());
+                }
             }
         }
 
-        System.out.println("✅ Loaded " + responses.size() + " responses from " + metadataFile);
-        return responses;
+        /**
+         * @return Length of the next line (without its newline) in {@code line}, -1 at the end of the file
+         */
+        private int readLine() throws IOException {
+            int length = 0;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        if (length == 0) {
+                            return -1;
+                        }
+                        break;
+                    }
+                }
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                int chunk = position - start;
+                if (length + chunk > line.length) {
+                    line = Arrays.copyOf(line, Math.max(line.length * 2, length + chunk));
+                }
+                System.arraycopy(buffer, start, line, length, chunk);
+                length += chunk;
+                if (position < limit) {
+                    position++;
+                    break;
+                }
+            }
+            lineNumber++;
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the file once and groups every response by prompt, category, test phase, user and time bucket.
+     *
+     * @return Index over all responses
+     * @throws IOException if file reading fails
+     */
+    public ResponseIndex buildIndex() throws IOException {
+        return buildIndex(ResponseIndex.DEFAULT_BUCKET_MILLIS);
+    }
+
+    /**
+     * Reads the file once and groups every response by prompt, category, test phase, user and time bucket.
+     *
+     * @param bucketMillis Width of the time buckets
+     * @return Index over all responses
+     * @throws IOException if file reading fails
+     */
+    public ResponseIndex buildIndex(long bucketMillis) throws IOException {
+        ResponseIndex index = new ResponseIndex(bucketMillis);
+        ResponseIndex.resetPeakHeap();
+        long startNanos = System.nanoTime();
+        forEachResponse(index::add);
+        index.setIngestFigures(System.nanoTime() - startNanos, ResponseIndex.measurePeakHeap());
+        index.printSummary();
+        return index;
     }
 
     /**
@@ -68,10 +264,14 @@ public class ResponseAggregator {
      * @throws IOException if file reading fails
      */
     public Map<String, List<ResponseMetadata>> groupByPrompt() throws IOException {
-        List<ResponseMetadata> allResponses = readAllResponses();
+        return groupByPrompt(buildIndex());
+    }
 
-        Map<String, List<ResponseMetadata>> grouped = allResponses.stream()
-                .collect(Collectors.groupingBy(ResponseMetadata::getPrompt));
+    /**
+     * Prints and returns the prompt grouping of an index.
+     */
+    public Map<String, List<ResponseMetadata>> groupByPrompt(ResponseIndex index) {
+        Map<String, List<ResponseMetadata>> grouped = index.getByPrompt();
 
         System.out.println("📊 Grouped responses:");
         grouped.forEach((prompt, responses) -> {
@@ -88,10 +288,14 @@ public class ResponseAggregator {
      * @throws IOException if file reading fails
      */
     public Map<String, List<ResponseMetadata>> groupByCategory() throws IOException {
-        List<ResponseMetadata> allResponses = readAllResponses();
+        return groupByCategory(buildIndex());
+    }
 
-        Map<String, List<ResponseMetadata>> grouped = allResponses.stream()
-                .collect(Collectors.groupingBy(ResponseMetadata::getCategory));
+    /**
+     * Prints and returns the category grouping of an index.
+     */
+    public Map<String, List<ResponseMetadata>> groupByCategory(ResponseIndex index) {
+        Map<String, List<ResponseMetadata>> grouped = index.getByCategory();
 
         System.out.println("📊 Grouped by category:");
         grouped.forEach((category, responses) -> {
@@ -108,10 +312,14 @@ public class ResponseAggregator {
      * @throws IOException if file reading fails
      */
     public Map<String, List<ResponseMetadata>> groupByTestPhase() throws IOException {
-        List<ResponseMetadata> allResponses = readAllResponses();
+        return groupByTestPhase(buildIndex());
+    }
 
-        Map<String, List<ResponseMetadata>> grouped = allResponses.stream()
-                .collect(Collectors.groupingBy(ResponseMetadata::getTestPhase));
+    /**
+     * Prints and returns the test phase grouping of an index.
+     */
+    public Map<String, List<ResponseMetadata>> groupByTestPhase(ResponseIndex index) {
+        Map<String, List<ResponseMetadata>> grouped = index.getByPhase();
 
         System.out.println("📊 Grouped by test phase:");
         grouped.forEach((phase, responses) -> {
@@ -128,36 +336,150 @@ public class ResponseAggregator {
      * @throws IOException if file reading fails
      */
     public Map<String, Object> getTruncationStats() throws IOException {
-        List<ResponseMetadata> allResponses = readAllResponses();
+        TruncationCounter counter = new TruncationCounter();
+        forEachResponse(counter);
+        return counter.toStats();
+    }
 
-        long totalResponses = allResponses.size();
-        long truncatedCount = allResponses.stream()
-                .filter(ResponseMetadata::isTruncated)
-                .count();
+    /**
+     * Gets statistics about truncated responses from an index (no file access).
+     *
+     * @return Map with truncation statistics
+     */
+    public Map<String, Object> getTruncationStats(ResponseIndex index) {
+        // Counted per interned reason id while indexing
+        TruncationCounter counter = new TruncationCounter();
+        counter.totalResponses = index.size();
+        counter.truncatedCount = index.getTruncatedCount();
+        counter.truncationReasons.putAll(index.getTruncationReasonCounts());
+        return counter.toStats();
+    }
 
-        Map<String, Long> truncationReasons = allResponses.stream()
-                .filter(ResponseMetadata::isTruncated)
-                .collect(Collectors.groupingBy(
-                        ResponseMetadata::getTruncationReason,
-                        Collectors.counting()
-                ));
+    /**
+     * Counts responses, truncations and truncation reasons.
+     */
+    private static final class TruncationCounter implements Consumer<ResponseMetadata> {
+        private long totalResponses;
+        private long truncatedCount;
+        private final Map<String, Long> truncationReasons = new HashMap<>();
+
+        @Override
+        public void accept(ResponseMetadata response) {
+            totalResponses++;
+            if (response.isTruncated()) {
+                truncatedCount++;
+                truncationReasons.merge(response.getTruncationReason(), 1L, Long::sum);
+            }
+        }
 
-        double truncationRate = totalResponses > 0
-                ? (double) truncatedCount / totalResponses
-                : 0.0;
+        private Map<String, Object> toStats() {
+            double truncationRate = totalResponses > 0
+                    ? (double) truncatedCount / totalResponses
+                    : 0.0;
 
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("total_responses", totalResponses);
-        stats.put("truncated_count", truncatedCount);
-        stats.put("truncation_rate", truncationRate);
-        stats.put("truncation_reasons", truncationReasons);
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("total_responses", totalResponses);
+            stats.put("truncated_count", truncatedCount);
+            stats.put("truncation_rate", truncationRate);
+            stats.put("truncation_reasons", truncationReasons);
 
-        System.out.println("📊 Truncation Statistics:");
-        System.out.println("  - Total responses: " + totalResponses);
-        System.out.println("  - Truncated: " + truncatedCount + " (" + String.format("%.2f%%", truncationRate * 100) + ")");
-        System.out.println("  - Reasons: " + truncationReasons);
+            System.out.println("📊 Truncation Statistics:");
+            System.out.println("  - Total responses: " + totalResponses);
+            System.out.println("  - Truncated: " + truncatedCount + " (" + String.format("%.2f%%", truncationRate * 100) + ")");
+            System.out.println("  - Reasons: " + truncationReasons);
 
-        return stats;
+            return stats;
+        }
+    }
+
+    /**
+     * Calculates latency statistics per category in a single streaming pass (constant memory).
+     *
+     * @return Map where key is the category and value is its latency statistics
+     * @throws IOException if file reading fails
+     */
+    public Map<String, AdvancedMetrics.LatencyStats> getLatencyByCategory() throws IOException {
+        Map<String, RunningStats> byCategory = new HashMap<>();
+        forEachResponse(response -> byCategory
+                .computeIfAbsent(response.getCategory(), c -> new RunningStats())
+                .add(response.getResponseTimeMs()));
+
+        Map<String, AdvancedMetrics.LatencyStats> latencyStats = new TreeMap<>();
+        byCategory.forEach((category, stats) -> latencyStats.put(category, stats.toLatencyStats()));
+        return latencyStats;
+    }
+
+    /**
+     * Calculates latency statistics per category from an index (no file access).
+     *
+     * @return Map where key is the category and value is its latency statistics
+     */
+    public Map<String, AdvancedMetrics.LatencyStats> getLatencyByCategory(ResponseIndex index) {
+        Map<String, AdvancedMetrics.LatencyStats> latencyStats = new TreeMap<>();
+        index.getByCategory().forEach((category, responses) -> {
+            RunningStats stats = new RunningStats();
+            responses.forEach(response -> stats.add(response.getResponseTimeMs()));
+            latencyStats.put(category, stats.toLatencyStats());
+        });
+        return latencyStats;
+    }
+
+    /**
+     * Running mean, min, max and standard deviation (Welford's algorithm).
+     */
+    static final class RunningStats {
+        private long count;
+        private double mean;
+        private double m2;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        AdvancedMetrics.LatencyStats toLatencyStats() {
+            if (count == 0) {
+                return new AdvancedMetrics.LatencyStats(0, 0, 0, 0);
+            }
+            return new AdvancedMetrics.LatencyStats(mean, min, max, Math.sqrt(m2 / count));
+        }
+    }
+
+    /**
+     * Converts the JSONL file into a columnar store (numeric columns, dictionary-encoded strings and an
+     * out-of-line response blob) that numeric analyses can scan through memory-mapped buffers.
+     *
+     * @param storeDirectory Directory of the store, created if missing
+     * @return Number of rows written
+     * @throws IOException if reading or writing fails
+     */
+    public long writeColumnarStore(Path storeDirectory) throws IOException {
+        long startNanos = System.nanoTime();
+        try (ColumnarStoreWriter writer = new ColumnarStoreWriter(storeDirectory)) {
+            forEachResponse(response -> {
+                try {
+                    writer.append(response);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.commit();
+            System.out.println(String.format("💾 Columnar store written to %s: %d rows in %.2fs",
+                    storeDirectory, writer.getRowCount(), (System.nanoTime() - startNanos) / 1e9));
+            return writer.getRowCount();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
@@ -167,7 +489,18 @@ public class ResponseAggregator {
      * @throws IOException if file writing fails
      */
     public void saveGroupedResponses(Path outputFile) throws IOException {
-        Map<String, List<ResponseMetadata>> grouped = groupByPrompt();
+        saveGroupedResponses(buildIndex(), outputFile);
+    }
+
+    /**
+     * Saves the prompt grouping of an index to a JSON file.
+     *
+     * @param index      Index to save
+     * @param outputFile Path to the output JSON file
+     * @throws IOException if file writing fails
+     */
+    public void saveGroupedResponses(ResponseIndex index, Path outputFile) throws IOException {
+        Map<String, List<ResponseMetadata>> grouped = index.getByPrompt();
 
         // Create a structure that's easier to read
         Map<String, Object> output = new HashMap<>();
@@ -217,17 +550,27 @@ public class ResponseAggregator {
         try {
             Path metadataFile = Path.of("target/responses_metadata.jsonl");
             Path outputFile = Path.of("target/responses_by_prompt.json");
+            Path storeDirectory = Path.of("target/responses_store");
 
             ResponseAggregator aggregator = new ResponseAggregator(metadataFile);
 
-            // Read and group responses
-            aggregator.groupByPrompt();
-            aggregator.groupByCategory();
-            aggregator.groupByTestPhase();
-            aggregator.getTruncationStats();
+            // Read once, then group responses
+            ResponseIndex index = aggregator.buildIndex();
+            aggregator.groupByPrompt(index);
+            aggregator.groupByCategory(index);
+            aggregator.groupByTestPhase(index);
+            aggregator.getTruncationStats(index);
+            AdvancedMetrics.printLatencyByCategory(aggregator.getLatencyByCategory(index));
 
             // Save grouped responses
-            aggregator.saveGroupedResponses(outputFile);
+            aggregator.saveGroupedResponses(index, outputFile);
+
+            // Columnar copy for numeric analyses
+            aggregator.writeColumnarStore(storeDirectory);
+            try (ColumnarStore store = ColumnarStore.open(storeDirectory)) {
+                AdvancedMetrics.printTruncationByCategory(AdvancedMetrics.calculateTruncationByCategory(store));
+                AdvancedMetrics.printLatencyByPhase(AdvancedMetrics.calculateLatencyByPhase(store));
+            }
 
             System.out.println("\n✅ Response aggregation completed successfully!");
 
@@ -0,0 +1,287 @@
+package ssellm;
+
+import ssellm.models.ResponseMetadata;
+import ssellm.store.LongIdTable;
+import ssellm.store.SymbolTable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * In-memory model of a run's responses, grouped along every dimension the analyzers need.
+ *
+ * The JSONL file is deserialized once ({@link ResponseAggregator#buildIndex()}) and each record is filed
+ * under its prompt, category, test phase, user and time bucket in the same pass. The groupings share the
+ * same {@link ResponseMetadata} instances, so the extra cost over a plain list is a few references per
+ * record. Groups keep the order in which keys first appear in the file, and records keep file order.
+ *
+ * Prompts, categories, phases and truncation reasons are interned through {@link SymbolTable}s: every
+ * record points at one shared copy of each distinct string (the parsed duplicates become garbage right
+ * away) and gets an int id per dimension. Groups are dense arrays indexed by those ids, user ids and time
+ * buckets go through a {@link LongIdTable}, so no string is hashed or compared again after ingest and no
+ * key is boxed. A record with a null key is left out of that dimension's groups.
+ */
+public class ResponseIndex {
+
+    public static final long DEFAULT_BUCKET_MILLIS = 10_000;
+
+    private final long bucketMillis;
+    private final List<ResponseMetadata> responses = new ArrayList<>();
+
+    private final SymbolTable prompts = new SymbolTable();
+    private final SymbolTable categories = new SymbolTable();
+    private final SymbolTable phases = new SymbolTable();
+    private final SymbolTable truncationReasons = new SymbolTable();
+    private final LongIdTable users = new LongIdTable();
+    private final LongIdTable timeBuckets = new LongIdTable();
+
+    // Per-record ids (row = position in responses)
+    private int[] promptIds = new int[1024];
+    private int[] categoryIds = new int[1024];
+    private int[] phaseIds = new int[1024];
+
+    // Groups by id
+    private final List<List<ResponseMetadata>> byPrompt = new ArrayList<>();
+    private final List<List<ResponseMetadata>> byCategory = new ArrayList<>();
+    private final List<List<ResponseMetadata>> byPhase = new ArrayList<>();
+    private final List<List<ResponseMetadata>> byUser = new ArrayList<>();
+    private final List<List<ResponseMetadata>> byTimeBucket = new ArrayList<>();
+    private long[] truncationsByReason = new long[8];
+    private long truncatedCount;
+
+    // Ingest figures
+    private long ingestNanos;
+    private long peakHeapBytes;
+
+    /**
+     * @param bucketMillis Width of the time buckets (by response timestamp)
+     */
+    public ResponseIndex(long bucketMillis) {
+        if (bucketMillis <= 0) {
+            throw new IllegalArgumentException("bucketMillis must be positive: " + bucketMillis);
+        }
+        this.bucketMillis = bucketMillis;
+    }
+
+    /**
+     * Interns the response's strings and files it under all its groupings.
+     */
+    public void add(ResponseMetadata response) {
+        int row = responses.size();
+        responses.add(response);
+        if (row == promptIds.length) {
+            promptIds = Arrays.copyOf(promptIds, row * 2);
+            categoryIds = Arrays.copyOf(categoryIds, row * 2);
+            phaseIds = Arrays.copyOf(phaseIds, row * 2);
+        }
+
+        int promptId = prompts.intern(response.getPrompt());
+        int categoryId = categories.intern(response.getCategory());
+        int phaseId = phases.intern(response.getTestPhase());
+        int reasonId = truncationReasons.intern(response.getTruncationReason());
+        response.setPrompt(prompts.symbol(promptId));
+        response.setCategory(categories.symbol(categoryId));
+        response.setTestPhase(phases.symbol(phaseId));
+        response.setTruncationReason(truncationReasons.symbol(reasonId));
+        promptIds[row] = promptId;
+        categoryIds[row] = categoryId;
+        phaseIds[row] = phaseId;
+
+        group(byPrompt, promptId, response);
+        group(byCategory, categoryId, response);
+        group(byPhase, phaseId, response);
+        group(byUser, users.intern(response.getUserId()), response);
+
+        Instant timestamp = response.getTimestamp();
+        if (timestamp != null) {
+            long bucket = Math.floorDiv(timestamp.toEpochMilli(), bucketMillis) * bucketMillis;
+            group(byTimeBucket, timeBuckets.intern(bucket), response);
+        }
+        if (response.isTruncated()) {
+            truncatedCount++;
+            if (reasonId != SymbolTable.NONE) {
+                if (reasonId >= truncationsByReason.length) {
+                    truncationsByReason = Arrays.copyOf(truncationsByReason, Math.max(reasonId + 1, truncationsByReason.length * 2));
+                }
+                truncationsByReason[reasonId]++;
+            }
+        }
+    }
+
+    private static void group(List<List<ResponseMetadata>> groups, int id, ResponseMetadata response) {
+        if (id == SymbolTable.NONE) {
+            return;
+        }
+        if (id == groups.size()) {
+            // Ids are assigned in first-seen order: a new id is always the next one
+            groups.add(new ArrayList<>());
+        }
+        groups.get(id).add(response);
+    }
+
+    // ========== Ingest figures ==========
+
+    /**
+     * Resets the peak usage of the heap pools, so {@link #measurePeakHeap()} reports the peak of the ingest.
+     */
+    static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return Sum of the peak usage of the heap pools since the last reset
+     */
+    static long measurePeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    void setIngestFigures(long ingestNanos, long peakHeapBytes) {
+        this.ingestNanos = ingestNanos;
+        this.peakHeapBytes = peakHeapBytes;
+    }
+
+    /**
+     * Prints record count, group sizes, ingest time and peak heap.
+     */
+    public void printSummary() {
+        double seconds = ingestNanos / 1e9;
+        System.out.println(String.format("🗂️ Indexed %d responses in %.2fs (%.0f records/sec), peak heap %.1f MB",
+                responses.size(), seconds, seconds > 0 ? responses.size() / seconds : 0.0,
+                peakHeapBytes / (1024.0 * 1024.0)));
+        System.out.println(String.format("  - %d prompts, %d categories, %d phases, %d users, %d time buckets of %ds",
+                byPrompt.size(), byCategory.size(), byPhase.size(), byUser.size(), byTimeBucket.size(),
+                bucketMillis / 1000));
+    }
+
+    // ========== Getters ==========
+
+    public int size() {
+        return responses.size();
+    }
+
+    public List<ResponseMetadata> getResponses() {
+        return Collections.unmodifiableList(responses);
+    }
+
+    public Map<String, List<ResponseMetadata>> getByPrompt() {
+        return bySymbol(prompts, byPrompt);
+    }
+
+    public Map<String, List<ResponseMetadata>> getByCategory() {
+        return bySymbol(categories, byCategory);
+    }
+
+    public Map<String, List<ResponseMetadata>> getByPhase() {
+        return bySymbol(phases, byPhase);
+    }
+
+    public Map<Long, List<ResponseMetadata>> getByUser() {
+        Map<Long, List<ResponseMetadata>> grouped = new LinkedHashMap<>();
+        for (int id = 0; id < byUser.size(); id++) {
+            grouped.put(users.key(id), Collections.unmodifiableList(byUser.get(id)));
+        }
+        return Collections.unmodifiableMap(grouped);
+    }
+
+    /**
+     * @return Responses by time bucket, keyed by the bucket start (epoch millis), in time order
+     */
+    public NavigableMap<Long, List<ResponseMetadata>> getByTimeBucket() {
+        NavigableMap<Long, List<ResponseMetadata>> grouped = new TreeMap<>();
+        for (int id = 0; id < byTimeBucket.size(); id++) {
+            grouped.put(timeBuckets.key(id), Collections.unmodifiableList(byTimeBucket.get(id)));
+        }
+        return Collections.unmodifiableNavigableMap(grouped);
+    }
+
+    private static Map<String, List<ResponseMetadata>> bySymbol(SymbolTable symbols, List<List<ResponseMetadata>> groups) {
+        Map<String, List<ResponseMetadata>> grouped = new LinkedHashMap<>();
+        for (int id = 0; id < groups.size(); id++) {
+            grouped.put(symbols.symbol(id), Collections.unmodifiableList(groups.get(id)));
+        }
+        return Collections.unmodifiableMap(grouped);
+    }
+
+    /**
+     * @return Responses of a prompt id (see {@link #getPromptSymbols()})
+     */
+    public List<ResponseMetadata> getPromptGroup(int promptId) {
+        return Collections.unmodifiableList(byPrompt.get(promptId));
+    }
+
+    /**
+     * @return Prompt id of a record (position in {@link #getResponses()}), {@link SymbolTable#NONE} if null
+     */
+    public int promptIdAt(int row) {
+        Objects.checkIndex(row, responses.size());
+        return promptIds[row];
+    }
+
+    public int categoryIdAt(int row) {
+        Objects.checkIndex(row, responses.size());
+        return categoryIds[row];
+    }
+
+    public int phaseIdAt(int row) {
+        Objects.checkIndex(row, responses.size());
+        return phaseIds[row];
+    }
+
+    public SymbolTable getPromptSymbols() {
+        return prompts;
+    }
+
+    public SymbolTable getCategorySymbols() {
+        return categories;
+    }
+
+    public SymbolTable getPhaseSymbols() {
+        return phases;
+    }
+
+    public SymbolTable getTruncationReasonSymbols() {
+        return truncationReasons;
+    }
+
+    /**
+     * @return Number of truncated responses per truncation reason
+     */
+    public Map<String, Long> getTruncationReasonCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (int id = 0; id < truncationReasons.size(); id++) {
+            if (id < truncationsByReason.length && truncationsByReason[id] > 0) {
+                counts.put(truncationReasons.symbol(id), truncationsByReason[id]);
+            }
+        }
+        return counts;
+    }
+
+    public long getTruncatedCount() {
+        return truncatedCount;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public long getIngestNanos() {
+        return ingestNanos;
+    }
+
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+}
@@ -4,36 +4,60 @@ import static io.gatling.javaapi.core.CoreDsl.*;
 import static io.gatling.javaapi.http.HttpDsl.*;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.concurrent.TimeUnit;
 
 import io.gatling.javaapi.core.*;
 import io.gatling.javaapi.http.*;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import ssellm.capacity.CapacitySearch;
+import ssellm.config.InjectionPlan;
+import ssellm.config.WorkloadConfig;
+import ssellm.metrics.LatencyRecorder;
+import ssellm.mock.MockSseServer;
 import ssellm.models.ResponseMetadata;
+import ssellm.recording.AsyncRecordWriter;
+import ssellm.streaming.ChatCompletionChunkParser;
+import ssellm.streaming.ResponseAccumulator;
+import ssellm.streaming.TokenTimeline;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 public class SSELLM extends Simulation {
 
-    String api_key = System.getenv("api_key");
+    // Workload: endpoint, models and injection phases (workload.yaml, or -Dworkload=<file>)
+    WorkloadConfig workload = loadWorkload();
+    InjectionPlan injectionPlan = new InjectionPlan(workload);
+
+    String api_key = System.getenv(workload.endpoint.apiKeyEnv);
     Path ruta = Path.of("target/sse_chunks.txt");
     Path rutaRespuesta = Path.of("target/llm_response.txt");
     Path rutaMetadata = Path.of("target/responses_metadata.jsonl");
-    FeederBuilder<String> promptFeeder = csv("prompts.csv").circular();
+    FeederBuilder<String> promptFeeder = csv(workload.feeder).circular();
 
     // ObjectMapper for JSON serialization
     ObjectMapper objectMapper = new ObjectMapper()
             .registerModule(new JavaTimeModule())
             .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
-    // Test start time for phase detection
-    long testStartTime = System.currentTimeMillis();
-    long rampDuration = 10000; // 10 seconds ramp phase
+    // One chunk parser per Gatling thread (parsers are reusable but not thread-safe)
+    ThreadLocal<ChatCompletionChunkParser> chunkParser = ThreadLocal.withInitial(ChatCompletionChunkParser::new);
+
+    // Injection start (monotonic clock), set in before(); users are labelled with the phase that injected them
+    volatile long injectionStartNanos = System.nanoTime();
+
+    private static WorkloadConfig loadWorkload() {
+        try {
+            WorkloadConfig config = WorkloadConfig.load();
+            System.out.println("⚙️ Workload: " + config);
+            return config;
+        } catch (IOException e) {
+            System.err.println("❌ Error loading workload: " + e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
 
     /**
      * Get timeout in milliseconds based on prompt category
@@ -69,130 +93,148 @@ public class SSELLM extends Simulation {
         }
     }
 
-    // Initialize files at simulation start
+    // Background writer: Gatling threads only enqueue records, disk I/O happens on the writer thread
+    AsyncRecordWriter recorder = new AsyncRecordWriter(65_536, 64 * 1024, 200);
+    AsyncRecordWriter.Output chunksOutput;
+    AsyncRecordWriter.Output responseOutput;
+    AsyncRecordWriter.Output metadataOutput;
+
+    // Live TTFT / latency / inter-token histograms, dumped to an interval log every N seconds
+    Path rutaLatencyLog = Path.of("target/latency_intervals.hlog");
+    long latencyLogIntervalSec = Long.getLong("latencyLogIntervalSec", 5);
+    LatencyRecorder latencyRecorder;
+
+    // Initialize files at simulation start (each output is truncated when opened)
     {
         try {
-            Files.createDirectories(rutaRespuesta.getParent());
-            // Clear response file at start of each execution
-            Files.writeString(rutaRespuesta, "", StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            // Clear chunks file
-            Files.writeString(ruta, "", StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            // Clear metadata file (JSONL format)
-            Files.writeString(rutaMetadata, "", StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            responseOutput = recorder.open(rutaRespuesta);
+            chunksOutput = recorder.open(ruta);
+            metadataOutput = recorder.open(rutaMetadata); // JSONL format
+            latencyRecorder = new LatencyRecorder(rutaLatencyLog, TimeUnit.SECONDS.toMillis(latencyLogIntervalSec));
         } catch (IOException e) {
             System.err.println("❌ Error initializing files: " + e.getMessage());
-            e.printStackTrace();
+            recorder.close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Capacity-search mode (capacity_search section): admits users at the rate of the current level,
+    // evaluated from the live latency histograms
+    CapacitySearch capacitySearch = workload.capacitySearch != null
+            ? new CapacitySearch(workload, latencyRecorder, Path.of("target/capacity_curve.json"))
+            : null;
+
+    // Per-chunk and per-delta console logging (-Dsse.debug=true); off by default, it runs on the event loop
+    boolean debugChunks = Boolean.getBoolean("sse.debug");
+
+    // Live consistency snapshots while the test runs (-Dlive.analysis=true), fed in-process
+    TailingAnalyzer liveAnalyzer = Boolean.getBoolean("live.analysis")
+            ? new TailingAnalyzer(Path.of("target/consistency_live.json"),
+                    TimeUnit.SECONDS.toMillis(Long.getLong("live.intervalSec", 10)),
+                    Integer.getInteger("live.keywordWindow", 20))
+            : null;
+
+    // Offline mode (base_url: mock, or -Dmock=true): stream from an embedded MockSseServer instead of OpenAI
+    boolean mockEnabled = workload.endpoint.isMock() || Boolean.getBoolean("mock");
+    MockSseServer mockServer;
+    String baseUrl;
+
+    {
+        if (mockEnabled) {
+            try {
+                mockServer = MockSseServer.fromSystemProperties(Integer.getInteger("mock.port", 0)).start();
+            } catch (IOException e) {
+                System.err.println("❌ Error starting mock server: " + e.getMessage());
+                throw new UncheckedIOException(e);
+            }
+            baseUrl = mockServer.getBaseUrl() + "/chat";
+        } else {
+            baseUrl = workload.endpoint.baseUrl;
         }
     }
 
     HttpProtocolBuilder httpProtocol = http
-            .baseUrl("https://api.openai.com/v1/chat")
+            .baseUrl(baseUrl)
             .sseUnmatchedInboundMessageBufferSize(100);
 
     ScenarioBuilder prompt = scenario("Scenario")
+            // Once the search has converged the run ends at the knee instead of injecting until max levels
+            .exec(stopLoadGeneratorIf("capacity search finished",
+                    session -> capacitySearch != null && capacitySearch.isFinished()))
+            .exitHereIf(session -> capacitySearch != null && !capacitySearch.admit())
             .feed(promptFeeder)
+            // Label the user with its injection phase, then anchor all timings at request dispatch
+            .exec(session -> session
+                    .set("testPhase", capacitySearch != null
+                            ? capacitySearch.currentPhase()
+                            : injectionPlan.phaseAt(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - injectionStartNanos)))
+                    .set("model", workload.modelFor(session.getString("category")))
+                    .set(ResponseAccumulator.SESSION_KEY,
+                            new ResponseAccumulator(System.nanoTime(), System.currentTimeMillis(),
+                                    Integer.parseInt(session.getString("max_tokens")))))
             .exec(
                     sse("Connect to LLM - #{category}")
-                            .post("/completions")
+                            .post(workload.endpoint.path)
                             .header("Authorization", "Bearer " + api_key)
                             .header("Content-Type", "application/json")
+                            .header(MockSseServer.CATEGORY_HEADER, "#{category}")
                             .body(StringBody(
-                                    "{\"model\": \"gpt-3.5-turbo\"," +
+                                    "{\"model\": \"#{model}\"," +
                                             "\"stream\":true," +
                                             "\"max_tokens\":#{max_tokens}," +
                                             "\"temperature\":#{temperature}," +
                                             "\"messages\":[{\"role\":\"user\",\"content\":\"#{prompt}\"}]}"))
                             .asJson())
+            // The connect action completes once the stream is open (response headers received)
+            .exec(session -> {
+                ResponseAccumulator accumulator = session.get(ResponseAccumulator.SESSION_KEY);
+                accumulator.onStreamOpen(System.nanoTime());
+                return session;
+            })
             .asLongAs("#{stop.isUndefined()}").on(
                     sse.processUnmatchedMessages((messages, session) -> {
-                        StringBuilder responseContent = new StringBuilder();
-                        final String[] chunkIdHolder = new String[1]; // Array to allow modification in lambda
-                        final int[] chunkCounter = new int[1]; // Counter for total chunks
-
-                        // Initialize timing variables
-                        long requestStartTime = session.contains("requestStartTime")
-                        
-                            ? session.getLong("requestStartTime")
-                            : System.currentTimeMillis();
-
-                        if (!session.contains("requestStartTime")) {
-                            session = session.set("requestStartTime", requestStartTime);
-                        }
-
-                        // Track time to first token
-                        Long ttft = session.contains("ttft") ? session.getLong("ttft") : null;
-
-                        // Get previous accumulated content from session
-                        if (session.contains("llmResponse")) {
-                            responseContent.append(session.getString("llmResponse"));
-                        }
-
-                        // Get previous chunk ID if exists
-                        if (session.contains("chunkId")) {
-                            chunkIdHolder[0] = session.getString("chunkId");
-                        }
-
-                        // Get previous chunk counter
-                        if (session.contains("chunkCount")) {
-                            chunkCounter[0] = session.getInt("chunkCount");
-                        }
-
-                        final long[] ttftHolder = new long[1];
-                        if (ttft != null) {
-                            ttftHolder[0] = ttft;
+                        final ResponseAccumulator accumulator = session.get(ResponseAccumulator.SESSION_KEY);
+                        StringBuilder responseContent = accumulator.content();
+                        final long pollNanos = System.nanoTime();
+                        if (!messages.isEmpty()) {
+                            accumulator.onFrame(accumulator.arrivalNanos(messages.get(0).timestamp(), pollNanos));
                         }
 
                         messages.forEach(message -> {
                             String data = message.message();
                             if (data != null && !data.isEmpty() && !data.contains("[DONE]")) {
-                                System.out.println("🔹 SSE chunk: " + data);
-                                chunkCounter[0]++; // Increment chunk counter
-
-                                // Calculate TTFT on first content chunk
-                                if (ttftHolder[0] == 0) {
-                                    ttftHolder[0] = System.currentTimeMillis() - requestStartTime;
+                                if (debugChunks) {
+                                    System.out.println("🔹 SSE chunk: " + data);
                                 }
+                                accumulator.onChunk(); // Increment chunk counter
 
                                 // Save original chunk to file
-                                try {
-                                    Files.createDirectories(ruta.getParent());
-                                } catch (IOException e) {
-                                    e.printStackTrace();
-                                }
-                                try {
-                                    Files.writeString(ruta, "🔹 SSE chunk: " + data + System.lineSeparator(),
-                                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-                                } catch (IOException e) {
-                                    e.printStackTrace();
-                                }
+                                chunksOutput.append("🔹 SSE chunk: " + data + System.lineSeparator());
 
-                                // Extract content from chunk
+                                // Extract id and delta content straight from the raw message
+                                int contentStart = responseContent.length();
                                 try {
-                                    JsonObject chunkJson = JsonParser.parseString(data).getAsJsonObject();
-                                    if (chunkJson.has("data")) {
-                                        String innerData = chunkJson.get("data").getAsString();
-                                        JsonObject innerJson = JsonParser.parseString(innerData).getAsJsonObject();
-
+                                    ChatCompletionChunkParser parser = chunkParser.get();
+                                    int appended = parser.parse(data, responseContent, !accumulator.hasChunkId());
+                                    if (appended == ChatCompletionChunkParser.NO_DATA) {
+                                        System.out.println("⚠️ No 'data' field in chunk");
+                                    } else {
                                         // Extract chunk ID (only first time)
-                                        if (innerJson.has("id") && chunkIdHolder[0] == null) {
-                                            chunkIdHolder[0] = innerJson.get("id").getAsString();
+                                        if (parser.id() != null) {
+                                            accumulator.setChunkId(parser.id());
                                         }
-
-                                        if (innerJson.has("choices") && innerJson.getAsJsonArray("choices").size() > 0) {
-                                            JsonObject choice = innerJson.getAsJsonArray("choices").get(0).getAsJsonObject();
-                                            if (choice.has("delta")) {
-                                                JsonObject delta = choice.getAsJsonObject("delta");
-                                                if (delta.has("content")) {
-                                                    String content = delta.get("content").getAsString();
-                                                    responseContent.append(content);
-                                                    System.out.println("✅ Content extracted: " + content);
-                                                }
-                                            }
+                                        if (appended > 0) {
+                                            // TTFT and inter-token latency are tracked on non-empty content deltas,
+                                            // stamped with their arrival time rather than this poll's
+                                            accumulator.onContentDelta(accumulator.arrivalNanos(message.timestamp(), pollNanos));
+                                        }
+                                        if (debugChunks && parser.hasContent()) {
+                                            System.out.println("✅ Content extracted: "
+                                                    + responseContent.subSequence(contentStart, responseContent.length()));
                                         }
-                                    } else {
-                                        System.out.println("⚠️ No 'data' field in chunk");
                                     }
                                 } catch (Exception e) {
+                                    responseContent.setLength(contentStart); // drop partial content of a malformed chunk
                                     System.err.println("❌ Error parsing chunk: " + e.getMessage());
                                     e.printStackTrace();
                                 }
@@ -202,29 +244,23 @@ public class SSELLM extends Simulation {
                         boolean done = messages.stream()
                                 .anyMatch(m -> m.message().contains("[DONE]"));
 
-                        Session updatedSession = session
-                            .set("llmResponse", responseContent.toString())
-                            .set("chunkCount", chunkCounter[0])
-                            .set("ttft", ttftHolder[0]);
-
-                        // Only update chunkId in session if one was found
-                        if (chunkIdHolder[0] != null) {
-                            updatedSession = updatedSession.set("chunkId", chunkIdHolder[0]);
-                        }
-
                         // Sprint 2: Dynamic timeout detection based on category
-                        long currentTime = System.currentTimeMillis();
-                        long elapsed = currentTime - requestStartTime;
+                        long currentNanos = System.nanoTime();
+                        long elapsedNanos = accumulator.elapsedNanos(currentNanos);
+                        long elapsed = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
 
                         // Get category BEFORE timeout check (needed for dynamic timeout)
-                        String category = updatedSession.getString("category");
+                        String category = session.getString("category");
                         long categoryTimeout = getTimeoutForCategory(category);
-                        boolean timedOut = elapsed > categoryTimeout;
+                        boolean timedOut = elapsedNanos > TimeUnit.MILLISECONDS.toNanos(categoryTimeout);
 
                         // If done or timeout, save complete response
                         if (done || timedOut) {
                             String fullResponse = responseContent.toString();
-                            long responseTimeMs = currentTime - requestStartTime;
+                            long responseTimeMs = elapsed;
+                            long ttftNanos = accumulator.getTimeToFirstTokenNanos();
+                            long ttftMs = TimeUnit.NANOSECONDS.toMillis(ttftNanos);
+                            TokenTimeline.Summary itl = accumulator.getTimeline().summarize(currentNanos);
 
                             System.out.println("\n📝 Complete LLM Response: " + fullResponse);
                             if (timedOut) {
@@ -232,18 +268,28 @@ public class SSELLM extends Simulation {
                             }
 
                             // Get information from session
-                            String sessionId = updatedSession.userId() + "-" + updatedSession.scenario();
-                            String prompt = updatedSession.getString("prompt");
-                            int maxTokens = Integer.parseInt(updatedSession.getString("max_tokens"));
-                            double temperature = Double.parseDouble(updatedSession.getString("temperature"));
-                            String storedChunkId = updatedSession.contains("chunkId") ? updatedSession.getString("chunkId") : "N/A";
-
-                            // Determine test phase (RAMP or STEADY)
-                            long timeSinceTestStart = currentTime - testStartTime;
-                            String testPhase = timeSinceTestStart < rampDuration ? "RAMP" : "STEADY";
+                            String sessionId = session.userId() + "-" + session.scenario();
+                            String prompt = session.getString("prompt");
+                            int maxTokens = Integer.parseInt(session.getString("max_tokens"));
+                            double temperature = Double.parseDouble(session.getString("temperature"));
+                            String storedChunkId = accumulator.hasChunkId() ? accumulator.getChunkId() : "N/A";
+
+                            // Phase of the injection step that started this user
+                            String testPhase = session.getString("testPhase");
+
+                            // Feed the live histograms
+                            if (ttftNanos > 0) {
+                                latencyRecorder.record(LatencyRecorder.Metric.TTFT, category, testPhase, ttftNanos);
+                            }
+                            latencyRecorder.record(LatencyRecorder.Metric.LATENCY, category, testPhase, elapsedNanos);
+                            accumulator.getTimeline().forEachGap(
+                                    latencyRecorder.series(LatencyRecorder.Metric.ITL, category, testPhase)::record);
 
                             // Detect truncation
                             boolean truncated = timedOut || !done;
+                            if (capacitySearch != null) {
+                                capacitySearch.record(truncated);
+                            }
                             String truncationReason = "NONE";
                             if (timedOut) {
                                 truncationReason = "TIMEOUT";
@@ -253,7 +299,7 @@ public class SSELLM extends Simulation {
                             ResponseMetadata metadata = ResponseMetadata.builder()
                                 .sessionId(sessionId)
                                 .chunkId(storedChunkId)
-                                .userId(updatedSession.userId())
+                                .userId(session.userId())
                                 .category(category)
                                 .prompt(prompt)
                                 .maxTokens(maxTokens)
@@ -261,8 +307,17 @@ public class SSELLM extends Simulation {
                                 .response(fullResponse)
                                 .timestamp(Instant.now())
                                 .responseTimeMs(responseTimeMs)
-                                .ttftMs(ttftHolder[0])
-                                .totalChunks(chunkCounter[0])
+                                .ttfbMs(TimeUnit.NANOSECONDS.toMillis(accumulator.getTimeToFirstByteNanos()))
+                                .ttftMs(ttftMs)
+                                .connectUs(TimeUnit.NANOSECONDS.toMicros(accumulator.getConnectNanos()))
+                                .responseTimeUs(TimeUnit.NANOSECONDS.toMicros(elapsedNanos))
+                                .totalChunks(accumulator.getChunkCount())
+                                .itlP50Ms(itl.p50Ms)
+                                .itlP90Ms(itl.p90Ms)
+                                .itlP99Ms(itl.p99Ms)
+                                .itlMaxMs(itl.maxMs)
+                                .tokensPerSecond(itl.tokensPerSecond)
+                                .longestGapMs(itl.longestGapMs)
                                 .truncated(truncated)
                                 .truncationReason(truncationReason)
                                 .testPhase(testPhase)
@@ -272,9 +327,14 @@ public class SSELLM extends Simulation {
                             // Save structured metadata as JSONL
                             try {
                                 String jsonLine = objectMapper.writeValueAsString(metadata);
-                                Files.writeString(rutaMetadata, jsonLine + System.lineSeparator(),
-                                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-                                System.out.println("💾 Metadata saved: " + metadata);
+                                if (metadataOutput.append(jsonLine + System.lineSeparator())) {
+                                    System.out.println("💾 Metadata saved: " + metadata);
+                                } else {
+                                    System.err.println("❌ Metadata dropped (recorder queue full): " + metadata);
+                                }
+                                if (liveAnalyzer != null) {
+                                    liveAnalyzer.offer(metadata);
+                                }
                             } catch (IOException e) {
                                 System.err.println("❌ Error saving metadata: " + e.getMessage());
                                 e.printStackTrace();
@@ -289,8 +349,12 @@ public class SSELLM extends Simulation {
                             formattedResponse.append("Category: ").append(category).append("\n");
                             formattedResponse.append("Prompt: ").append(prompt).append("\n");
                             formattedResponse.append("Response Time (ms): ").append(responseTimeMs).append("\n");
-                            formattedResponse.append("TTFT (ms): ").append(ttftHolder[0]).append("\n");
-                            formattedResponse.append("Total Chunks: ").append(chunkCounter[0]).append("\n");
+                            formattedResponse.append("TTFT (ms): ").append(ttftMs).append("\n");
+                            formattedResponse.append("Total Chunks: ").append(accumulator.getChunkCount()).append("\n");
+                            formattedResponse.append(String.format("ITL p50/p90/p99/max (ms): %.1f/%.1f/%.1f/%.1f%n",
+                                    itl.p50Ms, itl.p90Ms, itl.p99Ms, itl.maxMs));
+                            formattedResponse.append(String.format("Tokens/s: %.1f, Longest Gap (ms): %.1f%n",
+                                    itl.tokensPerSecond, itl.longestGapMs));
                             formattedResponse.append("Test Phase: ").append(testPhase).append("\n");
                             formattedResponse.append("Truncated: ").append(truncated).append("\n");
                             if (truncated) {
@@ -300,27 +364,58 @@ public class SSELLM extends Simulation {
                             formattedResponse.append("Response: ").append(fullResponse).append("\n");
                             formattedResponse.append("================================================================================\n\n");
 
-                            try {
-                                Files.createDirectories(rutaRespuesta.getParent());
-                                Files.writeString(rutaRespuesta, formattedResponse.toString(),
-                                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                            if (responseOutput.append(formattedResponse.toString())) {
                                 System.out.println("💾 Response saved to: " + rutaRespuesta);
-                            } catch (IOException e) {
-                                System.err.println("❌ Error saving response: " + e.getMessage());
-                                e.printStackTrace();
+                            } else {
+                                System.err.println("❌ Response dropped (recorder queue full)");
                             }
 
-                            return updatedSession.set("stop", true);
+                            return session.set("stop", true);
                         }
 
-                        return updatedSession;
+                        return session;
                     }))
             .exec(sse("close").close());
 
     {
-        setUp(prompt.injectOpen(
-            rampUsers(10).during(10), // Ramp up to 10 users over 10 seconds
-            constantUsersPerSec(10).during(60)) // Maintain 10 users per second for 60 seconds
-            ).protocols(httpProtocol);
+        setUp(injectionPlan.inject(prompt)).protocols(httpProtocol);
+    }
+
+    @Override
+    public void before() {
+        injectionStartNanos = System.nanoTime();
+        System.out.println("⚙️ Injection plan: " + injectionPlan.getWindows());
+        if (capacitySearch != null) {
+            capacitySearch.start();
+        }
+        if (liveAnalyzer != null) {
+            liveAnalyzer.start();
+        }
+    }
+
+    @Override
+    public void after() {
+        if (capacitySearch != null) {
+            capacitySearch.close();
+        }
+        if (liveAnalyzer != null) {
+            liveAnalyzer.close();
+        }
+
+        // Write the last latency interval and print the run totals
+        latencyRecorder.close();
+        latencyRecorder.printSummary();
+
+        // Drain pending records and close the output files
+        recorder.close();
+        System.out.println("💾 Recorder stats: " + recorder);
+        if (recorder.getDroppedCount() > 0) {
+            System.err.println("⚠️ " + recorder.getDroppedCount() + " records were dropped because the recorder queue was full");
+        }
+
+        if (mockServer != null) {
+            mockServer.close();
+            System.out.println("🧪 Mock server stats: " + mockServer);
+        }
     }
 }
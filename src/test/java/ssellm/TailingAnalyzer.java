@@ -0,0 +1,505 @@
+package ssellm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ssellm.analyzers.AdvancedMetrics;
+import ssellm.analyzers.TextFeatures;
+import ssellm.models.ResponseMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live consistency analysis while the load test runs.
+ *
+ * Responses come from the tail of responses_metadata.jsonl ({@link #follow(Path)}) or from an in-process
+ * queue fed by the simulation ({@link #offer(ResponseMetadata)}). Every tick ingests only the records that
+ * arrived since the previous one and updates running aggregates: truncation rate and reasons, latency per
+ * category and per test phase (Welford) and, per prompt, the keyword Jaccard similarity of each new
+ * response against the last {@code keywordWindow} responses to the same prompt. A snapshot with the
+ * cumulative figures and those of the last tick is then written to a JSON file, so degradation shows up
+ * while a soak test is still running.
+ *
+ * The work per tick is proportional to the new records (plus the number of prompts and categories for the
+ * snapshot); the file is never re-read. All aggregates are owned by the single analysis thread.
+ */
+public class TailingAnalyzer implements AutoCloseable {
+
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+    private static final int QUEUE_CAPACITY = 65_536;
+    private static final double LOW_SIMILARITY = 0.6;
+
+    private final Path snapshotFile;
+    private final long intervalMs;
+    private final int keywordWindow;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader metadataReader;
+    private final BlockingQueue<ResponseMetadata> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+    private final TextFeatures.Scanner scanner = new TextFeatures.Scanner();
+
+    // Lifecycle, guarded by this
+    private boolean started = false;
+    private boolean closed = false;
+
+    // File source (analysis thread only)
+    private Path followedFile;
+    private FileChannel channel;
+    private long filePosition = 0;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+    private byte[] pendingLine = new byte[1024];
+    private int pendingLength = 0;
+    private long lineNumber = 0;
+
+    // Aggregates (analysis thread only)
+    private final long startNanos = System.nanoTime();
+    private long lastTickNanos = startNanos;
+    private Group overall = new Group();
+    private Map<String, Group> byCategory = new TreeMap<>();
+    private Map<String, Group> byPhase = new LinkedHashMap<>();
+    private Map<String, PromptKeywords> byPrompt = new LinkedHashMap<>();
+    private Map<String, Long> truncationReasons = new HashMap<>();
+    private long parseErrors = 0;
+
+    /**
+     * @param snapshotFile  JSON file rewritten at every tick
+     * @param intervalMs    Time between ticks
+     * @param keywordWindow Number of previous responses per prompt each new response is compared with
+     */
+    public TailingAnalyzer(Path snapshotFile, long intervalMs, int keywordWindow) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("intervalMs must be positive: " + intervalMs);
+        }
+        if (keywordWindow <= 0) {
+            throw new IllegalArgumentException("keywordWindow must be positive: " + keywordWindow);
+        }
+        this.snapshotFile = snapshotFile;
+        this.intervalMs = intervalMs;
+        this.keywordWindow = keywordWindow;
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        this.metadataReader = objectMapper.readerFor(ResponseMetadata.class);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tailing-analyzer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Follows a JSONL file from its beginning; records appended later are picked up at the next tick.
+     * The file may not exist yet.
+     */
+    public synchronized void follow(Path metadataFile) {
+        this.followedFile = metadataFile;
+    }
+
+    /**
+     * Queues a response for the next tick (in-process source, safe to call from any thread).
+     *
+     * @return false if the queue is full and the response was dropped
+     */
+    public boolean offer(ResponseMetadata response) {
+        if (queue.offer(response)) {
+            return true;
+        }
+        droppedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Starts the periodic ticks. Calls after the first one, or after {@link #close()}, do nothing.
+     */
+    public synchronized void start() {
+        if (started || closed) {
+            return;
+        }
+        started = true;
+        System.out.println("📡 Live analysis started: snapshot every " + intervalMs + "ms to " + snapshotFile
+                + (followedFile != null ? ", following " + followedFile : ""));
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                // An exception would cancel the periodic task
+                System.err.println("❌ Live analysis error: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the ticks and, if the analyzer was started, writes a last snapshot with everything received so
+     * far. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        boolean wasStarted;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            wasStarted = started;
+        }
+        // No interrupt: it would close the file channel in the middle of a tick
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(intervalMs + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (wasStarted) {
+            tick();
+        }
+        synchronized (this) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("⚠️ Error closing " + followedFile + ": " + e.getMessage());
+                }
+            }
+        }
+        if (droppedCount.get() > 0) {
+            System.err.println("⚠️ " + droppedCount.get() + " responses were not analyzed live (queue full)");
+        }
+    }
+
+    /**
+     * Ingests the new records and writes a snapshot.
+     */
+    public synchronized Map<String, Object> tick() {
+        long now = System.nanoTime();
+        ResponseMetadata queued;
+        while ((queued = queue.poll()) != null) {
+            ingest(queued);
+        }
+        if (followedFile != null) {
+            try {
+                readNewLines();
+            } catch (IOException e) {
+                System.err.println("⚠️ Error reading " + followedFile + ": " + e.getMessage());
+            }
+        }
+
+        Map<String, Object> snapshot = buildSnapshot(now);
+        writeSnapshot(snapshot);
+        resetWindows();
+        lastTickNanos = now;
+        return snapshot;
+    }
+
+    // ========== File source ==========
+
+    private void readNewLines() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            if (!Files.exists(followedFile)) {
+                return;
+            }
+            channel = FileChannel.open(followedFile, StandardOpenOption.READ);
+        }
+        if (channel.size() < filePosition) {
+            // Rewritten by a new run: start over
+            System.out.println("📡 " + followedFile + " was truncated, restarting the live analysis");
+            resetAggregates();
+            filePosition = 0;
+            pendingLength = 0;
+            lineNumber = 0;
+        }
+
+        while (true) {
+            readBuffer.clear();
+            int read = channel.read(readBuffer, filePosition);
+            if (read <= 0) {
+                return;
+            }
+            filePosition += read;
+            byte[] bytes = readBuffer.array();
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    lineNumber++;
+                    parseLine();
+                    pendingLength = 0;
+                } else {
+                    if (pendingLength == pendingLine.length) {
+                        pendingLine = Arrays.copyOf(pendingLine, pendingLength * 2);
+                    }
+                    pendingLine[pendingLength++] = b;
+                }
+            }
+            // A line without its newline stays pending until the writer completes it
+        }
+    }
+
+    private void parseLine() {
+        int length = pendingLength;
+        while (length > 0 && (pendingLine[length - 1] == '\r' || pendingLine[length - 1] == ' ')) {
+            length--;
+        }
+        if (length == 0) {
+            return;
+        }
+        try {
+            ingest(metadataReader.readValue(pendingLine, 0, length));
+        } catch (IOException e) {
+            // One record per line: a bad line is skipped without losing the following ones
+            parseErrors++;
+            System.err.println("⚠️ Skipping unparseable record at line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    // ========== Aggregates ==========
+
+    private void ingest(ResponseMetadata response) {
+        overall.add(response);
+        if (response.getCategory() != null) {
+            byCategory.computeIfAbsent(response.getCategory(), c -> new Group()).add(response);
+        }
+        if (response.getTestPhase() != null) {
+            byPhase.computeIfAbsent(response.getTestPhase(), p -> new Group()).add(response);
+        }
+        if (response.isTruncated()) {
+            truncationReasons.merge(String.valueOf(response.getTruncationReason()), 1L, Long::sum);
+        }
+        if (response.getPrompt() != null && response.getResponse() != null) {
+            byPrompt.computeIfAbsent(response.getPrompt(), p -> new PromptKeywords())
+                    .add(scanner.scan(response.getResponse()).getKeywords(), keywordWindow);
+        }
+    }
+
+    private void resetWindows() {
+        overall.resetWindow();
+        byCategory.values().forEach(Group::resetWindow);
+        byPhase.values().forEach(Group::resetWindow);
+        byPrompt.values().forEach(PromptKeywords::resetWindow);
+    }
+
+    private void resetAggregates() {
+        overall = new Group();
+        byCategory = new TreeMap<>();
+        byPhase = new LinkedHashMap<>();
+        byPrompt = new LinkedHashMap<>();
+        truncationReasons = new HashMap<>();
+        parseErrors = 0;
+    }
+
+    /**
+     * Counts, truncations and latency of a set of responses, cumulative and for the current tick.
+     */
+    private static final class Group {
+        private final ResponseAggregator.RunningStats latency = new ResponseAggregator.RunningStats();
+        private long truncated;
+        private long windowCount;
+        private long windowTruncated;
+        private double windowLatencySum;
+
+        private void add(ResponseMetadata response) {
+            latency.add(response.getResponseTimeMs());
+            windowCount++;
+            windowLatencySum += response.getResponseTimeMs();
+            if (response.isTruncated()) {
+                truncated++;
+                windowTruncated++;
+            }
+        }
+
+        private double truncationRate() {
+            return latency.getCount() > 0 ? (double) truncated / latency.getCount() : 0.0;
+        }
+
+        private Map<String, Object> toMap() {
+            AdvancedMetrics.LatencyStats stats = latency.toLatencyStats();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("response_count", latency.getCount());
+            map.put("truncation_rate", truncationRate());
+            map.put("avg_response_time_ms", stats.getAvg());
+            map.put("std_dev_response_time_ms", stats.getStdDev());
+            map.put("min_response_time_ms", stats.getMin());
+            map.put("max_response_time_ms", stats.getMax());
+            map.put("window_response_count", windowCount);
+            map.put("window_truncation_rate", windowCount > 0 ? (double) windowTruncated / windowCount : 0.0);
+            map.put("window_avg_response_time_ms", windowCount > 0 ? windowLatencySum / windowCount : 0.0);
+            return map;
+        }
+
+        private void resetWindow() {
+            windowCount = 0;
+            windowTruncated = 0;
+            windowLatencySum = 0;
+        }
+    }
+
+    /**
+     * Keyword sets of the latest responses to a prompt and the running mean of the Jaccard similarity
+     * of each response against the ones before it.
+     */
+    private static final class PromptKeywords {
+        private final ArrayDeque<Set<String>> recent = new ArrayDeque<>();
+        private long responses;
+        private double similaritySum;
+        private long comparisons;
+        private double windowSimilaritySum;
+        private long windowComparisons;
+
+        private void add(Set<String> keywords, int window) {
+            responses++;
+            for (Set<String> previous : recent) {
+                double similarity = ConsistencyAnalyzer.jaccardSimilarity(keywords, previous);
+                similaritySum += similarity;
+                windowSimilaritySum += similarity;
+                comparisons++;
+                windowComparisons++;
+            }
+            recent.addLast(keywords);
+            if (recent.size() > window) {
+                recent.removeFirst();
+            }
+        }
+
+        private double avgSimilarity() {
+            return comparisons > 0 ? similaritySum / comparisons : 1.0;
+        }
+
+        private void resetWindow() {
+            windowSimilaritySum = 0;
+            windowComparisons = 0;
+        }
+    }
+
+    // ========== Snapshot ==========
+
+    private Map<String, Object> buildSnapshot(long now) {
+        double tickSeconds = (now - lastTickNanos) / 1e9;
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("snapshot_timestamp", Instant.now().toString());
+        snapshot.put("elapsed_seconds", (now - startNanos) / 1e9);
+        snapshot.put("total_responses", overall.latency.getCount());
+        snapshot.put("new_responses", overall.windowCount);
+        snapshot.put("records_per_second", tickSeconds > 0 ? overall.windowCount / tickSeconds : 0.0);
+        snapshot.put("parse_errors", parseErrors);
+        snapshot.put("dropped_responses", droppedCount.get());
+
+        Map<String, Object> completeness = overall.toMap();
+        completeness.put("score", 1.0 - overall.truncationRate());
+        completeness.put("reasons", new TreeMap<>(truncationReasons));
+        snapshot.put("completeness_analysis", completeness);
+
+        Map<String, Object> categories = new LinkedHashMap<>();
+        byCategory.forEach((category, group) -> categories.put(category, group.toMap()));
+        snapshot.put("category_analysis", categories);
+
+        Map<String, Object> phases = new LinkedHashMap<>();
+        byPhase.forEach((phase, group) -> phases.put(phase, group.toMap()));
+        snapshot.put("phase_analysis", phases);
+
+        Map<String, Object> semantic = buildSemanticSnapshot();
+        snapshot.put("semantic_analysis", semantic);
+
+        System.out.println(String.format("📡 Live: %d responses (+%d), truncation %.1f%% (last tick %.1f%%), avg latency %.0fms, semantic %.3f",
+                overall.latency.getCount(), overall.windowCount, overall.truncationRate() * 100,
+                overall.windowCount > 0 ? 100.0 * overall.windowTruncated / overall.windowCount : 0.0,
+                overall.latency.toLatencyStats().getAvg(),
+                (double) semantic.get("score")));
+        return snapshot;
+    }
+
+    private Map<String, Object> buildSemanticSnapshot() {
+        List<Map<String, Object>> prompts = new ArrayList<>();
+        List<Map<String, Object>> issues = new ArrayList<>();
+        double scoreSum = 0.0;
+        int scored = 0;
+
+        for (Map.Entry<String, PromptKeywords> entry : byPrompt.entrySet()) {
+            PromptKeywords keywords = entry.getValue();
+            String prompt = truncate(entry.getKey(), 60);
+
+            Map<String, Object> promptData = new LinkedHashMap<>();
+            promptData.put("prompt", prompt);
+            promptData.put("response_count", keywords.responses);
+            promptData.put("avg_similarity", keywords.avgSimilarity());
+            promptData.put("window_similarity", keywords.windowComparisons > 0
+                    ? keywords.windowSimilaritySum / keywords.windowComparisons : null);
+            prompts.add(promptData);
+
+            if (keywords.comparisons == 0) continue;
+            scored++;
+            scoreSum += keywords.avgSimilarity();
+            if (keywords.avgSimilarity() < LOW_SIMILARITY) {
+                Map<String, Object> issue = new LinkedHashMap<>();
+                issue.put("prompt", prompt);
+                issue.put("description", "Low semantic similarity between responses");
+                issue.put("severity", keywords.avgSimilarity() < 0.4 ? "high" : "medium");
+                issue.put("similarity_score", keywords.avgSimilarity());
+                issues.add(issue);
+            }
+        }
+
+        Map<String, Object> semantic = new LinkedHashMap<>();
+        semantic.put("score", scored > 0 ? scoreSum / scored : 1.0);
+        semantic.put("keyword_window", keywordWindow);
+        semantic.put("prompts", prompts);
+        semantic.put("issues", issues);
+        return semantic;
+    }
+
+    private void writeSnapshot(Map<String, Object> snapshot) {
+        try {
+            if (snapshotFile.getParent() != null) {
+                Files.createDirectories(snapshotFile.getParent());
+            }
+            // Write then rename, so readers never see a half-written snapshot
+            Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("❌ Error saving live snapshot: " + e.getMessage());
+        }
+    }
+
+    private static String truncate(String str, int maxLength) {
+        if (str == null || str.length() <= maxLength) return str;
+        return str.substring(0, maxLength) + "...";
+    }
+
+    /**
+     * Follows a metadata file until interrupted (Ctrl+C writes a last snapshot).
+     *
+     * Usage: TailingAnalyzer [metadata_file] [interval_seconds] [keyword_window]
+     */
+    public static void main(String[] args) {
+        Path metadataFile = Path.of(args.length > 0 ? args[0] : "target/responses_metadata.jsonl");
+        long intervalSec = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        int keywordWindow = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        TailingAnalyzer analyzer = new TailingAnalyzer(Path.of("target/consistency_live.json"),
+                TimeUnit.SECONDS.toMillis(intervalSec), keywordWindow);
+        analyzer.follow(metadataFile);
+        Runtime.getRuntime().addShutdownHook(new Thread(analyzer::close, "tailing-analyzer-shutdown"));
+        analyzer.start();
+
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
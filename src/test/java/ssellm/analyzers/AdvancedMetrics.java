@@ -1,7 +1,11 @@
 package ssellm.analyzers;
 
 import ssellm.models.ResponseMetadata;
+import ssellm.store.Column;
+import ssellm.store.ColumnarStore;
 
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -102,13 +106,27 @@ public class AdvancedMetrics {
     public static double calculatePercentile(List<Double> values, double percentile) {
         if (values.isEmpty()) return 0.0;
 
-        List<Double> sorted = new ArrayList<>(values);
-        Collections.sort(sorted);
+        // Sort a primitive copy instead of a boxed list
+        double[] sorted = new double[values.size()];
+        int i = 0;
+        for (Double value : values) {
+            sorted[i++] = value;
+        }
+        Arrays.sort(sorted);
+
+        return percentileOfSorted(sorted, percentile);
+    }
+
+    /**
+     * Calculate percentile value over an already sorted array (nearest-rank)
+     */
+    public static double percentileOfSorted(double[] sorted, double percentile) {
+        if (sorted.length == 0) return 0.0;
 
-        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
-        index = Math.max(0, Math.min(index, sorted.size() - 1));
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        index = Math.max(0, Math.min(index, sorted.length - 1));
 
-        return sorted.get(index);
+        return sorted[index];
     }
 
     /**
@@ -178,6 +196,95 @@ public class AdvancedMetrics {
         return latencyStats;
     }
 
+    /**
+     * Calculate truncation rate by category from a columnar store (scans two columns, no heap per row)
+     */
+    public static Map<String, Double> calculateTruncationByCategory(ColumnarStore store) {
+        List<String> categories = store.getCategories();
+        IntBuffer categoryIds = store.intColumn(Column.CATEGORY);
+        long[] counts = new long[categories.size()];
+        long[] truncated = new long[categories.size()];
+
+        for (int row = 0; row < store.getRowCount(); row++) {
+            int id = categoryIds.get(row);
+            if (id < 0) continue;
+            counts[id]++;
+            if (store.isTruncated(row)) {
+                truncated[id]++;
+            }
+        }
+
+        Map<String, Double> truncationRates = new HashMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                truncationRates.put(categories.get(id), (truncated[id] * 100.0) / counts[id]);
+            }
+        }
+        return truncationRates;
+    }
+
+    /**
+     * Calculate latency statistics by category from a columnar store
+     */
+    public static Map<String, LatencyStats> calculateLatencyByCategory(ColumnarStore store) {
+        return calculateLatencyByGroup(store, Column.CATEGORY, store.getCategories());
+    }
+
+    /**
+     * Calculate latency statistics by test phase from a columnar store
+     */
+    public static Map<String, LatencyStats> calculateLatencyByPhase(ColumnarStore store) {
+        return calculateLatencyByGroup(store, Column.PHASE, store.getPhases());
+    }
+
+    /**
+     * Latency statistics per dictionary id of a column, in two sequential passes over the mapped columns
+     * (mean first, then the deviations, as {@link #calculateStandardDeviation} does).
+     */
+    private static Map<String, LatencyStats> calculateLatencyByGroup(ColumnarStore store, Column groupColumn,
+                                                                     List<String> dictionary) {
+        IntBuffer groupIds = store.intColumn(groupColumn);
+        LongBuffer latencies = store.longColumn(Column.RESPONSE_TIME_MS);
+        int groups = dictionary.size();
+        long[] counts = new long[groups];
+        double[] sums = new double[groups];
+        long[] mins = new long[groups];
+        long[] maxs = new long[groups];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        Arrays.fill(maxs, Long.MIN_VALUE);
+
+        int rows = store.getRowCount();
+        for (int row = 0; row < rows; row++) {
+            int id = groupIds.get(row);
+            if (id < 0) continue;
+            long latency = latencies.get(row);
+            counts[id]++;
+            sums[id] += latency;
+            mins[id] = Math.min(mins[id], latency);
+            maxs[id] = Math.max(maxs[id], latency);
+        }
+
+        double[] means = new double[groups];
+        for (int id = 0; id < groups; id++) {
+            means[id] = counts[id] > 0 ? sums[id] / counts[id] : 0.0;
+        }
+        double[] squaredDeviations = new double[groups];
+        for (int row = 0; row < rows; row++) {
+            int id = groupIds.get(row);
+            if (id < 0) continue;
+            double deviation = latencies.get(row) - means[id];
+            squaredDeviations[id] += deviation * deviation;
+        }
+
+        Map<String, LatencyStats> latencyStats = new HashMap<>();
+        for (int id = 0; id < groups; id++) {
+            if (counts[id] == 0) continue;
+            latencyStats.put(dictionary.get(id), new LatencyStats(means[id], mins[id], maxs[id],
+                Math.sqrt(squaredDeviations[id] / counts[id])));
+        }
+        return latencyStats;
+    }
+
     // ========== Data Classes ==========
 
     public static class Anomaly {
@@ -314,7 +421,18 @@ public class AdvancedMetrics {
      * Print latency statistics by category
      */
     public static void printLatencyByCategory(Map<String, LatencyStats> latencyStats) {
-        System.out.println("\n⏱️ Latency Statistics by Category:");
+        printLatencyStats("Category", latencyStats);
+    }
+
+    /**
+     * Print latency statistics by test phase
+     */
+    public static void printLatencyByPhase(Map<String, LatencyStats> latencyStats) {
+        printLatencyStats("Test Phase", latencyStats);
+    }
+
+    private static void printLatencyStats(String grouping, Map<String, LatencyStats> latencyStats) {
+        System.out.println("\n⏱️ Latency Statistics by " + grouping + ":");
         System.out.println("=".repeat(100));
 
         List<Map.Entry<String, LatencyStats>> sorted = new ArrayList<>(latencyStats.entrySet());
@@ -1,21 +1,31 @@
 package ssellm.analyzers;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ssellm.clients.JudgeCache;
 import ssellm.clients.OpenAIClient;
 import ssellm.models.LLMJudgeEvaluation;
 import ssellm.models.ResponseMetadata;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
  * LLM-as-a-judge evaluator using GPT-4 to assess response quality.
  * Sprint 2: Qualitative analysis to complement quantitative metrics.
+ *
+ * Verdicts go through a {@link JudgeCache} (see {@link JudgeCache#fromSystemProperties()}): the same prompt
+ * with the same sampled responses is judged once, and a re-run over the same JSONL needs no API calls.
  */
-public class LLMJudge {
+public class LLMJudge implements AutoCloseable {
 
     private final OpenAIClient openAIClient;
+    private final JudgeCache judgeCache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     // System prompt for GPT-4 judge
     private static final String SYSTEM_PROMPT =
@@ -29,7 +39,19 @@ public class LLMJudge {
         "You MUST respond with valid JSON only, no other text.";
 
     public LLMJudge(String apiKey) {
-        this.openAIClient = new OpenAIClient(apiKey);
+        this(new OpenAIClient(apiKey));
+    }
+
+    /**
+     * @param openAIClient Client (and so concurrency limit) shared with the other analyzers
+     */
+    public LLMJudge(OpenAIClient openAIClient) {
+        this.openAIClient = openAIClient;
+        try {
+            this.judgeCache = JudgeCache.fromSystemProperties();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open judge cache", e);
+        }
     }
 
     /**
@@ -42,75 +64,89 @@ public class LLMJudge {
      */
     public LLMJudgeEvaluation evaluateResponses(String prompt, String category,
                                                List<ResponseMetadata> responses) {
+        return evaluateResponsesAsync(prompt, category, responses).join();
+    }
+
+    /**
+     * Non-blocking {@link #evaluateResponses(String, String, List)}. Never completes exceptionally: a failed
+     * evaluation yields an error result, as the blocking version.
+     */
+    public CompletableFuture<LLMJudgeEvaluation> evaluateResponsesAsync(String prompt, String category,
+                                                                        List<ResponseMetadata> responses) {
         if (responses == null || responses.isEmpty()) {
             throw new IllegalArgumentException("Responses list cannot be null or empty");
         }
 
-        System.out.println("\n⚖️ GPT-4 Judge evaluating prompt: " +
-            prompt.substring(0, Math.min(60, prompt.length())) + "...");
-        System.out.println("   Category: " + category);
-        System.out.println("   Responses to evaluate: " + responses.size());
+        String shortPrompt = prompt.substring(0, Math.min(60, prompt.length())) + "...";
+
+        // Sample responses (max 5 for cost efficiency)
+        List<ResponseMetadata> sampleResponses = sampleResponses(responses, 5);
+
+        System.out.println("\n⚖️ GPT-4 Judge evaluating prompt: " + shortPrompt);
+        System.out.println("   Category: " + category + ", sampling " + sampleResponses.size() + " of " +
+            responses.size() + " responses");
+
+        // Build evaluation prompt; call GPT-4 with JSON mode unless the same question was judged before
+        String userPrompt = buildEvaluationPrompt(prompt, category, sampleResponses);
+        return judgeCache.getVerdict(OpenAIClient.JUDGE_MODEL, SYSTEM_PROMPT, userPrompt,
+                () -> openAIClient.evaluateWithGPT4JSONAsync(SYSTEM_PROMPT, userPrompt).thenApply(JsonNode::toString))
+            .thenApply(verdict -> parseEvaluation(prompt, category, sampleResponses.size(), readTree(verdict)))
+            .exceptionally(e -> {
+                System.err.println("   ❌ Error in LLM judge evaluation for " + shortPrompt + ": " +
+                    OpenAIClient.unwrap(e).getMessage());
+                return createErrorResult(prompt, category, responses.size());
+            });
+    }
 
+    private JsonNode readTree(String json) {
         try {
-            // Sample responses (max 5 for cost efficiency)
-            List<ResponseMetadata> sampleResponses = sampleResponses(responses, 5);
-            System.out.println("   📊 Sampling " + sampleResponses.size() + " responses for evaluation");
-
-            // Build evaluation prompt
-            String userPrompt = buildEvaluationPrompt(prompt, category, sampleResponses);
-
-            // Call GPT-4 with JSON mode
-            System.out.println("   🤖 Calling GPT-4 for evaluation...");
-            JsonNode evaluation = openAIClient.evaluateWithGPT4JSON(SYSTEM_PROMPT, userPrompt);
-
-            // Parse evaluation
-            double similarityScore = evaluation.has("similarity_score") ?
-                evaluation.get("similarity_score").asDouble() : 0.0;
-            double technicalCorrectness = evaluation.has("technical_correctness") ?
-                evaluation.get("technical_correctness").asDouble() : 0.0;
-            double coherenceScore = evaluation.has("coherence_score") ?
-                evaluation.get("coherence_score").asDouble() : 0.0;
-            boolean creativityExpected = evaluation.has("creativity_expected") &&
-                evaluation.get("creativity_expected").asBoolean();
-
-            List<String> issuesDetected = parseJsonArray(evaluation.get("issues_detected"));
-            List<String> legitimateVariations = parseJsonArray(evaluation.get("legitimate_variations"));
-
-            System.out.println("   ✅ Evaluation complete:");
-            System.out.println("      Similarity: " + String.format("%.1f/10", similarityScore));
-            System.out.println("      Technical Correctness: " + String.format("%.1f/10", technicalCorrectness));
-            System.out.println("      Coherence: " + String.format("%.1f/10", coherenceScore));
-            System.out.println("      Creativity Expected: " + (creativityExpected ? "Yes" : "No"));
-            System.out.println("      Issues Detected: " + issuesDetected.size());
-            System.out.println("      Legitimate Variations: " + legitimateVariations.size());
-
-            // Build result
-            LLMJudgeEvaluation result = LLMJudgeEvaluation.builder()
-                .prompt(prompt)
-                .category(category)
-                .responseCount(sampleResponses.size())
-                .similarityScore(similarityScore)
-                .technicalCorrectness(technicalCorrectness)
-                .coherenceScore(coherenceScore)
-                .creativityExpected(creativityExpected)
-                .issuesDetected(issuesDetected)
-                .legitimateVariations(legitimateVariations)
-                .rawLLMResponse(evaluation.toString())
-                .build();
-
-            double overallScore = result.getOverallScore();
-            System.out.println("   🎯 Overall Score: " + String.format("%.2f/10", overallScore) +
-                (overallScore >= 7.0 ? " ✅" : " ⚠️"));
-
-            return result;
-
-        } catch (Exception e) {
-            System.err.println("   ❌ Error in LLM judge evaluation: " + e.getMessage());
-            e.printStackTrace();
-            return createErrorResult(prompt, category, responses.size());
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
+    private LLMJudgeEvaluation parseEvaluation(String prompt, String category, int sampleCount, JsonNode evaluation) {
+        // Parse evaluation
+        double similarityScore = evaluation.has("similarity_score") ?
+            evaluation.get("similarity_score").asDouble() : 0.0;
+        double technicalCorrectness = evaluation.has("technical_correctness") ?
+            evaluation.get("technical_correctness").asDouble() : 0.0;
+        double coherenceScore = evaluation.has("coherence_score") ?
+            evaluation.get("coherence_score").asDouble() : 0.0;
+        boolean creativityExpected = evaluation.has("creativity_expected") &&
+            evaluation.get("creativity_expected").asBoolean();
+
+        List<String> issuesDetected = parseJsonArray(evaluation.get("issues_detected"));
+        List<String> legitimateVariations = parseJsonArray(evaluation.get("legitimate_variations"));
+
+        // Build result
+        LLMJudgeEvaluation result = LLMJudgeEvaluation.builder()
+            .prompt(prompt)
+            .category(category)
+            .responseCount(sampleCount)
+            .similarityScore(similarityScore)
+            .technicalCorrectness(technicalCorrectness)
+            .coherenceScore(coherenceScore)
+            .creativityExpected(creativityExpected)
+            .issuesDetected(issuesDetected)
+            .legitimateVariations(legitimateVariations)
+            .rawLLMResponse(evaluation.toString())
+            .build();
+
+        // One line per prompt: results of concurrent evaluations arrive interleaved
+        double overallScore = result.getOverallScore();
+        System.out.println("   🎯 " + prompt.substring(0, Math.min(40, prompt.length())) + "... overall " +
+            String.format("%.2f/10", overallScore) + (overallScore >= 7.0 ? " ✅" : " ⚠️") +
+            " (similarity " + String.format("%.1f", similarityScore) +
+            ", technical " + String.format("%.1f", technicalCorrectness) +
+            ", coherence " + String.format("%.1f", coherenceScore) +
+            ", creativity expected " + (creativityExpected ? "yes" : "no") +
+            ", " + issuesDetected.size() + " issues, " + legitimateVariations.size() + " legitimate variations)");
+
+        return result;
+    }
+
     /**
      * Build evaluation prompt for GPT-4
      */
@@ -228,4 +264,16 @@ public class LLMJudge {
     public boolean testConnection() {
         return openAIClient.testConnection();
     }
+
+    public JudgeCache getJudgeCache() {
+        return judgeCache;
+    }
+
+    /**
+     * Closes the judge cache file
+     */
+    @Override
+    public void close() throws IOException {
+        judgeCache.close();
+    }
 }
@@ -0,0 +1,272 @@
+package ssellm.analyzers;
+
+import java.util.*;
+
+/**
+ * MinHash signatures of keyword sets, to estimate Jaccard similarity without comparing the sets.
+ *
+ * A signature holds, for each of {@code k} hash functions, the minimum hash over the set's keywords. Two
+ * signatures agree at a position with probability equal to the Jaccard similarity of their sets, so the
+ * fraction of agreeing positions is an unbiased estimate with standard error
+ * {@code sqrt(J(1-J)/k) <= 1/(2*sqrt(k))}: {@link #forError(double, long)} picks {@code k} from that bound.
+ *
+ * The average similarity over all pairs of n signatures is computed position by position (sort the n
+ * values, count equal runs), in O(k·n·log n) instead of O(n²) set comparisons; the same runs give each
+ * signature's average similarity to the others. LSH banding (signatures cut into bands of {@code r} rows,
+ * responses sharing a band bucket are candidates) flags responses that are similar to few others.
+ *
+ * Empty sets get no signature ({@code null}): as in the exact computation, their similarity to anything
+ * is 0.
+ */
+public final class MinHash {
+
+    private final long[] seeds;
+
+    /**
+     * @param numHashes Signature length k
+     * @param seed      Seed of the hash functions (same seed = comparable signatures)
+     */
+    public MinHash(int numHashes, long seed) {
+        if (numHashes <= 0) {
+            throw new IllegalArgumentException("numHashes must be positive: " + numHashes);
+        }
+        this.seeds = new long[numHashes];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < numHashes; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * @param maxError Bound on the standard error of a single pair estimate (e.g. 0.05)
+     */
+    public static MinHash forError(double maxError, long seed) {
+        if (maxError <= 0 || maxError >= 0.5) {
+            throw new IllegalArgumentException("maxError must be in (0, 0.5): " + maxError);
+        }
+        return new MinHash((int) Math.ceil(1.0 / (4 * maxError * maxError)), seed);
+    }
+
+    public int getNumHashes() {
+        return seeds.length;
+    }
+
+    /**
+     * @return Worst-case standard error of a single pair estimate
+     */
+    public double getMaxError() {
+        return 0.5 / Math.sqrt(seeds.length);
+    }
+
+    /**
+     * @return Signature of the keyword set, null if the set is empty
+     */
+    public int[] signature(Collection<String> keywords) {
+        if (keywords.isEmpty()) {
+            return null;
+        }
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String keyword : keywords) {
+            long base = keywordHash(keyword);
+            for (int i = 0; i < seeds.length; i++) {
+                int h = (int) (mix(base ^ seeds[i]) >>> 33);  // non-negative
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @return Estimated Jaccard similarity of the sets of two signatures
+     */
+    public static double similarity(int[] a, int[] b) {
+        if (a == null || b == null) {
+            return 0.0;
+        }
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    /**
+     * Estimated average Jaccard similarity over all pairs of signatures.
+     *
+     * @return Average over the n(n-1)/2 pairs, 1.0 with fewer than two signatures (as the exact version)
+     */
+    public double averagePairwiseSimilarity(List<int[]> signatures) {
+        return averagePairwiseSimilarity(averageSimilarities(signatures));
+    }
+
+    /**
+     * @param averageSimilarities Result of {@link #averageSimilarities(List)}
+     * @return Average over all pairs: the mean of the per-signature averages, 1.0 with fewer than two
+     */
+    public static double averagePairwiseSimilarity(double[] averageSimilarities) {
+        int n = averageSimilarities.length;
+        if (n < 2) {
+            return 1.0;
+        }
+        double sum = 0.0;
+        for (double similarity : averageSimilarities) {
+            sum += similarity;
+        }
+        return sum / n;
+    }
+
+    /**
+     * Estimated average similarity of every signature to all the others, in one pass over the positions:
+     * the values of a position are sorted along with their index, and each member of a run of r equal
+     * values agrees with the r - 1 others.
+     *
+     * @return Per signature, in order; 1.0 for each with fewer than two signatures, 0 for a null one
+     */
+    public double[] averageSimilarities(List<int[]> signatures) {
+        int n = signatures.size();
+        double[] averages = new double[n];
+        if (n < 2) {
+            Arrays.fill(averages, 1.0);
+            return averages;
+        }
+        int[] indexes = new int[n];
+        int present = 0;
+        for (int i = 0; i < n; i++) {
+            if (signatures.get(i) != null) {
+                indexes[present++] = i;
+            }
+        }
+
+        // Signature values are non-negative ints: value in the high half, index in the low half
+        long[] column = new long[present];
+        long[] agreeing = new long[n];
+        for (int position = 0; position < seeds.length; position++) {
+            for (int i = 0; i < present; i++) {
+                column[i] = (long) signatures.get(indexes[i])[position] << 32 | indexes[i];
+            }
+            Arrays.sort(column);
+            int runStart = 0;
+            for (int i = 1; i <= present; i++) {
+                if (i == present || column[i] >>> 32 != column[runStart] >>> 32) {
+                    int others = i - runStart - 1;
+                    for (int j = runStart; j < i; j++) {
+                        agreeing[(int) column[j]] += others;
+                    }
+                    runStart = i;
+                }
+            }
+        }
+
+        double comparisons = (double) seeds.length * (n - 1);
+        for (int i = 0; i < n; i++) {
+            averages[i] = agreeing[i] / comparisons;
+        }
+        return averages;
+    }
+
+    /**
+     * Flags responses that share an LSH bucket with few others.
+     *
+     * With {@code b = k / rowsPerBand} bands, two sets become candidates with probability
+     * {@code 1 - (1 - J^r)^b}, which rises steeply around {@code J = (1/b)^(1/r)}: a response with few
+     * candidates is unlikely to reach that similarity with most of the other responses.
+     *
+     * A response's candidates are counted as the other members of the largest bucket it falls in over all
+     * bands, from the bucket sizes alone. This is a lower bound of the candidates over all bands, so it can
+     * flag a response whose candidates are spread over several buckets: callers confirm with
+     * {@link #averageSimilarities(List)}.
+     *
+     * @param signatures           Signatures of the responses to one prompt
+     * @param rowsPerBand          Rows per band r
+     * @param minCandidateFraction A response is flagged when its candidates are fewer than this fraction
+     *                             of the other responses
+     * @return Indexes of the flagged responses, ascending
+     */
+    public List<Integer> findOutliers(List<int[]> signatures, int rowsPerBand, double minCandidateFraction) {
+        int n = signatures.size();
+        int bands = seeds.length / rowsPerBand;
+        if (n < 3 || bands == 0) {
+            return Collections.emptyList();
+        }
+
+        // Per response, the other members of its largest band bucket
+        int[] candidates = new int[n];
+        long[] keys = new long[n];
+        long[] sorted = new long[n];
+        for (int band = 0; band < bands; band++) {
+            int present = 0;
+            for (int i = 0; i < n; i++) {
+                int[] signature = signatures.get(i);
+                if (signature == null) continue;
+                long key = band;
+                for (int row = band * rowsPerBand; row < (band + 1) * rowsPerBand; row++) {
+                    key = mix(key * 31 + signature[row]);
+                }
+                keys[i] = key;
+                sorted[present++] = key;
+            }
+            Arrays.sort(sorted, 0, present);
+            for (int i = 0; i < n; i++) {
+                if (signatures.get(i) == null) continue;
+                int bucketSize = bucketSize(sorted, present, keys[i]);
+                candidates[i] = Math.max(candidates[i], bucketSize - 1);
+            }
+        }
+
+        List<Integer> outliers = new ArrayList<>();
+        double minCandidates = Math.max(1.0, minCandidateFraction * (n - 1));
+        for (int i = 0; i < n; i++) {
+            if (candidates[i] < minCandidates) {
+                outliers.add(i);
+            }
+        }
+        return outliers;
+    }
+
+    /**
+     * @return Occurrences of the key among the first {@code length} sorted keys, by two binary searches
+     */
+    private static int bucketSize(long[] sorted, int length, long key) {
+        return searchEnd(sorted, length, key, true) - searchEnd(sorted, length, key, false);
+    }
+
+    /**
+     * @return Index of the first sorted key above {@code key} (or at least {@code key} when not inclusive),
+     *         {@code length} if none
+     */
+    private static int searchEnd(long[] sorted, int length, long key, boolean inclusive) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key || (inclusive && sorted[middle] == key)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long keywordHash(String keyword) {
+        // 64-bit FNV-1a over the chars, so distinct keywords do not collide on a 32-bit hashCode
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < keyword.length(); i++) {
+            hash ^= keyword.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        // SplitMix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,69 @@
+package ssellm.analyzers;
+
+import ssellm.clients.EmbeddingResponseDecoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks {@link EmbeddingResponseDecoder#parseFloat} against {@code (float) Double.parseDouble} bit for bit:
+ * edge cases (signed zeros, exponents, values past the fast path's digits or powers of ten) plus random
+ * Gaussian values over 12 orders of magnitude, printed the ways JSON encoders write them ({@code %.10f} as the
+ * API does, {@code Double.toString}, {@code Float.toString}, {@code %.6e}). Each number is parsed from the
+ * middle of a larger buffer, as the decoder does. Exits with status 1 on any mismatch.
+ *
+ * Usage: {@code ParseFloatCheck [count=2000000] [seed=3]}
+ */
+public class ParseFloatCheck {
+
+    private static final String[] EDGE_CASES = {"0", "-0", "-0.0", "1", "1E+2", "1e2", "-1.2345e-05",
+            "123456789012345678901", "0.1", "3.4028235e38", "1e-50", "1e400", "0.00000000000000000000123",
+            "12345678901234567", "9007199254740993", "1.0E-7", "0.0000000001", "-0.9999999999"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 3;
+
+        List<String> numbers = new ArrayList<>(Arrays.asList(EDGE_CASES));
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            double value = random.nextGaussian() * Math.pow(10, random.nextInt(12) - 8);
+            switch (i % 4) {
+                case 0:
+                    numbers.add(String.format(Locale.ROOT, "%.10f", value));
+                    break;
+                case 1:
+                    numbers.add(Double.toString(value));
+                    break;
+                case 2:
+                    numbers.add(Float.toString((float) value));
+                    break;
+                default:
+                    numbers.add(String.format(Locale.ROOT, "%.6e", value));
+                    break;
+            }
+        }
+
+        System.out.println("🔎 parseFloat vs (float) Double.parseDouble, " + numbers.size() + " numbers");
+        int mismatches = 0;
+        for (String number : numbers) {
+            char[] text = ("[," + number + ",]").toCharArray();
+            float parsed = EmbeddingResponseDecoder.parseFloat(text, 2, number.length());
+            float expected = (float) Double.parseDouble(number);
+            if (Float.floatToIntBits(parsed) != Float.floatToIntBits(expected)) {
+                if (mismatches++ < 10) {
+                    System.out.println("  ❌ " + number + ": " + parsed + " instead of " + expected);
+                }
+            }
+        }
+
+        if (mismatches > 0) {
+            System.out.println("❌ " + mismatches + " mismatches");
+            System.exit(1);
+        }
+        System.out.println("✅ No mismatches");
+    }
+}
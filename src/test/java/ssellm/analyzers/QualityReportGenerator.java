@@ -3,25 +3,29 @@ package ssellm.analyzers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ssellm.ResponseAggregator;
+import ssellm.ResponseIndex;
+import ssellm.clients.OpenAIClient;
 import ssellm.models.LLMJudgeEvaluation;
 import ssellm.models.QualityReport;
 import ssellm.models.ResponseMetadata;
 import ssellm.models.SemanticAnalysisResult;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
  * Generates comprehensive quality report for Sprint 2.
  * Combines semantic analysis, LLM-as-judge, and basic metrics.
  */
-public class QualityReportGenerator {
+public class QualityReportGenerator implements AutoCloseable {
 
+    private final OpenAIClient openAIClient;
     private final SemanticAnalyzer semanticAnalyzer;
     private final LLMJudge llmJudge;
     private final ObjectMapper objectMapper;
@@ -33,8 +37,10 @@ public class QualityReportGenerator {
     private static final double SAMPLING_RATE = 0.30; // 30% of prompts
 
     public QualityReportGenerator(String apiKey) {
-        this.semanticAnalyzer = new SemanticAnalyzer(apiKey);
-        this.llmJudge = new LLMJudge(apiKey);
+        // One client for both: a single connection pool and concurrency limit
+        this.openAIClient = new OpenAIClient(apiKey);
+        this.semanticAnalyzer = new SemanticAnalyzer(openAIClient);
+        this.llmJudge = new LLMJudge(openAIClient);
         this.objectMapper = new ObjectMapper()
             .registerModule(new JavaTimeModule())
             .enable(SerializationFeature.INDENT_OUTPUT);
@@ -52,9 +58,10 @@ public class QualityReportGenerator {
         System.out.println("📊 SPRINT 2 - QUALITY REPORT GENERATOR");
         System.out.println("=".repeat(80));
 
-        // Step 1: Load and parse metadata
+        // Step 1: Load and parse metadata (single pass, all groupings)
         System.out.println("\n[1/6] 📂 Loading metadata file...");
-        List<ResponseMetadata> allResponses = loadMetadata(metadataFile);
+        ResponseIndex index = new ResponseAggregator(Path.of(metadataFile)).buildIndex();
+        List<ResponseMetadata> allResponses = index.getResponses();
         System.out.println("   ✓ Loaded " + allResponses.size() + " responses");
 
         // Step 2: Calculate basic metrics
@@ -66,8 +73,8 @@ public class QualityReportGenerator {
 
         // Step 3: Group by prompt and category
         System.out.println("\n[3/6] 🗂️ Grouping responses by prompt...");
-        Map<String, List<ResponseMetadata>> byPrompt = groupByPrompt(allResponses);
-        Map<String, List<ResponseMetadata>> byCategoryMap = groupByCategory(allResponses);
+        Map<String, List<ResponseMetadata>> byPrompt = index.getByPrompt();
+        Map<String, List<ResponseMetadata>> byCategoryMap = index.getByCategory();
         System.out.println("   ✓ " + byPrompt.size() + " unique prompts");
         System.out.println("   ✓ " + byCategoryMap.size() + " categories");
 
@@ -75,7 +82,11 @@ public class QualityReportGenerator {
         List<QualityReport.PromptQualityScore> promptScores = new ArrayList<>();
         if (ENABLE_SEMANTIC_ANALYSIS) {
             System.out.println("\n[4/6] 🔍 Running semantic analysis...");
+            long start = System.nanoTime();
             promptScores = runSemanticAnalysis(byPrompt);
+            System.out.println(String.format("   ⏱️ Semantic analysis: %.2fs", (System.nanoTime() - start) / 1e9));
+            semanticAnalyzer.getEmbeddingCache().printStats();
+            semanticAnalyzer.getEmbeddingBatcher().printStats();
         } else {
             System.out.println("\n[4/6] ⏭️ Semantic analysis DISABLED (skipping)");
         }
@@ -83,15 +94,19 @@ public class QualityReportGenerator {
         // Step 5: LLM-as-judge evaluation (with sampling)
         if (ENABLE_LLM_JUDGE) {
             System.out.println("\n[5/6] ⚖️ Running LLM-as-judge evaluation...");
+            long start = System.nanoTime();
             runLLMJudgeEvaluation(byPrompt, promptScores);
+            System.out.println(String.format("   ⏱️ LLM-as-judge evaluation: %.2fs", (System.nanoTime() - start) / 1e9));
+            llmJudge.getJudgeCache().printStats();
         } else {
             System.out.println("\n[5/6] ⏭️ LLM Judge DISABLED (skipping)");
         }
+        openAIClient.printMetrics();
 
         // Step 6: Category and phase analysis
         System.out.println("\n[6/6] 📊 Analyzing by category and phase...");
         Map<String, QualityReport.CategoryStats> categoryStats = calculateCategoryStats(byCategoryMap);
-        QualityReport.PhaseComparison phaseComparison = calculatePhaseComparison(allResponses);
+        QualityReport.PhaseComparison phaseComparison = calculatePhaseComparison(index.getByPhase());
 
         // Build final report
         QualityReport report = new QualityReport();
@@ -113,25 +128,6 @@ public class QualityReportGenerator {
         return report;
     }
 
-    /**
-     * Load metadata from JSONL file
-     */
-    private List<ResponseMetadata> loadMetadata(String filePath) throws IOException {
-        List<ResponseMetadata> responses = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) {
-                    ResponseMetadata metadata = objectMapper.readValue(line, ResponseMetadata.class);
-                    responses.add(metadata);
-                }
-            }
-        }
-
-        return responses;
-    }
-
     /**
      * Calculate summary metrics
      */
@@ -150,22 +146,6 @@ public class QualityReportGenerator {
         return summary;
     }
 
-    /**
-     * Group responses by prompt
-     */
-    private Map<String, List<ResponseMetadata>> groupByPrompt(List<ResponseMetadata> responses) {
-        return responses.stream()
-            .collect(Collectors.groupingBy(ResponseMetadata::getPrompt));
-    }
-
-    /**
-     * Group responses by category
-     */
-    private Map<String, List<ResponseMetadata>> groupByCategory(List<ResponseMetadata> responses) {
-        return responses.stream()
-            .collect(Collectors.groupingBy(ResponseMetadata::getCategory));
-    }
-
     /**
      * Run semantic analysis on sampled prompts
      */
@@ -179,7 +159,8 @@ public class QualityReportGenerator {
         System.out.println("   📊 Analyzing " + sampledPrompts.size() + " prompts (sampled at " +
             String.format("%.0f%%", SAMPLING_RATE * 100) + ")");
 
-        int processed = 0;
+        // Start every analysis: their texts are packed into shared embedding requests
+        Map<String, CompletableFuture<SemanticAnalysisResult>> pending = new LinkedHashMap<>();
         for (String prompt : sampledPrompts) {
             List<ResponseMetadata> responses = byPrompt.get(prompt);
 
@@ -188,11 +169,25 @@ public class QualityReportGenerator {
                 continue;
             }
 
+            try {
+                pending.put(prompt, semanticAnalyzer.analyzeSimilarityAsync(prompt, responses));
+            } catch (Exception e) {
+                System.err.println("   ⚠️ Error analyzing prompt: " + prompt.substring(0, Math.min(40, prompt.length())));
+                System.err.println("      " + e.getMessage());
+            }
+        }
+
+        semanticAnalyzer.flushEmbeddings();
+
+        // Collect in sampling order
+        int processed = 0;
+        for (Map.Entry<String, CompletableFuture<SemanticAnalysisResult>> entry : pending.entrySet()) {
+            String prompt = entry.getKey();
+            List<ResponseMetadata> responses = byPrompt.get(prompt);
             String category = responses.get(0).getCategory();
 
             try {
-                // Run semantic analysis
-                SemanticAnalysisResult semanticResult = semanticAnalyzer.analyzeSimilarity(prompt, responses);
+                SemanticAnalysisResult semanticResult = entry.getValue().join();
 
                 // Calculate truncation rate for this prompt
                 long truncated = responses.stream().filter(ResponseMetadata::isTruncated).count();
@@ -253,17 +248,18 @@ public class QualityReportGenerator {
 
         System.out.println("   ⚖️ Evaluating " + sampledScores.size() + " prompts with GPT-4");
 
-        int processed = 0;
+        // Start every evaluation, then collect them in order
+        List<CompletableFuture<LLMJudgeEvaluation>> pending = new ArrayList<>();
         for (QualityReport.PromptQualityScore score : sampledScores) {
-            List<ResponseMetadata> responses = byPrompt.get(score.prompt);
+            pending.add(llmJudge.evaluateResponsesAsync(score.prompt, score.category, byPrompt.get(score.prompt)));
+        }
+
+        int processed = 0;
+        for (int i = 0; i < sampledScores.size(); i++) {
+            QualityReport.PromptQualityScore score = sampledScores.get(i);
 
             try {
-                // Run LLM judge
-                LLMJudgeEvaluation judgeResult = llmJudge.evaluateResponses(
-                    score.prompt,
-                    score.category,
-                    responses
-                );
+                LLMJudgeEvaluation judgeResult = pending.get(i).join();
 
                 // Update score with LLM judge metrics (use overall score)
                 score.llmJudgeScore = judgeResult.getOverallScore();
@@ -336,10 +332,7 @@ public class QualityReportGenerator {
     /**
      * Calculate phase comparison (RAMP vs STEADY)
      */
-    private QualityReport.PhaseComparison calculatePhaseComparison(List<ResponseMetadata> responses) {
-        Map<String, List<ResponseMetadata>> byPhase = responses.stream()
-            .collect(Collectors.groupingBy(ResponseMetadata::getTestPhase));
-
+    private QualityReport.PhaseComparison calculatePhaseComparison(Map<String, List<ResponseMetadata>> byPhase) {
         List<ResponseMetadata> rampResponses = byPhase.getOrDefault("RAMP", new ArrayList<>());
         List<ResponseMetadata> steadyResponses = byPhase.getOrDefault("STEADY", new ArrayList<>());
 
@@ -385,7 +378,7 @@ public class QualityReportGenerator {
     }
 
     /**
-     * Sample prompts for analysis
+     * Sample prompts for analysis (in the same order every run if {@code report.samplingSeed} is set)
      */
     private List<String> samplePrompts(List<String> allPrompts) {
         if (SAMPLING_RATE >= 1.0) {
@@ -393,7 +386,9 @@ public class QualityReportGenerator {
         }
 
         int sampleSize = Math.max(5, (int) (allPrompts.size() * SAMPLING_RATE));
-        Collections.shuffle(allPrompts);
+        // A fixed seed samples the same prompts every run, so a re-run is served from the caches
+        Long seed = Long.getLong("report.samplingSeed");
+        Collections.shuffle(allPrompts, seed != null ? new Random(seed) : new Random());
 
         return allPrompts.stream()
             .limit(sampleSize)
@@ -443,6 +438,18 @@ public class QualityReportGenerator {
         System.out.println("\n" + "=".repeat(80));
     }
 
+    /**
+     * Closes the embedding and judge caches
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            semanticAnalyzer.close();
+        } finally {
+            llmJudge.close();
+        }
+    }
+
     /**
      * Main method for standalone execution
      */
@@ -462,8 +469,7 @@ public class QualityReportGenerator {
             System.exit(1);
         }
 
-        try {
-            QualityReportGenerator generator = new QualityReportGenerator(apiKey);
+        try (QualityReportGenerator generator = new QualityReportGenerator(apiKey)) {
             generator.generateReport(metadataFile, outputFile);
             System.out.println("\n✅ Quality report generated successfully!");
 
@@ -1,24 +1,68 @@
 package ssellm.analyzers;
 
-import org.apache.commons.math3.linear.ArrayRealVector;
+import ssellm.clients.EmbeddingBatcher;
+import ssellm.clients.EmbeddingCache;
 import ssellm.clients.OpenAIClient;
 import ssellm.models.ResponseMetadata;
 import ssellm.models.SemanticAnalysisResult;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Semantic analyzer using OpenAI embeddings and cosine similarity.
  * Sprint 2: Advanced semantic analysis replacing Jaccard similarity.
+ *
+ * Embeddings go through an {@link EmbeddingCache} (see {@link EmbeddingCache#fromSystemProperties()}):
+ * identical responses are embedded once, and a re-run over the same JSONL needs no API calls. The texts
+ * missing from the cache go through an {@link EmbeddingBatcher}, which packs the texts of concurrent
+ * analyses into shared requests; call {@link #flushEmbeddings()} once all of them have been started.
+ *
+ * Similarities are computed by {@link SimilarityMatrix} on a pool of {@code semantic.parallelism} threads.
+ * Which matrix goes into the result is set by {@code semantic.matrix}: {@code full} (square), {@code packed}
+ * (upper triangle as floats), {@code none} (statistics only) or {@code auto} (full up to
+ * {@code semantic.matrixMaxResponses} responses, none above).
  */
-public class SemanticAnalyzer {
+public class SemanticAnalyzer implements AutoCloseable {
 
     private final OpenAIClient openAIClient;
+    private final EmbeddingCache embeddingCache;
+    private final EmbeddingBatcher embeddingBatcher;
+    private final ForkJoinPool pool;
+    private final MatrixMode matrixMode;
+    private final int matrixMaxResponses;
     private static final double SIMILARITY_THRESHOLD = 0.70;  // 70% similarity threshold
 
+    /**
+     * How much of the similarity matrix is kept in the result.
+     */
+    public enum MatrixMode {
+        FULL, PACKED, NONE, AUTO
+    }
+
     public SemanticAnalyzer(String apiKey) {
-        this.openAIClient = new OpenAIClient(apiKey);
+        this(new OpenAIClient(apiKey));
+    }
+
+    /**
+     * @param openAIClient Client (and so concurrency limit) shared with the other analyzers
+     */
+    public SemanticAnalyzer(OpenAIClient openAIClient) {
+        this.openAIClient = openAIClient;
+        try {
+            this.embeddingCache = EmbeddingCache.fromSystemProperties();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open embedding cache", e);
+        }
+        this.embeddingBatcher = EmbeddingBatcher.fromSystemProperties(openAIClient);
+        this.pool = new ForkJoinPool(Integer.getInteger("semantic.parallelism", Runtime.getRuntime().availableProcessors()));
+        this.matrixMode = MatrixMode.valueOf(System.getProperty("semantic.matrix", "auto").toUpperCase(Locale.ROOT));
+        this.matrixMaxResponses = Integer.getInteger("semantic.matrixMaxResponses", 100);
     }
 
     /**
@@ -29,207 +73,110 @@ public class SemanticAnalyzer {
      * @return SemanticAnalysisResult with similarity scores
      */
     public SemanticAnalysisResult analyzeSimilarity(String prompt, List<ResponseMetadata> responses) {
-        if (responses == null || responses.isEmpty()) {
-            throw new IllegalArgumentException("Responses list cannot be null or empty");
-        }
-
-        System.out.println("\n🔍 Analyzing semantic similarity for prompt: " +
-            prompt.substring(0, Math.min(60, prompt.length())) + "...");
-        System.out.println("   Responses to analyze: " + responses.size());
-
-        try {
-            // Extract response texts
-            List<String> responseTexts = new ArrayList<>();
-            for (ResponseMetadata metadata : responses) {
-                // Only analyze non-truncated responses for fair comparison
-                if (!metadata.isTruncated() && metadata.getResponse() != null &&
-                    !metadata.getResponse().isEmpty()) {
-                    responseTexts.add(metadata.getResponse());
-                }
-            }
-
-            if (responseTexts.size() < 2) {
-                System.out.println("   ⚠️ Not enough complete responses for similarity analysis (need >=2, have " +
-                    responseTexts.size() + ")");
-                return createEmptyResult(prompt, responses.get(0).getCategory(), responses.size());
-            }
-
-            System.out.println("   ✓ Analyzing " + responseTexts.size() + " complete responses");
-
-            // Get embeddings from OpenAI (batch processing)
-            System.out.println("   🌐 Fetching embeddings from OpenAI...");
-            List<List<Double>> embeddings = openAIClient.getEmbeddings(responseTexts);
-            System.out.println("   ✓ Embeddings received: " + embeddings.size() + " vectors of " +
-                embeddings.get(0).size() + " dimensions");
-
-            // Calculate similarity matrix
-            double[][] similarityMatrix = calculateSimilarityMatrix(embeddings);
-
-            // Calculate statistics
-            double avgSimilarity = calculateAverageSimilarity(similarityMatrix);
-            double minSimilarity = calculateMinSimilarity(similarityMatrix);
-            double maxSimilarity = calculateMaxSimilarity(similarityMatrix);
-
-            System.out.println("   📊 Similarity scores:");
-            System.out.println("      Average: " + String.format("%.3f", avgSimilarity));
-            System.out.println("      Min: " + String.format("%.3f", minSimilarity));
-            System.out.println("      Max: " + String.format("%.3f", maxSimilarity));
-
-            // Detect issues
-            boolean isConsistent = avgSimilarity >= SIMILARITY_THRESHOLD;
-            List<String> issues = new ArrayList<>();
-
-            if (!isConsistent) {
-                issues.add("Low average similarity (" + String.format("%.3f", avgSimilarity) +
-                    ") below threshold (" + SIMILARITY_THRESHOLD + ")");
-            }
-
-            if (minSimilarity < 0.50) {
-                issues.add("Very low minimum similarity (" + String.format("%.3f", minSimilarity) +
-                    ") indicates outlier responses");
-            }
-
-            // Build result
-            SemanticAnalysisResult result = SemanticAnalysisResult.builder()
-                .prompt(prompt)
-                .category(responses.get(0).getCategory())
-                .responseCount(responseTexts.size())
-                .avgSimilarity(avgSimilarity)
-                .minSimilarity(minSimilarity)
-                .maxSimilarity(maxSimilarity)
-                .similarityMatrix(similarityMatrix)
-                .isConsistent(isConsistent)
-                .issues(issues)
-                .build();
-
-            System.out.println("   " + (isConsistent ? "✅" : "⚠️") + " Consistency: " +
-                (isConsistent ? "PASS" : "FAIL") + (issues.isEmpty() ? "" : " - " + issues.size() + " issues"));
-
-            return result;
-
-        } catch (Exception e) {
-            System.err.println("   ❌ Error analyzing semantic similarity: " + e.getMessage());
-            e.printStackTrace();
-            return createEmptyResult(prompt, responses.get(0).getCategory(), responses.size());
-        }
+        return analyzeSimilarityAsync(prompt, responses).join();
     }
 
     /**
-     * Calculate cosine similarity between two embedding vectors
-     *
-     * @param embedding1 First embedding vector
-     * @param embedding2 Second embedding vector
-     * @return Cosine similarity (0-1)
+     * Non-blocking {@link #analyzeSimilarity(String, List)}: the texts are queued on the embedding batcher
+     * and the similarities are computed on the analyzer's pool when it completes. Never completes
+     * exceptionally: a failed analysis yields an empty result, as the blocking version.
      */
-    public double cosineSimilarity(List<Double> embedding1, List<Double> embedding2) {
-        if (embedding1.size() != embedding2.size()) {
-            throw new IllegalArgumentException("Embeddings must have the same dimension");
+    public CompletableFuture<SemanticAnalysisResult> analyzeSimilarityAsync(String prompt, List<ResponseMetadata> responses) {
+        if (responses == null || responses.isEmpty()) {
+            throw new IllegalArgumentException("Responses list cannot be null or empty");
         }
 
-        // Convert to double arrays
-        double[] arr1 = embedding1.stream().mapToDouble(Double::doubleValue).toArray();
-        double[] arr2 = embedding2.stream().mapToDouble(Double::doubleValue).toArray();
-
-        // Use Apache Commons Math for vector operations
-        ArrayRealVector v1 = new ArrayRealVector(arr1);
-        ArrayRealVector v2 = new ArrayRealVector(arr2);
+        String shortPrompt = prompt.substring(0, Math.min(60, prompt.length())) + "...";
+        String category = responses.get(0).getCategory();
 
-        // Calculate cosine similarity: dot(v1, v2) / (norm(v1) * norm(v2))
-        double dotProduct = v1.dotProduct(v2);
-        double norm1 = v1.getNorm();
-        double norm2 = v2.getNorm();
-
-        if (norm1 == 0 || norm2 == 0) {
-            return 0.0;
+        // Extract response texts
+        List<String> responseTexts = new ArrayList<>();
+        for (ResponseMetadata metadata : responses) {
+            // Only analyze non-truncated responses for fair comparison
+            if (!metadata.isTruncated() && metadata.getResponse() != null &&
+                !metadata.getResponse().isEmpty()) {
+                responseTexts.add(metadata.getResponse());
+            }
         }
 
-        return dotProduct / (norm1 * norm2);
-    }
-
-    /**
-     * Calculate similarity matrix for all pairs of embeddings
-     *
-     * @param embeddings List of embedding vectors
-     * @return 2D array with similarity scores
-     */
-    private double[][] calculateSimilarityMatrix(List<List<Double>> embeddings) {
-        int n = embeddings.size();
-        double[][] matrix = new double[n][n];
+        System.out.println("\n🔍 Analyzing semantic similarity for prompt: " + shortPrompt);
+        System.out.println("   Responses to analyze: " + responses.size() + " (" + responseTexts.size() + " complete)");
 
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                if (i == j) {
-                    matrix[i][j] = 1.0;  // Self-similarity is always 1
-                } else if (i < j) {
-                    // Calculate similarity only once per pair
-                    double similarity = cosineSimilarity(embeddings.get(i), embeddings.get(j));
-                    matrix[i][j] = similarity;
-                    matrix[j][i] = similarity;  // Symmetric matrix
-                }
-            }
+        if (responseTexts.size() < 2) {
+            System.out.println("   ⚠️ Not enough complete responses for similarity analysis (need >=2, have " +
+                responseTexts.size() + ")");
+            return CompletableFuture.completedFuture(createEmptyResult(prompt, category, responses.size()));
         }
 
-        return matrix;
+        // Get embeddings from the cache, fetching the missing ones from OpenAI (batched with other prompts)
+        return embeddingCache.getEmbeddings(OpenAIClient.EMBEDDING_MODEL, responseTexts, embeddingBatcher)
+            .thenApplyAsync(embeddings -> buildResult(prompt, category, embeddings), pool)
+            .exceptionally(e -> {
+                System.err.println("   ❌ Error analyzing semantic similarity for " + shortPrompt + ": " +
+                    OpenAIClient.unwrap(e).getMessage());
+                return createEmptyResult(prompt, category, responses.size());
+            });
     }
 
-    /**
-     * Calculate average similarity from matrix (excluding diagonal)
-     */
-    private double calculateAverageSimilarity(double[][] matrix) {
-        int n = matrix.length;
-        if (n <= 1) return 1.0;
-
-        double sum = 0.0;
-        int count = 0;
-
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                sum += matrix[i][j];
-                count++;
-            }
+    private SemanticAnalysisResult buildResult(String prompt, String category, List<float[]> embeddings) {
+        // Calculate similarities (rows normalized once, blocked E·Eᵀ) and their statistics
+        MatrixMode mode = matrixMode == MatrixMode.AUTO
+            ? (embeddings.size() <= matrixMaxResponses ? MatrixMode.FULL : MatrixMode.NONE)
+            : matrixMode;
+        SimilarityMatrix similarities = SimilarityMatrix.compute(
+            EmbeddingMatrix.normalized(embeddings), pool, mode != MatrixMode.NONE);
+
+        double avgSimilarity = similarities.getAverage();
+        double minSimilarity = similarities.getMin();
+        double maxSimilarity = similarities.getMax();
+
+        // Detect issues
+        boolean isConsistent = avgSimilarity >= SIMILARITY_THRESHOLD;
+        List<String> issues = new ArrayList<>();
+
+        if (!isConsistent) {
+            issues.add("Low average similarity (" + String.format("%.3f", avgSimilarity) +
+                ") below threshold (" + SIMILARITY_THRESHOLD + ")");
         }
 
-        return count > 0 ? sum / count : 0.0;
-    }
-
-    /**
-     * Find minimum similarity (excluding diagonal)
-     */
-    private double calculateMinSimilarity(double[][] matrix) {
-        int n = matrix.length;
-        if (n <= 1) return 1.0;
+        if (minSimilarity < 0.50) {
+            issues.add("Very low minimum similarity (" + String.format("%.3f", minSimilarity) +
+                ") indicates outlier responses");
+        }
 
-        double min = 1.0;
+        // Build result
+        SemanticAnalysisResult result = SemanticAnalysisResult.builder()
+            .prompt(prompt)
+            .category(category)
+            .responseCount(embeddings.size())
+            .avgSimilarity(avgSimilarity)
+            .minSimilarity(minSimilarity)
+            .maxSimilarity(maxSimilarity)
+            .similarityMatrix(mode == MatrixMode.FULL ? similarities.toSquare() : new double[0][0])
+            .similarityUpper(mode == MatrixMode.PACKED ? similarities.getPacked() : null)
+            .isConsistent(isConsistent)
+            .issues(issues)
+            .build();
 
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                if (matrix[i][j] < min) {
-                    min = matrix[i][j];
-                }
-            }
-        }
+        // One line per prompt: results of concurrent prompts arrive interleaved
+        System.out.println("   " + (isConsistent ? "✅" : "⚠️") + " " +
+            prompt.substring(0, Math.min(40, prompt.length())) + "... " + embeddings.size() + " vectors of " +
+            embeddings.get(0).length + " dims, similarity avg " + String.format("%.3f", avgSimilarity) +
+            " min " + String.format("%.3f", minSimilarity) + " max " + String.format("%.3f", maxSimilarity) +
+            " - " + (isConsistent ? "PASS" : "FAIL") + (issues.isEmpty() ? "" : " (" + issues.size() + " issues)"));
 
-        return min;
+        return result;
     }
 
     /**
-     * Find maximum similarity (excluding diagonal)
+     * Calculate cosine similarity between two embedding vectors
+     *
+     * @param embedding1 First embedding vector
+     * @param embedding2 Second embedding vector
+     * @return Cosine similarity (0-1)
      */
-    private double calculateMaxSimilarity(double[][] matrix) {
-        int n = matrix.length;
-        if (n <= 1) return 1.0;
-
-        double max = 0.0;
-
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                if (matrix[i][j] > max) {
-                    max = matrix[i][j];
-                }
-            }
-        }
-
-        return max;
+    public double cosineSimilarity(float[] embedding1, float[] embedding2) {
+        return EmbeddingMatrix.cosine(embedding1, embedding2);
     }
 
     /**
@@ -255,4 +202,29 @@ public class SemanticAnalyzer {
     public boolean testConnection() {
         return openAIClient.testConnection();
     }
+
+    /**
+     * Sends the embedding texts queued by the analyses started so far, without waiting for the batcher's
+     * linger time
+     */
+    public void flushEmbeddings() {
+        embeddingBatcher.flush();
+    }
+
+    public EmbeddingCache getEmbeddingCache() {
+        return embeddingCache;
+    }
+
+    public EmbeddingBatcher getEmbeddingBatcher() {
+        return embeddingBatcher;
+    }
+
+    /**
+     * Stops the similarity pool and closes the embedding cache file
+     */
+    @Override
+    public void close() throws IOException {
+        pool.shutdown();
+        embeddingCache.close();
+    }
 }
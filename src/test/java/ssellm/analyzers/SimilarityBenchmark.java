@@ -0,0 +1,112 @@
+package ssellm.analyzers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times the pairwise similarity matrix of random embeddings: the former representation (boxed
+ * {@code List<Double>} vectors, converted and normalized again for every pair) against
+ * {@link EmbeddingMatrix} (flat float rows normalized once, dot-product kernel), and the blocked
+ * {@link SimilarityMatrix} with statistics only on 1..threads threads.
+ *
+ * Usage: {@code SimilarityBenchmark [n=500] [dimension=1536] [iterations=10] [threads=processors]}
+ */
+public class SimilarityBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 1536;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        Random random = new Random(42);
+        List<float[]> vectors = new ArrayList<>(n);
+        List<List<Double>> boxed = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            float[] vector = new float[dimension];
+            List<Double> boxedVector = new ArrayList<>(dimension);
+            for (int d = 0; d < dimension; d++) {
+                vector[d] = (float) random.nextGaussian();
+                boxedVector.add((double) vector[d]);
+            }
+            vectors.add(vector);
+            boxed.add(boxedVector);
+        }
+
+        System.out.println("⏱️ Similarity matrix, n=" + n + ", dimension=" + dimension + ", " + iterations + " iterations");
+        double boxedSum = 0.0;
+        double flatSum = 0.0;
+        long boxedNanos = Long.MAX_VALUE;
+        long flatNanos = Long.MAX_VALUE;
+        for (int iteration = -2; iteration < iterations; iteration++) { // 2 warm-up rounds
+            long start = System.nanoTime();
+            boxedSum = boxedMatrixSum(boxed);
+            long boxedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            flatSum = flatMatrixSum(vectors);
+            long flatTime = System.nanoTime() - start;
+
+            if (iteration >= 0) {
+                boxedNanos = Math.min(boxedNanos, boxedTime);
+                flatNanos = Math.min(flatNanos, flatTime);
+            }
+        }
+
+        System.out.println(String.format("  List<Double>, per-pair norms: %8.1f ms", boxedNanos / 1e6));
+        System.out.println(String.format("  EmbeddingMatrix (float[]):    %8.1f ms  (%.1fx)", flatNanos / 1e6,
+                (double) boxedNanos / flatNanos));
+        System.out.println(String.format("  Sum of similarities: %.4f vs %.4f", boxedSum, flatSum));
+
+        EmbeddingMatrix matrix = EmbeddingMatrix.normalized(vectors);
+        for (int parallelism = 1; parallelism <= threads; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long blockedNanos = Long.MAX_VALUE;
+            SimilarityMatrix similarities = null;
+            for (int iteration = -2; iteration < iterations; iteration++) {
+                long start = System.nanoTime();
+                similarities = SimilarityMatrix.compute(matrix, pool, false);
+                if (iteration >= 0) {
+                    blockedNanos = Math.min(blockedNanos, System.nanoTime() - start);
+                }
+            }
+            pool.shutdown();
+            System.out.println(String.format("  SimilarityMatrix, %2d threads: %8.1f ms  (%.1fx)  sum %.4f",
+                    parallelism, blockedNanos / 1e6, (double) boxedNanos / blockedNanos,
+                    similarities.getAverage() * similarities.getPairCount()));
+        }
+    }
+
+    private static double boxedMatrixSum(List<List<Double>> embeddings) {
+        double sum = 0.0;
+        for (int i = 0; i < embeddings.size(); i++) {
+            for (int j = i + 1; j < embeddings.size(); j++) {
+                double[] a = embeddings.get(i).stream().mapToDouble(Double::doubleValue).toArray();
+                double[] b = embeddings.get(j).stream().mapToDouble(Double::doubleValue).toArray();
+                double dot = 0.0;
+                double normA = 0.0;
+                double normB = 0.0;
+                for (int d = 0; d < a.length; d++) {
+                    dot += a[d] * b[d];
+                    normA += a[d] * a[d];
+                    normB += b[d] * b[d];
+                }
+                sum += dot / (Math.sqrt(normA) * Math.sqrt(normB));
+            }
+        }
+        return sum;
+    }
+
+    private static double flatMatrixSum(List<float[]> embeddings) {
+        EmbeddingMatrix matrix = EmbeddingMatrix.normalized(embeddings);
+        double sum = 0.0;
+        for (int i = 0; i < matrix.size(); i++) {
+            for (int j = i + 1; j < matrix.size(); j++) {
+                sum += matrix.similarity(i, j);
+            }
+        }
+        return sum;
+    }
+}
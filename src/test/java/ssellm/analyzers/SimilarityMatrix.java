@@ -0,0 +1,232 @@
+package ssellm.analyzers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Pairwise cosine similarities of the rows of an {@link EmbeddingMatrix}, computed as the upper triangle of
+ * E·Eᵀ.
+ *
+ * Rows are cut into blocks of {@link #BLOCK_ROWS}; the tile of block pair (a, b), b >= a, reuses the rows of
+ * block b (a few hundred KB) from cache for every row of block a instead of streaming all n rows per row.
+ * Within a tile a row is multiplied against four rows at a time, so each of its values is loaded once per
+ * four products.
+ * Each band of tiles (one block a against all blocks b >= a) is a task on a fork-join pool. Min, max and sum
+ * are accumulated per band while the similarities are produced and merged in band order, so the statistics
+ * do not depend on the number of threads, and no n×n matrix has to exist.
+ *
+ * When requested, the similarities are also kept in a packed upper triangle: the n(n-1)/2 pairs i < j,
+ * row by row, as floats (a quarter of a {@code double[n][n]}).
+ */
+public final class SimilarityMatrix {
+
+    static final int BLOCK_ROWS = 32;
+
+    private final int size;
+    private final long pairs;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final float[] packed;
+
+    private SimilarityMatrix(int size, long pairs, double sum, double min, double max, float[] packed) {
+        this.size = size;
+        this.pairs = pairs;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.packed = packed;
+    }
+
+    /**
+     * @param embeddings Normalized embeddings
+     * @param pool       Pool running the bands
+     * @param keep       Whether to keep the similarities (packed upper triangle)
+     */
+    public static SimilarityMatrix compute(EmbeddingMatrix embeddings, ForkJoinPool pool, boolean keep) {
+        int n = embeddings.size();
+        long pairs = (long) n * (n - 1) / 2;
+        if (keep && pairs > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many responses to keep the similarity matrix: " + n);
+        }
+        float[] packed = keep ? new float[(int) pairs] : null;
+
+        List<ForkJoinTask<Band>> tasks = new ArrayList<>();
+        for (int start = 0; start < n; start += BLOCK_ROWS) {
+            int blockStart = start;
+            tasks.add(pool.submit(() -> computeBand(embeddings, blockStart, packed)));
+        }
+
+        Band total = new Band();
+        for (ForkJoinTask<Band> task : tasks) {
+            total.merge(task.join());
+        }
+        return new SimilarityMatrix(n, pairs, total.sum, total.min, total.max, packed);
+    }
+
+    private static Band computeBand(EmbeddingMatrix embeddings, int blockStart, float[] packed) {
+        int n = embeddings.size();
+        int dimension = embeddings.getDimension();
+        float[] values = embeddings.values();
+        int blockEnd = Math.min(blockStart + BLOCK_ROWS, n);
+
+        Band band = new Band();
+        float[] quad = new float[4];
+        for (int tileStart = blockStart; tileStart < n; tileStart += BLOCK_ROWS) {
+            int tileEnd = Math.min(tileStart + BLOCK_ROWS, n);
+            for (int i = blockStart; i < blockEnd; i++) {
+                int rowOffset = i * dimension;
+                long rowBase = packedRowBase(i, n);
+                int j = Math.max(tileStart, i + 1);
+                for (; j + 3 < tileEnd; j += 4) {
+                    dot4(values, rowOffset, j * dimension, dimension, quad);
+                    for (int k = 0; k < 4; k++) {
+                        band.add(quad[k]);
+                        if (packed != null) {
+                            packed[(int) (rowBase + j + k - i - 1)] = quad[k];
+                        }
+                    }
+                }
+                for (; j < tileEnd; j++) {
+                    float similarity = EmbeddingMatrix.dot(values, rowOffset, values, j * dimension, dimension);
+                    band.add(similarity);
+                    if (packed != null) {
+                        packed[(int) (rowBase + j - i - 1)] = similarity;
+                    }
+                }
+            }
+        }
+        return band;
+    }
+
+    /**
+     * Dot products of one row against the four consecutive rows starting at {@code columnOffset}: each value
+     * of the row is loaded once for four multiply-adds.
+     */
+    private static void dot4(float[] values, int rowOffset, int columnOffset, int dimension, float[] out) {
+        int c1 = columnOffset + dimension;
+        int c2 = c1 + dimension;
+        int c3 = c2 + dimension;
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        for (int d = 0; d < dimension; d++) {
+            float a = values[rowOffset + d];
+            s0 += a * values[columnOffset + d];
+            s1 += a * values[c1 + d];
+            s2 += a * values[c2 + d];
+            s3 += a * values[c3 + d];
+        }
+        out[0] = s0;
+        out[1] = s1;
+        out[2] = s2;
+        out[3] = s3;
+    }
+
+    /**
+     * @return Index in the packed triangle of pair (i, i + 1)
+     */
+    private static long packedRowBase(int i, int n) {
+        return (long) i * (2L * n - i - 1) / 2;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getPairCount() {
+        return pairs;
+    }
+
+    /**
+     * @return Average similarity over the pairs, 1.0 with fewer than two rows
+     */
+    public double getAverage() {
+        return pairs > 0 ? sum / pairs : 1.0;
+    }
+
+    public double getMin() {
+        return pairs > 0 ? min : 1.0;
+    }
+
+    public double getMax() {
+        return pairs > 0 ? max : 1.0;
+    }
+
+    public boolean isKept() {
+        return packed != null;
+    }
+
+    /**
+     * @return Similarities of the pairs i < j, row by row, null if not kept
+     */
+    public float[] getPacked() {
+        return packed;
+    }
+
+    /**
+     * @return Similarity of rows i and j (1 on the diagonal)
+     * @throws IllegalStateException if the similarities were not kept
+     */
+    public double get(int i, int j) {
+        if (packed == null) {
+            throw new IllegalStateException("Similarity matrix not kept");
+        }
+        if (i == j) {
+            return 1.0;
+        }
+        int row = Math.min(i, j);
+        int column = Math.max(i, j);
+        return packed[(int) (packedRowBase(row, size) + column - row - 1)];
+    }
+
+    /**
+     * @return Full symmetric matrix with 1 on the diagonal
+     * @throws IllegalStateException if the similarities were not kept
+     */
+    public double[][] toSquare() {
+        if (packed == null) {
+            throw new IllegalStateException("Similarity matrix not kept");
+        }
+        double[][] matrix = new double[size][size];
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            matrix[i][i] = 1.0;
+            for (int j = i + 1; j < size; j++) {
+                matrix[i][j] = packed[index];
+                matrix[j][i] = packed[index];
+                index++;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Running statistics of one band.
+     */
+    private static final class Band {
+        // Same initial bounds as the former per-matrix scans: min capped at 1, max floored at 0
+        private double sum = 0.0;
+        private double min = 1.0;
+        private double max = 0.0;
+
+        private void add(double similarity) {
+            sum += similarity;
+            if (similarity < min) {
+                min = similarity;
+            }
+            if (similarity > max) {
+                max = similarity;
+            }
+        }
+
+        private void merge(Band other) {
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+}
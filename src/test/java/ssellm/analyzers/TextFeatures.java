@@ -0,0 +1,171 @@
+package ssellm.analyzers;
+
+import java.util.*;
+
+/**
+ * Text features of a response, extracted in a single pass by {@link Scanner}: keyword set, Spanish/English
+ * votes for language detection and Markdown markers.
+ *
+ * The definitions are those the consistency analysis has always used:
+ * - Tokens are runs of {@code \w} characters ([A-Za-z0-9_]), lowercased
+ * - Keywords are the distinct tokens longer than 3 characters that are not stopwords
+ * - A language probe word votes once when it appears as a token with a space on both sides
+ * - Markdown is any of {@code ```}, {@code **}, {@code ##} or {@code "- "}
+ */
+public final class TextFeatures {
+
+    private static final Set<String> STOPWORDS = Set.of("the", "is", "are", "and", "or", "but", "with", "for",
+            "el", "la", "de", "que", "es", "un", "una", "para", "con", "por");
+
+    private static final List<String> SPANISH_WORDS = List.of("el", "la", "los", "las", "de", "que", "es", "un", "una", "para", "con");
+    private static final List<String> ENGLISH_WORDS = List.of("the", "is", "are", "of", "to", "and", "a", "in", "that", "have");
+
+    // Probe word -> bit in the votes mask (Spanish in the low bits, English above)
+    private static final Map<String, Integer> PROBE_BITS = new HashMap<>();
+    private static final long SPANISH_MASK = (1L << SPANISH_WORDS.size()) - 1;
+    private static final int MAX_PROBE_LENGTH = 4;
+
+    static {
+        for (int i = 0; i < SPANISH_WORDS.size(); i++) {
+            PROBE_BITS.put(SPANISH_WORDS.get(i), i);
+        }
+        for (int i = 0; i < ENGLISH_WORDS.size(); i++) {
+            PROBE_BITS.put(ENGLISH_WORDS.get(i), SPANISH_WORDS.size() + i);
+        }
+    }
+
+    private final Set<String> keywords;
+    private final int tokenCount;
+    private final int spanishVotes;
+    private final int englishVotes;
+    private final boolean codeFence;
+    private final boolean bold;
+    private final boolean heading;
+    private final boolean listItem;
+
+    private TextFeatures(Set<String> keywords, int tokenCount, long votes,
+                         boolean codeFence, boolean bold, boolean heading, boolean listItem) {
+        this.keywords = Collections.unmodifiableSet(keywords);
+        this.tokenCount = tokenCount;
+        this.spanishVotes = Long.bitCount(votes & SPANISH_MASK);
+        this.englishVotes = Long.bitCount(votes & ~SPANISH_MASK);
+        this.codeFence = codeFence;
+        this.bold = bold;
+        this.heading = heading;
+        this.listItem = listItem;
+    }
+
+    public Set<String> getKeywords() {
+        return keywords;
+    }
+
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    public int getSpanishVotes() {
+        return spanishVotes;
+    }
+
+    public int getEnglishVotes() {
+        return englishVotes;
+    }
+
+    /**
+     * @return "Spanish" if more Spanish than English probe words were found, "English" otherwise
+     */
+    public String getLanguage() {
+        return spanishVotes > englishVotes ? "Spanish" : "English";
+    }
+
+    public boolean hasMarkdown() {
+        return codeFence || bold || heading || listItem;
+    }
+
+    public boolean hasCodeFence() {
+        return codeFence;
+    }
+
+    public boolean hasBold() {
+        return bold;
+    }
+
+    public boolean hasHeading() {
+        return heading;
+    }
+
+    public boolean hasListItem() {
+        return listItem;
+    }
+
+    /**
+     * Hand-written scanner that extracts all features in one pass over the text. Reusable (the token
+     * buffer is kept between calls) but not thread-safe: use one per thread.
+     */
+    public static final class Scanner {
+
+        private char[] token = new char[64];
+
+        public TextFeatures scan(CharSequence text) {
+            Set<String> keywords = new HashSet<>();
+            int tokenCount = 0;
+            long votes = 0;
+            boolean codeFence = false;
+            boolean bold = false;
+            boolean heading = false;
+            boolean listItem = false;
+
+            int length = text.length();
+            int tokenLength = 0;
+            char previous = 0;
+            char beforePrevious = 0;
+            for (int i = 0; i <= length; i++) {
+                char c = i < length ? text.charAt(i) : 0;
+
+                if (isWordChar(c)) {
+                    if (tokenLength == token.length) {
+                        token = Arrays.copyOf(token, tokenLength * 2);
+                    }
+                    token[tokenLength++] = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+                } else {
+                    if (tokenLength > 0) {
+                        tokenCount++;
+                        int start = i - tokenLength;
+                        if (tokenLength > 3) {
+                            String keyword = new String(token, 0, tokenLength);
+                            if (!STOPWORDS.contains(keyword)) {
+                                keywords.add(keyword);
+                            }
+                        }
+                        if (tokenLength <= MAX_PROBE_LENGTH && c == ' ' && start > 0 && text.charAt(start - 1) == ' ') {
+                            Integer bit = PROBE_BITS.get(new String(token, 0, tokenLength));
+                            if (bit != null) {
+                                votes |= 1L << bit;
+                            }
+                        }
+                        tokenLength = 0;
+                    }
+
+                    // Markdown markers
+                    if (c == '`' && previous == '`' && beforePrevious == '`') {
+                        codeFence = true;
+                    } else if (c == '*' && previous == '*') {
+                        bold = true;
+                    } else if (c == '#' && previous == '#') {
+                        heading = true;
+                    } else if (c == ' ' && previous == '-') {
+                        listItem = true;
+                    }
+                }
+                beforePrevious = previous;
+                previous = c;
+            }
+
+            return new TextFeatures(keywords, tokenCount, votes, codeFence, bold, heading, listItem);
+        }
+
+        private static boolean isWordChar(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+    }
+}
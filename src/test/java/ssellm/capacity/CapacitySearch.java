@@ -0,0 +1,300 @@
+package ssellm.capacity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.HdrHistogram.Histogram;
+import ssellm.config.WorkloadConfig;
+import ssellm.metrics.LatencyRecorder;
+import ssellm.models.CapacityReport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the saturation point of the endpoint: the highest arrival rate whose responses still meet the SLO.
+ *
+ * Gatling's injection profile is fixed when the simulation starts, so users are injected at the ceiling
+ * rate ({@code max_rate}) and this controller admits each one with probability {@code target / max_rate};
+ * the others exit before sending a request. Thinning the arrivals this way lets the target rate change
+ * at every level while the injector keeps running.
+ *
+ * Each level runs for {@code level_duration} and labels its users with its own phase ({@code LEVEL-n}).
+ * After {@code warmup}, the remaining part of the level is the measurement window: the TTFT and latency p99
+ * of the level's responses completed in it, read from the live {@link LatencyRecorder}, and the truncation
+ * rate of the responses completed in it are checked against the SLO. The rate grows by {@code step_factor}
+ * while levels pass; after the first failure it is binary-searched between the last passing and the first
+ * failing rate for {@code refine_steps} levels. The resulting capacity curve is written as JSON, and
+ * {@link #isFinished()} tells the simulation to stop injecting.
+ */
+public class CapacitySearch implements AutoCloseable {
+
+    private static final long TICK_MS = 250;
+
+    private final WorkloadConfig.CapacitySearch config;
+    private final WorkloadConfig.Slo slo;
+    private final Path reportFile;
+    private final CapacityReport report = new CapacityReport();
+    private final LatencyRecorder latencyRecorder;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+
+    // Read by Gatling threads
+    private volatile double targetRate;
+    private volatile String phase = "LEVEL-1";
+    private volatile boolean finished = false;
+
+    // Controller thread only
+    private int level = 1;
+    private long levelStartNanos;
+    private boolean measuring = false;
+    private long measureStartNanos;
+    private long admittedAtMeasureStart;
+    private long completedAtMeasureStart;
+    private long truncatedAtMeasureStart;
+    private Histogram ttftAtMeasureStart;
+    private Histogram latencyAtMeasureStart;
+    private double lastPassingRate = 0;
+    private double firstFailingRate = Double.NaN;
+    private int refineLeft = -1; // -1 while stepping up
+
+    /**
+     * @param workload        Workload with a {@code capacity_search} section
+     * @param latencyRecorder Live recorder fed with the TTFT and latency of every response
+     * @param reportFile      Capacity curve report (JSON)
+     */
+    public CapacitySearch(WorkloadConfig workload, LatencyRecorder latencyRecorder, Path reportFile) {
+        if (workload.capacitySearch == null) {
+            throw new IllegalArgumentException("Workload has no capacity_search section");
+        }
+        this.config = workload.capacitySearch;
+        this.slo = config.slo;
+        this.latencyRecorder = latencyRecorder;
+        this.reportFile = reportFile;
+        this.report.endpoint = workload.endpoint.baseUrl;
+        this.report.slo = slo.toString();
+        this.targetRate = config.startRate;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "capacity-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the first level. Call when the injection starts.
+     */
+    public void start() {
+        levelStartNanos = System.nanoTime();
+        System.out.println("🔎 Capacity search started: " + config);
+        System.out.println(String.format("🔎 %s: target %.1f users/sec", phase, targetRate));
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                // An exception would cancel the periodic task
+                System.err.println("❌ Capacity search error: " + e.getMessage());
+            }
+        }, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Decides whether an injected user sends its request at the current level.
+     */
+    public boolean admit() {
+        if (finished) {
+            return false;
+        }
+        if (ThreadLocalRandom.current().nextDouble() * config.maxRate >= targetRate) {
+            return false;
+        }
+        admitted.increment();
+        return true;
+    }
+
+    /**
+     * @return Phase label of the current level ({@code LEVEL-n})
+     */
+    public String currentPhase() {
+        return phase;
+    }
+
+    /**
+     * Counts a completed (or cut off) response; its TTFT and latency go to the {@link LatencyRecorder}.
+     */
+    public void record(boolean wasTruncated) {
+        if (wasTruncated) {
+            truncated.increment();
+        }
+        completed.increment();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public CapacityReport getReport() {
+        return report;
+    }
+
+    /**
+     * Stops the controller and writes the report (also when the injection ended before the knee was found).
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (!finished) {
+                finish("Injection ended before the search converged");
+            }
+        }
+    }
+
+    // ========== Controller ==========
+
+    private synchronized void tick() {
+        if (finished) {
+            return;
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - levelStartNanos);
+        if (!measuring && elapsedMs >= config.getWarmupMillis()) {
+            // The warm-up is left out by subtracting what was recorded up to now
+            measureStartNanos = System.nanoTime();
+            ttftAtMeasureStart = latencyRecorder.phaseTotal(LatencyRecorder.Metric.TTFT, phase);
+            latencyAtMeasureStart = latencyRecorder.phaseTotal(LatencyRecorder.Metric.LATENCY, phase);
+            admittedAtMeasureStart = admitted.sum();
+            completedAtMeasureStart = completed.sum();
+            truncatedAtMeasureStart = truncated.sum();
+            measuring = true;
+        } else if (measuring && elapsedMs >= config.getLevelDurationMillis()) {
+            evaluateLevel();
+        }
+    }
+
+    private void evaluateLevel() {
+        double seconds = (System.nanoTime() - measureStartNanos) / 1e9;
+        Histogram ttft = latencyRecorder.phaseTotal(LatencyRecorder.Metric.TTFT, phase);
+        ttft.subtract(ttftAtMeasureStart);
+        Histogram latency = latencyRecorder.phaseTotal(LatencyRecorder.Metric.LATENCY, phase);
+        latency.subtract(latencyAtMeasureStart);
+        long completedInWindow = completed.sum() - completedAtMeasureStart;
+        long truncatedInWindow = truncated.sum() - truncatedAtMeasureStart;
+
+        CapacityReport.LevelResult result = new CapacityReport.LevelResult();
+        result.phase = phase;
+        result.targetRate = targetRate;
+        result.admittedRate = seconds > 0 ? (admitted.sum() - admittedAtMeasureStart) / seconds : 0.0;
+        result.throughput = seconds > 0 ? completedInWindow / seconds : 0.0;
+        result.completed = completedInWindow;
+        result.truncationRate = completedInWindow > 0 ? (double) truncatedInWindow / completedInWindow : 0.0;
+        result.ttftP50Ms = ttft.getValueAtPercentile(50) / 1000.0;
+        result.ttftP99Ms = ttft.getValueAtPercentile(99) / 1000.0;
+        result.latencyP50Ms = latency.getValueAtPercentile(50) / 1000.0;
+        result.latencyP99Ms = latency.getValueAtPercentile(99) / 1000.0;
+
+        if (result.completed < config.minSamples) {
+            result.violations.add("completed " + result.completed + " < " + config.minSamples);
+        }
+        if (result.ttftP99Ms > slo.ttftP99Ms) {
+            result.violations.add(String.format("ttft_p99 %.0fms > %.0fms", result.ttftP99Ms, slo.ttftP99Ms));
+        }
+        if (result.latencyP99Ms > slo.latencyP99Ms) {
+            result.violations.add(String.format("latency_p99 %.0fms > %.0fms", result.latencyP99Ms, slo.latencyP99Ms));
+        }
+        if (result.truncationRate > slo.maxTruncationRate) {
+            result.violations.add(String.format("truncation %.1f%% > %.1f%%", result.truncationRate * 100, slo.maxTruncationRate * 100));
+        }
+        result.passed = result.violations.isEmpty();
+        report.curve.add(result);
+        System.out.println("🔎 " + result);
+
+        double rate = targetRate;
+        if (result.passed) {
+            lastPassingRate = Math.max(lastPassingRate, rate);
+        } else if (Double.isNaN(firstFailingRate) || rate < firstFailingRate) {
+            firstFailingRate = rate;
+        }
+
+        Double next = nextRate(result.passed, rate);
+        if (next == null) {
+            return;
+        }
+        level++;
+        phase = "LEVEL-" + level;
+        targetRate = next;
+        levelStartNanos = System.nanoTime();
+        measuring = false;
+        System.out.println(String.format("🔎 %s: target %.1f users/sec", phase, next));
+    }
+
+    /**
+     * @return Rate of the next level, or null when the search is over
+     */
+    private Double nextRate(boolean passed, double rate) {
+        if (refineLeft < 0) {
+            // Stepping up
+            if (passed) {
+                if (rate >= config.maxRate) {
+                    finish("max_rate reached without breaking the SLO");
+                    return null;
+                }
+                return Math.min(rate * config.stepFactor, config.maxRate);
+            }
+            if (lastPassingRate == 0) {
+                finish("SLO broken at start_rate");
+                return null;
+            }
+            refineLeft = config.refineSteps;
+        }
+
+        // Binary search between the last passing and the first failing rate
+        if (refineLeft == 0) {
+            finish("Knee found");
+            return null;
+        }
+        refineLeft--;
+        return (lastPassingRate + firstFailingRate) / 2;
+    }
+
+    private void finish(String reason) {
+        finished = true;
+        targetRate = 0;
+        report.capacityRate = lastPassingRate;
+        report.kneeRate = Double.isNaN(firstFailingRate) ? null : firstFailingRate;
+        report.stopReason = reason;
+
+        System.out.println(String.format("🔎 Capacity search finished (%s): capacity %.1f users/sec%s",
+                reason, lastPassingRate,
+                report.kneeRate != null ? String.format(", knee at %.1f users/sec", report.kneeRate) : ""));
+        writeReport();
+    }
+
+    private void writeReport() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        try {
+            if (reportFile.getParent() != null) {
+                Files.createDirectories(reportFile.getParent());
+            }
+            objectMapper.writeValue(reportFile.toFile(), report);
+            System.out.println("💾 Capacity curve saved to: " + reportFile);
+        } catch (IOException e) {
+            System.err.println("❌ Error saving capacity curve: " + e.getMessage());
+        }
+    }
+}
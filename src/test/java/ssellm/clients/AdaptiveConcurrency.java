@@ -0,0 +1,64 @@
+package ssellm.clients;
+
+/**
+ * AIMD controller of a {@link ConcurrencyLimiter}: the limit grows by about one per round of successful
+ * calls (+1/limit per success) and is halved when the server throttles, so it settles just under the
+ * concurrency the API sustains.
+ *
+ * Throttles arriving within {@link #DECREASE_INTERVAL_NANOS} of a decrease belong to the same burst (calls
+ * already in flight at the old limit) and do not halve it again.
+ */
+public class AdaptiveConcurrency {
+
+    static final long DECREASE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final ConcurrencyLimiter limiter;
+    private final int minLimit;
+    private final int maxLimit;
+    private double estimate;
+    private long lastDecreaseNanos;
+    private int decreases = 0;
+
+    /**
+     * @param limiter  Limiter to drive (starts at its current limit)
+     * @param maxLimit Upper bound of the limit
+     */
+    public AdaptiveConcurrency(ConcurrencyLimiter limiter, int maxLimit) {
+        this.limiter = limiter;
+        this.minLimit = 1;
+        this.maxLimit = maxLimit;
+        this.estimate = limiter.getLimit();
+        this.lastDecreaseNanos = System.nanoTime() - DECREASE_INTERVAL_NANOS;
+    }
+
+    public synchronized void onSuccess() {
+        estimate = Math.min(maxLimit, estimate + 1.0 / estimate);
+        apply();
+    }
+
+    public synchronized void onThrottle() {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < DECREASE_INTERVAL_NANOS) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        decreases++;
+        estimate = Math.max(minLimit, estimate / 2);
+        apply();
+    }
+
+    private void apply() {
+        int limit = (int) estimate;
+        if (limit != limiter.getLimit()) {
+            limiter.setLimit(limit);
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) estimate;
+    }
+
+    public synchronized int getDecreases() {
+        return decreases;
+    }
+}
@@ -0,0 +1,115 @@
+package ssellm.clients;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of an {@link OpenAIClient}: calls, attempts, retries, throttling and achieved throughput.
+ */
+public class ClientMetrics {
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong throttleWaits = new AtomicLong();
+    private final AtomicLong throttleWaitNanos = new AtomicLong();
+    private final AtomicLong estimatedTokens = new AtomicLong();
+
+    void onCall(long tokens) {
+        calls.incrementAndGet();
+        estimatedTokens.addAndGet(tokens);
+    }
+
+    void onAttempt() {
+        attempts.incrementAndGet();
+    }
+
+    void onThrottleWait(long nanos) {
+        throttleWaits.incrementAndGet();
+        throttleWaitNanos.addAndGet(nanos);
+    }
+
+    void onStatus(int statusCode) {
+        if (statusCode == 429) {
+            rateLimited.incrementAndGet();
+        } else if (statusCode >= 500) {
+            serverErrors.incrementAndGet();
+        }
+    }
+
+    void onRetry() {
+        retries.incrementAndGet();
+    }
+
+    void onSuccess() {
+        succeeded.incrementAndGet();
+    }
+
+    void onFailure() {
+        failed.incrementAndGet();
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    public long getServerErrors() {
+        return serverErrors.get();
+    }
+
+    /**
+     * @return Number of sends delayed by the client-side limits or a Retry-After pause
+     */
+    public long getThrottleWaits() {
+        return throttleWaits.get();
+    }
+
+    public double getThrottleWaitSeconds() {
+        return throttleWaitNanos.get() / 1e9;
+    }
+
+    public long getEstimatedTokens() {
+        return estimatedTokens.get();
+    }
+
+    /**
+     * @return Successful calls per minute since the client was created
+     */
+    public double getThroughputPerMinute() {
+        double minutes = (System.nanoTime() - startNanos) / 60e9;
+        return minutes > 0 ? succeeded.get() / minutes : 0.0;
+    }
+
+    public void printSummary(int concurrencyLimit) {
+        System.out.println(String.format("🌐 OpenAI client: %d calls (%d ok, %d failed), %d attempts, %d retries, "
+                        + "%d rate-limited, %d server errors", getCalls(), getSucceeded(), getFailed(), getAttempts(),
+                getRetries(), getRateLimited(), getServerErrors()));
+        System.out.println(String.format("   Throttled %d sends for %.1fs total, ~%d tokens, %.1f calls/min, "
+                        + "concurrency limit %d", getThrottleWaits(), getThrottleWaitSeconds(), getEstimatedTokens(),
+                getThroughputPerMinute(), concurrencyLimit));
+    }
+}
@@ -0,0 +1,112 @@
+package ssellm.clients;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of asynchronous calls in flight without blocking any thread: a call over the limit is
+ * queued and started when an earlier one completes. Calls start in submission order.
+ */
+public class ConcurrencyLimiter {
+
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int limit;
+    private int inFlight = 0;
+
+    public ConcurrencyLimiter(int limit) {
+        setLimit(limit);
+    }
+
+    /**
+     * Starts the call now if under the limit, or when a slot frees up.
+     *
+     * @param call Starts the asynchronous call
+     * @return Completes with the call's result
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        boolean startNow;
+        synchronized (this) {
+            startNow = inFlight < limit;
+            if (startNow) {
+                inFlight++;
+            } else {
+                waiting.add(start);
+            }
+        }
+        if (startNow) {
+            start.run();
+        }
+        return result;
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            inFlight--;
+            next = pollStartable();
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    private Runnable pollStartable() {
+        if (inFlight < limit && !waiting.isEmpty()) {
+            inFlight++;
+            return waiting.poll();
+        }
+        return null;
+    }
+
+    /**
+     * Changes the limit; raising it starts queued calls right away.
+     */
+    public void setLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                this.limit = limit;
+                next = pollStartable();
+            }
+            if (next == null) {
+                return;
+            }
+            next.run();
+        }
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+}
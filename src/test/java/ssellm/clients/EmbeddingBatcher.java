@@ -0,0 +1,206 @@
+package ssellm.clients;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micro-batcher in front of {@link OpenAIClient#getEmbeddingsAsync(List)}: texts from every caller are packed
+ * into shared requests of up to {@code maxInputs} texts and {@code maxTokens} estimated tokens, and each
+ * caller's future completes with its own vectors, in order, once every batch holding one of its texts has
+ * returned.
+ *
+ * A batch is sent as soon as it is full, when {@link #flush()} is called (e.g. after all prompts of a report
+ * have been submitted), or {@code lingerMillis} after its first text arrived, whichever comes first. A caller
+ * with more texts than fit in one batch is split across several.
+ */
+public class EmbeddingBatcher implements EmbeddingCache.Loader {
+
+    /** Inputs per request accepted by the embeddings endpoint */
+    public static final int DEFAULT_MAX_INPUTS = 2048;
+    /** Below the endpoint's 300k tokens per request, leaving room for the estimate's error */
+    public static final long DEFAULT_MAX_TOKENS = 250_000;
+    public static final long DEFAULT_LINGER_MILLIS = 50;
+
+    private final OpenAIClient client;
+    private final int maxInputs;
+    private final long maxTokens;
+    private final long lingerMillis;
+
+    private Batch open = new Batch();
+    private boolean flushScheduled = false;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong texts = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * @param maxInputs    Texts per request
+     * @param maxTokens    Estimated tokens per request
+     * @param lingerMillis Longest wait for more texts before a partial batch is sent
+     */
+    public EmbeddingBatcher(OpenAIClient client, int maxInputs, long maxTokens, long lingerMillis) {
+        if (maxInputs < 1 || maxTokens < 1) {
+            throw new IllegalArgumentException("maxInputs and maxTokens must be positive");
+        }
+        this.client = client;
+        this.maxInputs = maxInputs;
+        this.maxTokens = maxTokens;
+        this.lingerMillis = lingerMillis;
+    }
+
+    /**
+     * Batcher configured by {@code embedding.batchMaxInputs} (default {@value #DEFAULT_MAX_INPUTS}),
+     * {@code embedding.batchMaxTokens} (default {@value #DEFAULT_MAX_TOKENS}) and
+     * {@code embedding.batchLingerMs} (default {@value #DEFAULT_LINGER_MILLIS}).
+     */
+    public static EmbeddingBatcher fromSystemProperties(OpenAIClient client) {
+        return new EmbeddingBatcher(client,
+                Integer.getInteger("embedding.batchMaxInputs", DEFAULT_MAX_INPUTS),
+                Long.getLong("embedding.batchMaxTokens", DEFAULT_MAX_TOKENS),
+                Long.getLong("embedding.batchLingerMs", DEFAULT_LINGER_MILLIS));
+    }
+
+    /**
+     * Queues texts for embedding.
+     *
+     * @return Embeddings of the texts, in order
+     */
+    @Override
+    public CompletableFuture<List<float[]>> load(List<String> textsToEmbed) {
+        if (textsToEmbed.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        calls.incrementAndGet();
+        texts.addAndGet(textsToEmbed.size());
+
+        Request request = new Request(textsToEmbed.size());
+        List<Batch> full = new ArrayList<>();
+        boolean scheduleFlush;
+        synchronized (this) {
+            for (int i = 0; i < textsToEmbed.size(); i++) {
+                String text = textsToEmbed.get(i);
+                long tokens = RateLimiter.estimateTokens(text.getBytes(StandardCharsets.UTF_8).length);
+                if (!open.isEmpty() && (open.size() >= maxInputs || open.tokens + tokens > maxTokens)) {
+                    full.add(open);
+                    open = new Batch();
+                }
+                open.add(text, tokens, request, i);
+            }
+            scheduleFlush = !flushScheduled;
+            flushScheduled = true;
+        }
+
+        full.forEach(this::send);
+        if (scheduleFlush) {
+            CompletableFuture.delayedExecutor(lingerMillis, TimeUnit.MILLISECONDS).execute(this::flush);
+        }
+        return request.future;
+    }
+
+    /**
+     * Sends the texts queued so far without waiting for the linger time.
+     */
+    public void flush() {
+        Batch batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (open.isEmpty()) {
+                return;
+            }
+            batch = open;
+            open = new Batch();
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        batches.incrementAndGet();
+        client.getEmbeddingsAsync(batch.texts).whenComplete((vectors, error) -> {
+            if (error == null && vectors.size() != batch.size()) {
+                error = new RuntimeException("Expected " + batch.size() + " embeddings, got " + vectors.size());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                Request request = batch.requests.get(i);
+                if (error != null) {
+                    request.future.completeExceptionally(error);
+                } else {
+                    request.set(batch.positions.get(i), vectors.get(i));
+                }
+            }
+        });
+    }
+
+    // ========== Statistics ==========
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getTexts() {
+        return texts.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public void printStats() {
+        System.out.println(String.format("📦 Embedding batcher: %d texts from %d calls sent in %d requests",
+                getTexts(), getCalls(), getBatches()));
+    }
+
+    /**
+     * Texts of one request to the API, with the caller and position each one goes back to
+     */
+    private static final class Batch {
+        private final List<String> texts = new ArrayList<>();
+        private final List<Request> requests = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+        private long tokens = 0;
+
+        private void add(String text, long textTokens, Request request, int position) {
+            texts.add(text);
+            requests.add(request);
+            positions.add(position);
+            tokens += textTokens;
+        }
+
+        private int size() {
+            return texts.size();
+        }
+
+        private boolean isEmpty() {
+            return texts.isEmpty();
+        }
+    }
+
+    /**
+     * One caller's vectors, filled by one or more batches
+     */
+    private static final class Request {
+        private final float[][] vectors;
+        private final CompletableFuture<List<float[]>> future = new CompletableFuture<>();
+        private int remaining;
+
+        private Request(int size) {
+            this.vectors = new float[size][];
+            this.remaining = size;
+        }
+
+        private void set(int position, float[] vector) {
+            boolean done;
+            synchronized (this) {
+                vectors[position] = vector;
+                done = --remaining == 0;
+            }
+            if (done) {
+                future.complete(Arrays.asList(vectors));
+            }
+        }
+    }
+}
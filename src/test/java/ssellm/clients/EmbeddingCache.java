@@ -0,0 +1,178 @@
+package ssellm.clients;
+
+import ssellm.store.ContentAddressedCache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of embedding vectors keyed by the SHA-256 of (model, text).
+ *
+ * Lookups go through a {@link ContentAddressedCache} (in-memory LRU, then a file that survives across
+ * runs); only the texts found in neither are sent to the API, once each even if they repeat within
+ * the batch. Vectors are float32 both from the client and on disk, so a cached run returns exactly what
+ * the first run computed. Returned vectors are shared with the cache: callers must not modify them.
+ */
+public class EmbeddingCache implements AutoCloseable {
+
+    public static final String DEFAULT_FILE = "target/embedding_cache.bin";
+    public static final long DEFAULT_MAX_FILE_MB = 1024;
+    public static final int DEFAULT_MAX_ENTRIES = 2_000;
+
+    /**
+     * Fetches the embeddings of texts, in order (e.g. {@link OpenAIClient#getEmbeddingsAsync(List)}).
+     */
+    @FunctionalInterface
+    public interface Loader {
+        CompletableFuture<List<float[]>> load(List<String> texts);
+    }
+
+    /** Vectors as float32, big-endian */
+    private static final ContentAddressedCache.Codec<float[]> CODEC = new ContentAddressedCache.Codec<>() {
+        @Override
+        public ByteBuffer encode(float[] vector) {
+            ByteBuffer bytes = ByteBuffer.allocate(vector.length * Float.BYTES);
+            bytes.asFloatBuffer().put(vector);
+            return bytes;
+        }
+
+        @Override
+        public float[] decode(ByteBuffer bytes) {
+            FloatBuffer floats = bytes.asFloatBuffer();
+            float[] vector = new float[floats.remaining()];
+            floats.get(vector);
+            return vector;
+        }
+    };
+
+    private final ContentAddressedCache<float[]> cache;
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+
+    /**
+     * @param file       Cache file, null for an in-memory cache only
+     * @param maxFileMb  Bound on the cache file (both generations of the store), in MB
+     * @param maxEntries Vectors kept in memory (about 6 KB each for 1536 dimensions)
+     */
+    public EmbeddingCache(Path file, long maxFileMb, int maxEntries) throws IOException {
+        this(new ContentAddressedCache<>(file, maxFileMb << 20, maxEntries, CODEC));
+    }
+
+    private EmbeddingCache(ContentAddressedCache<float[]> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Cache configured by {@code embedding.cacheFile} (default {@value #DEFAULT_FILE}, {@code none} to keep
+     * it in memory only), {@code embedding.cacheMaxMb} (default {@value #DEFAULT_MAX_FILE_MB}) and
+     * {@code embedding.cacheEntries} (default {@value #DEFAULT_MAX_ENTRIES}).
+     */
+    public static EmbeddingCache fromSystemProperties() throws IOException {
+        return new EmbeddingCache(ContentAddressedCache.fromSystemProperties("embedding", DEFAULT_FILE,
+                DEFAULT_MAX_FILE_MB, DEFAULT_MAX_ENTRIES, CODEC));
+    }
+
+    /**
+     * Returns the embeddings of the texts, in order, fetching only the distinct texts not cached yet.
+     *
+     * @param model  Embedding model (part of the key)
+     * @param texts  Texts to embed
+     * @param loader Called once with the missing texts, if any
+     */
+    public CompletableFuture<List<float[]>> getEmbeddings(String model, List<String> texts, Loader loader) {
+        requested.addAndGet(texts.size());
+
+        // Distinct texts, each resolved once
+        Map<String, float[]> vectors = new HashMap<>();
+        Map<String, ByteBuffer> keys = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        try {
+            for (String text : texts) {
+                if (keys.containsKey(text)) {
+                    duplicates.incrementAndGet();
+                    continue;
+                }
+                ByteBuffer key = ContentAddressedCache.key(model, text);
+                keys.put(text, key);
+                float[] vector = cache.lookup(key);
+                if (vector != null) {
+                    vectors.put(text, vector);
+                } else {
+                    missing.add(text);
+                }
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<List<float[]>> loaded = missing.isEmpty()
+                ? CompletableFuture.completedFuture(Collections.emptyList())
+                : loader.load(missing);
+        return loaded.thenApply(fetchedVectors -> {
+            if (fetchedVectors.size() != missing.size()) {
+                throw new RuntimeException("Expected " + missing.size() + " embeddings, got " + fetchedVectors.size());
+            }
+            fetched.addAndGet(missing.size());
+            for (int i = 0; i < missing.size(); i++) {
+                float[] vector = fetchedVectors.get(i);
+                cache.store(keys.get(missing.get(i)), vector);
+                vectors.put(missing.get(i), vector);
+            }
+
+            List<float[]> embeddings = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                embeddings.add(vectors.get(text));
+            }
+            return embeddings;
+        });
+    }
+
+    // ========== Statistics ==========
+
+    public long getRequested() {
+        return requested.get();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    public long getMemoryHits() {
+        return cache.getMemoryHits();
+    }
+
+    public long getDiskHits() {
+        return cache.getDiskHits();
+    }
+
+    public long getFetched() {
+        return fetched.get();
+    }
+
+    /**
+     * @return Fraction of requested texts that did not go to the API
+     */
+    public double getHitRate() {
+        long total = requested.get();
+        return total > 0 ? 1.0 - (double) fetched.get() / total : 0.0;
+    }
+
+    public void printStats() {
+        System.out.println(String.format("💾 Embedding cache: %d texts requested, %d fetched, %d from memory, "
+                        + "%d from disk, %d duplicates in batch (hit rate %.1f%%)%s",
+                getRequested(), getFetched(), getMemoryHits(), getDiskHits(), getDuplicates(), getHitRate() * 100,
+                cache.describeFile("vectors")));
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.close();
+    }
+}
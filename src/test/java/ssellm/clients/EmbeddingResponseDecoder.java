@@ -0,0 +1,276 @@
+package ssellm.clients;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Body subscriber decoding an embeddings response ({@code {"data": [{"embedding": [...]}, ...]}}) as its
+ * bytes arrive: each chunk is fed to Jackson's non-blocking parser and the numbers of every
+ * {@code data[i].embedding} array go straight into a {@code float[]}, in the order of {@code data}.
+ *
+ * Neither the body nor a JSON tree is ever materialized, and no number is boxed: besides the vectors
+ * themselves, memory is the parser's buffers and the chunk being parsed. The first vector is allocated at
+ * {@link #DEFAULT_DIMENSION} and grown if needed; the following ones at the dimension of the first. Other
+ * fields (model, usage...) are skipped.
+ *
+ * Decoding runs on the HTTP client's thread delivering the chunk, so no thread blocks waiting for input.
+ * One instance decodes one response.
+ */
+public class EmbeddingResponseDecoder implements HttpResponse.BodySubscriber<List<float[]>> {
+
+    /** Dimension of {@link OpenAIClient#EMBEDDING_MODEL} */
+    public static final int DEFAULT_DIMENSION = 1536;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Fast path of parseFloat: digits and powers of ten a double holds exactly
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_EXACT_POWER = 22;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final CompletableFuture<List<float[]>> result = new CompletableFuture<>();
+    private final List<float[]> embeddings = new ArrayList<>();
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private Flow.Subscription subscription;
+
+    // Position in the document
+    private int depth = 0;
+    private String field;
+    private boolean inData = false;
+    private boolean seenData = false;
+
+    // Vector being read
+    private float[] vector;
+    private int length = -1;
+    private int dimension = DEFAULT_DIMENSION;
+
+    public EmbeddingResponseDecoder() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    @Override
+    public CompletionStage<List<float[]>> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> chunks) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            for (ByteBuffer chunk : chunks) {
+                feeder.feedInput(chunk);
+                drain();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        result.completeExceptionally(error);
+        closeParser();
+    }
+
+    @Override
+    public void onComplete() {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            feeder.endOfInput();
+            drain();
+            if (depth != 0 || !seenData) {
+                throw new IOException("Incomplete embeddings response: " + (seenData ? "truncated" : "no data"));
+            }
+            result.complete(embeddings);
+        } catch (IOException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        closeParser();
+    }
+
+    /**
+     * Handles every token available in the input fed so far
+     */
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case VALUE_NUMBER_FLOAT:
+                case VALUE_NUMBER_INT:
+                    if (length >= 0) {
+                        append(parseFloat(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                    }
+                    break;
+                case FIELD_NAME:
+                    field = parser.currentName();
+                    break;
+                case START_ARRAY:
+                    depth++;
+                    if (depth == 2 && "data".equals(field)) {
+                        inData = true;
+                        seenData = true;
+                    } else if (inData && depth == 4 && "embedding".equals(field)) {
+                        vector = new float[dimension];
+                        length = 0;
+                    }
+                    break;
+                case END_ARRAY:
+                    if (length >= 0 && depth == 4) {
+                        finishVector();
+                    } else if (inData && depth == 2) {
+                        inData = false;
+                    }
+                    depth--;
+                    break;
+                case START_OBJECT:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    depth--;
+                    break;
+                case VALUE_STRING:
+                    if (inData && depth == 3 && "embedding".equals(field)) {
+                        throw new IOException("Base64 embeddings are not supported");
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Parses a JSON number from the parser's buffer without a String: exact when its digits fit in a double's
+     * mantissa and the power of ten is exact (always, for the API's ~10 digit values), where one
+     * multiplication or division is correctly rounded; anything else goes through {@link Double#parseDouble}.
+     * Either way the result is the double value rounded to float, as {@code JsonNode.floatValue()} gives
+     * (checked by {@code ssellm.analyzers.ParseFloatCheck}).
+     */
+    public static float parseFloat(char[] text, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = text[i] == '-';
+        if (negative) {
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = text[i];
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    if (++digits > MAX_EXACT_DIGITS) {
+                        return fallback(text, offset, length);
+                    }
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                int j = i + 1;
+                boolean negativeExponent = j < end && text[j] == '-';
+                if (j < end && (text[j] == '-' || text[j] == '+')) {
+                    j++;
+                }
+                int power = 0;
+                for (; j < end && power <= 1000; j++) {
+                    if (text[j] < '0' || text[j] > '9') {
+                        return fallback(text, offset, length);
+                    }
+                    power = power * 10 + (text[j] - '0');
+                }
+                if (j == i + 1 || j < end) {
+                    return fallback(text, offset, length);
+                }
+                exponent += negativeExponent ? -power : power;
+                break;
+            } else {
+                return fallback(text, offset, length);
+            }
+        }
+
+        if (mantissa >= 1L << 53 || exponent < -MAX_EXACT_POWER || exponent > MAX_EXACT_POWER) {
+            return fallback(text, offset, length);
+        }
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return (float) (negative ? -value : value);
+    }
+
+    private static float fallback(char[] text, int offset, int length) {
+        return (float) Double.parseDouble(new String(text, offset, length));
+    }
+
+    private void append(float value) {
+        if (length == vector.length) {
+            vector = Arrays.copyOf(vector, Math.max(16, vector.length * 2));
+        }
+        vector[length++] = value;
+    }
+
+    private void finishVector() {
+        embeddings.add(length == vector.length ? vector : Arrays.copyOf(vector, length));
+        if (embeddings.size() == 1) {
+            dimension = Math.max(1, length);
+        }
+        vector = null;
+        length = -1;
+    }
+
+    private void fail(Exception e) {
+        result.completeExceptionally(e);
+        subscription.cancel();
+        closeParser();
+    }
+
+    private void closeParser() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+}
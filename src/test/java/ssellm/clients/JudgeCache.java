@@ -0,0 +1,136 @@
+package ssellm.clients;
+
+import ssellm.store.ContentAddressedCache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of judge verdicts (the JSON text returned by the judge model) keyed by the SHA-256 of (model, system
+ * prompt, evaluation prompt).
+ *
+ * The evaluation prompt embeds the sampled responses, so a re-run over the same JSONL asks the same
+ * questions and gets every verdict from here; any change to the prompts, the sample or the model is a new
+ * key. Lookups go through a {@link ContentAddressedCache} (in-memory LRU, then a file that survives across
+ * runs). Only successful verdicts are stored.
+ */
+public class JudgeCache implements AutoCloseable {
+
+    public static final String DEFAULT_FILE = "target/judge_cache.bin";
+    public static final long DEFAULT_MAX_FILE_MB = 256;
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+
+    /** Verdicts as UTF-8 text */
+    private static final ContentAddressedCache.Codec<String> CODEC = new ContentAddressedCache.Codec<>() {
+        @Override
+        public ByteBuffer encode(String verdict) {
+            return ByteBuffer.wrap(verdict.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(ByteBuffer bytes) {
+            return StandardCharsets.UTF_8.decode(bytes).toString();
+        }
+    };
+
+    private final ContentAddressedCache<String> cache;
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+
+    /**
+     * @param file       Cache file, null for an in-memory cache only
+     * @param maxFileMb  Bound on the cache file (both generations of the store), in MB
+     * @param maxEntries Verdicts kept in memory
+     */
+    public JudgeCache(Path file, long maxFileMb, int maxEntries) throws IOException {
+        this(new ContentAddressedCache<>(file, maxFileMb << 20, maxEntries, CODEC));
+    }
+
+    private JudgeCache(ContentAddressedCache<String> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Cache configured by {@code judge.cacheFile} (default {@value #DEFAULT_FILE}, {@code none} to keep it in
+     * memory only), {@code judge.cacheMaxMb} (default {@value #DEFAULT_MAX_FILE_MB}) and
+     * {@code judge.cacheEntries} (default {@value #DEFAULT_MAX_ENTRIES}).
+     */
+    public static JudgeCache fromSystemProperties() throws IOException {
+        return new JudgeCache(ContentAddressedCache.fromSystemProperties("judge", DEFAULT_FILE,
+                DEFAULT_MAX_FILE_MB, DEFAULT_MAX_ENTRIES, CODEC));
+    }
+
+    /**
+     * Returns the cached verdict for a judge call, or makes the call and caches its result.
+     *
+     * @param model        Judge model (part of the key)
+     * @param systemPrompt System prompt of the call
+     * @param userPrompt   Evaluation prompt of the call
+     * @param loader       Makes the call when the verdict is not cached
+     * @return Verdict JSON text
+     */
+    public CompletableFuture<String> getVerdict(String model, String systemPrompt, String userPrompt,
+                                                Supplier<CompletableFuture<String>> loader) {
+        requested.incrementAndGet();
+        ByteBuffer key = ContentAddressedCache.key(model, systemPrompt, userPrompt);
+        String verdict;
+        try {
+            verdict = cache.lookup(key);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (verdict != null) {
+            return CompletableFuture.completedFuture(verdict);
+        }
+
+        return loader.get().thenApply(loaded -> {
+            fetched.incrementAndGet();
+            cache.store(key, loaded);
+            return loaded;
+        });
+    }
+
+    // ========== Statistics ==========
+
+    public long getRequested() {
+        return requested.get();
+    }
+
+    public long getMemoryHits() {
+        return cache.getMemoryHits();
+    }
+
+    public long getDiskHits() {
+        return cache.getDiskHits();
+    }
+
+    public long getFetched() {
+        return fetched.get();
+    }
+
+    /**
+     * @return Fraction of requested verdicts that did not go to the API
+     */
+    public double getHitRate() {
+        long total = requested.get();
+        return total > 0 ? (double) (getMemoryHits() + getDiskHits()) / total : 0.0;
+    }
+
+    public void printStats() {
+        System.out.println(String.format("💾 Judge cache: %d verdicts requested, %d fetched, %d from memory, "
+                        + "%d from disk (hit rate %.1f%%)%s",
+                getRequested(), getFetched(), getMemoryHits(), getDiskHits(), getHitRate() * 100,
+                cache.describeFile("verdicts")));
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.close();
+    }
+}
@@ -0,0 +1,51 @@
+package ssellm.clients;
+
+import java.time.Duration;
+
+/**
+ * Non-200 response from the OpenAI API.
+ */
+public class OpenAIApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final String responseBody;
+    private final Duration retryAfter;
+
+    /**
+     * @param retryAfter Wait requested by the server (Retry-After header), null if none
+     */
+    public OpenAIApiException(int statusCode, String responseBody, Duration retryAfter) {
+        super("OpenAI API error: " + statusCode + " - " + responseBody);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    /**
+     * @return Wait requested by the server, null if none
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+
+    /**
+     * @return true for rate limiting (429) and transient server errors (500, 502, 503, 504)
+     */
+    public boolean isRetryable() {
+        return statusCode == 429 || statusCode == 500 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+}
@@ -1,123 +1,186 @@
 package ssellm.clients;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Client for OpenAI API to perform embeddings and GPT-4 evaluations.
  * Sprint 2: Advanced semantic analysis using OpenAI embeddings and LLM-as-judge.
+ *
+ * Every call has a non-blocking {@code ...Async} variant returning a {@link CompletableFuture}; the blocking
+ * methods wait on it. Calls share one HTTP/2 client (requests to the same host are multiplexed over one
+ * connection, falling back to HTTP/1.1 where the server does not speak HTTP/2), and at most
+ * {@code openai.maxConcurrency} (default {@value #DEFAULT_MAX_CONCURRENCY}) are in flight at once, the
+ * others waiting in a queue (see {@link ConcurrencyLimiter}). Each request has its own timeout.
+ *
+ * Before a request is sent, it reserves one request and its estimated tokens with the per-model
+ * {@link RateLimiter}, and waits (without holding a thread) if the client-side RPM/TPM budget is spent.
+ * Responses 429 and 5xx are retried up to {@code openai.maxRetries} (default {@value #DEFAULT_MAX_RETRIES})
+ * times, after the server's Retry-After or an exponential backoff; a 429 also pauses the model and halves
+ * the concurrency limit, which then grows back by AIMD ({@link AdaptiveConcurrency}). Other failures end in
+ * an {@link OpenAIApiException}. Counters are in {@link #getMetrics()}.
+ *
+ * Response bodies are decoded as they arrive: embeddings straight into {@code float[]} by an
+ * {@link EmbeddingResponseDecoder}, judge responses from bytes into a JSON tree; error bodies are kept as text.
  */
 public class OpenAIClient {
 
     private final String apiKey;
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final ConcurrencyLimiter limiter;
+    private final AdaptiveConcurrency adaptiveConcurrency;
+    private final RateLimiter rateLimiter = new RateLimiter();
+    private final ClientMetrics metrics = new ClientMetrics();
+    private final int maxRetries = Integer.getInteger("openai.maxRetries", DEFAULT_MAX_RETRIES);
     private static final String BASE_URL = "https://api.openai.com/v1";
+    public static final String EMBEDDING_MODEL = "text-embedding-3-small";
+    public static final String JUDGE_MODEL = "gpt-4o";
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+    /** Default ceiling of the adaptive limit, as a multiple of the starting one */
+    public static final int DEFAULT_CEILING_FACTOR = 4;
+    public static final int DEFAULT_MAX_RETRIES = 5;
 
+    private static final int JUDGE_MAX_TOKENS = 1500;
+    private static final long BASE_BACKOFF_NANOS = 500_000_000L;
+    private static final long MAX_BACKOFF_NANOS = 30_000_000_000L;
+
+    private static final Duration EMBEDDING_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration BATCH_TIMEOUT = Duration.ofSeconds(120);
+
+    /**
+     * Creates a client for the OpenAI API, or for the URL given by the {@code openai.baseUrl} system property
+     * (e.g. a local MockSseServer)
+     */
     public OpenAIClient(String apiKey) {
+        this(apiKey, System.getProperty("openai.baseUrl", BASE_URL));
+    }
+
+    /**
+     * @param apiKey  API key
+     * @param baseUrl Base URL of an OpenAI-compatible API, e.g. {@code https://api.openai.com/v1}
+     */
+    public OpenAIClient(String apiKey, String baseUrl) {
+        this(apiKey, baseUrl, Integer.getInteger("openai.maxConcurrency", DEFAULT_MAX_CONCURRENCY));
+    }
+
+    /**
+     * @param apiKey         API key
+     * @param baseUrl        Base URL of an OpenAI-compatible API
+     * @param maxConcurrency Requests in flight at start; the limit can grow up to
+     *                       {@code openai.maxConcurrencyCeiling} (default {@value #DEFAULT_CEILING_FACTOR} times this)
+     */
+    public OpenAIClient(String apiKey, String baseUrl, int maxConcurrency) {
+        this(apiKey, baseUrl, maxConcurrency,
+                Integer.getInteger("openai.maxConcurrencyCeiling", maxConcurrency * DEFAULT_CEILING_FACTOR));
+    }
+
+    /**
+     * @param apiKey                API key
+     * @param baseUrl               Base URL of an OpenAI-compatible API
+     * @param maxConcurrency        Requests in flight at start
+     * @param maxConcurrencyCeiling Highest limit the adaptive concurrency may grow to while calls succeed
+     */
+    public OpenAIClient(String apiKey, String baseUrl, int maxConcurrency, int maxConcurrencyCeiling) {
         if (apiKey == null || apiKey.isEmpty()) {
             throw new IllegalArgumentException("API key cannot be null or empty");
         }
+        if (maxConcurrencyCeiling < maxConcurrency) {
+            throw new IllegalArgumentException("maxConcurrencyCeiling (" + maxConcurrencyCeiling
+                    + ") must not be below maxConcurrency (" + maxConcurrency + ")");
+        }
         this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
         this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
                 .connectTimeout(Duration.ofSeconds(30))
                 .build();
         this.objectMapper = new ObjectMapper();
+        this.limiter = new ConcurrencyLimiter(maxConcurrency);
+        this.adaptiveConcurrency = new AdaptiveConcurrency(limiter, maxConcurrencyCeiling);
     }
 
     /**
-     * Get embedding vector for a text using text-embedding-3-small model
+     * Get embedding vector for a text using the {@link #EMBEDDING_MODEL} model
      *
      * @param text Text to embed
-     * @return Embedding vector as list of doubles
+     * @return Embedding vector (float32, the precision the API works at)
+     */
+    public float[] getEmbedding(String text) throws Exception {
+        return await(getEmbeddingAsync(text));
+    }
+
+    /**
+     * Non-blocking {@link #getEmbedding(String)}
      */
-    public List<Double> getEmbedding(String text) throws Exception {
+    public CompletableFuture<float[]> getEmbeddingAsync(String text) {
         ObjectNode requestBody = objectMapper.createObjectNode();
-        requestBody.put("model", "text-embedding-3-small");
+        requestBody.put("model", EMBEDDING_MODEL);
         requestBody.put("input", text);
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + "/embeddings"))
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody)))
-                .timeout(Duration.ofSeconds(60))
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("OpenAI API error: " + response.statusCode() + " - " + response.body());
-        }
-
-        JsonNode responseJson = objectMapper.readTree(response.body());
-        ArrayNode embeddingArray = (ArrayNode) responseJson.get("data").get(0).get("embedding");
-
-        List<Double> embedding = new ArrayList<>();
-        for (JsonNode value : embeddingArray) {
-            embedding.add(value.asDouble());
-        }
-
-        return embedding;
+        return post(EMBEDDING_MODEL, "/embeddings", requestBody, 0, EMBEDDING_TIMEOUT, EmbeddingResponseDecoder::new)
+                .thenApply(embeddings -> {
+                    if (embeddings.isEmpty()) {
+                        throw new RuntimeException("No embedding in response");
+                    }
+                    return embeddings.get(0);
+                });
     }
 
     /**
      * Get embeddings for multiple texts in a single API call (batch processing)
      *
      * @param texts List of texts to embed
-     * @return List of embedding vectors
+     * @return List of embedding vectors, in the order of the texts
      */
-    public List<List<Double>> getEmbeddings(List<String> texts) throws Exception {
+    public List<float[]> getEmbeddings(List<String> texts) throws Exception {
+        return await(getEmbeddingsAsync(texts));
+    }
+
+    /**
+     * Non-blocking {@link #getEmbeddings(List)}
+     */
+    public CompletableFuture<List<float[]>> getEmbeddingsAsync(List<String> texts) {
         if (texts.isEmpty()) {
-            return new ArrayList<>();
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
 
         ObjectNode requestBody = objectMapper.createObjectNode();
-        requestBody.put("model", "text-embedding-3-small");
+        requestBody.put("model", EMBEDDING_MODEL);
 
         ArrayNode inputArray = requestBody.putArray("input");
         for (String text : texts) {
             inputArray.add(text);
         }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + "/embeddings"))
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody)))
-                .timeout(Duration.ofSeconds(120))
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("OpenAI API error: " + response.statusCode() + " - " + response.body());
-        }
-
-        JsonNode responseJson = objectMapper.readTree(response.body());
-        ArrayNode dataArray = (ArrayNode) responseJson.get("data");
-
-        List<List<Double>> embeddings = new ArrayList<>();
-        for (JsonNode dataItem : dataArray) {
-            ArrayNode embeddingArray = (ArrayNode) dataItem.get("embedding");
-            List<Double> embedding = new ArrayList<>();
-            for (JsonNode value : embeddingArray) {
-                embedding.add(value.asDouble());
-            }
-            embeddings.add(embedding);
-        }
-
-        return embeddings;
+        // Vectors are decoded as the body streams in (see EmbeddingResponseDecoder)
+        return post(EMBEDDING_MODEL, "/embeddings", requestBody, 0, BATCH_TIMEOUT, EmbeddingResponseDecoder::new);
     }
 
     /**
@@ -128,37 +191,17 @@ public class OpenAIClient {
      * @return GPT-4 response as string
      */
     public String evaluateWithGPT4(String systemPrompt, String userPrompt) throws Exception {
-        ObjectNode requestBody = objectMapper.createObjectNode();
-        requestBody.put("model", "gpt-4o");
-        requestBody.put("temperature", 0.0);  // Deterministic for evaluation
-        requestBody.put("max_tokens", 1500);
-
-        ArrayNode messagesArray = requestBody.putArray("messages");
-
-        ObjectNode systemMessage = messagesArray.addObject();
-        systemMessage.put("role", "system");
-        systemMessage.put("content", systemPrompt);
-
-        ObjectNode userMessage = messagesArray.addObject();
-        userMessage.put("role", "user");
-        userMessage.put("content", userPrompt);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + "/chat/completions"))
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody)))
-                .timeout(Duration.ofSeconds(120))
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        return await(evaluateWithGPT4Async(systemPrompt, userPrompt));
+    }
 
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("OpenAI API error: " + response.statusCode() + " - " + response.body());
-        }
+    /**
+     * Non-blocking {@link #evaluateWithGPT4(String, String)}
+     */
+    public CompletableFuture<String> evaluateWithGPT4Async(String systemPrompt, String userPrompt) {
+        ObjectNode requestBody = chatRequest(systemPrompt, userPrompt);
 
-        JsonNode responseJson = objectMapper.readTree(response.body());
-        return responseJson.get("choices").get(0).get("message").get("content").asText();
+        return post(JUDGE_MODEL, "/chat/completions", requestBody, JUDGE_MAX_TOKENS, BATCH_TIMEOUT, this::jsonTree)
+                .thenApply(responseJson -> responseJson.get("choices").get(0).get("message").get("content").asText());
     }
 
     /**
@@ -169,15 +212,31 @@ public class OpenAIClient {
      * @return Parsed JSON response
      */
     public JsonNode evaluateWithGPT4JSON(String systemPrompt, String userPrompt) throws Exception {
-        ObjectNode requestBody = objectMapper.createObjectNode();
-        requestBody.put("model", "gpt-4o");
-        requestBody.put("temperature", 0.0);
-        requestBody.put("max_tokens", 1500);
+        return await(evaluateWithGPT4JSONAsync(systemPrompt, userPrompt));
+    }
+
+    /**
+     * Non-blocking {@link #evaluateWithGPT4JSON(String, String)}
+     */
+    public CompletableFuture<JsonNode> evaluateWithGPT4JSONAsync(String systemPrompt, String userPrompt) {
+        ObjectNode requestBody = chatRequest(systemPrompt, userPrompt);
 
         // Enable JSON mode
         ObjectNode responseFormat = requestBody.putObject("response_format");
         responseFormat.put("type", "json_object");
 
+        return post(JUDGE_MODEL, "/chat/completions", requestBody, JUDGE_MAX_TOKENS, BATCH_TIMEOUT, this::jsonTree).thenApply(responseJson -> {
+            String jsonContent = responseJson.get("choices").get(0).get("message").get("content").asText();
+            return readTree(jsonContent);
+        });
+    }
+
+    private ObjectNode chatRequest(String systemPrompt, String userPrompt) {
+        ObjectNode requestBody = objectMapper.createObjectNode();
+        requestBody.put("model", JUDGE_MODEL);
+        requestBody.put("temperature", 0.0);  // Deterministic for evaluation
+        requestBody.put("max_tokens", JUDGE_MAX_TOKENS);
+
         ArrayNode messagesArray = requestBody.putArray("messages");
 
         ObjectNode systemMessage = messagesArray.addObject();
@@ -187,25 +246,213 @@ public class OpenAIClient {
         ObjectNode userMessage = messagesArray.addObject();
         userMessage.put("role", "user");
         userMessage.put("content", userPrompt);
+        return requestBody;
+    }
 
+    /**
+     * Posts a JSON body within the rate limits, once a concurrency slot is free, retrying throttled and
+     * transient failures.
+     *
+     * @param completionTokens Tokens the response may add (counted by the API against the TPM limit)
+     * @param decoder          Creates the subscriber decoding a 200 response body (one per attempt)
+     * @return Decoded response body; fails with an {@link OpenAIApiException} on a non-200 final status
+     */
+    private <T> CompletableFuture<T> post(String model, String path, ObjectNode requestBody, long completionTokens,
+                                          Duration timeout, Supplier<HttpResponse.BodySubscriber<T>> decoder) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(requestBody);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
         HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + "/chat/completions"))
+                .uri(URI.create(baseUrl + path))
                 .header("Authorization", "Bearer " + apiKey)
                 .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody)))
-                .timeout(Duration.ofSeconds(120))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .timeout(timeout)
                 .build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        long tokens = RateLimiter.estimateTokens(body.length) + completionTokens;
+        metrics.onCall(tokens);
+        return attempt(model, request, decoder, tokens, 0, 0).whenComplete((result, error) -> {
+            if (error != null) {
+                metrics.onFailure();
+            } else {
+                metrics.onSuccess();
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> attempt(String model, HttpRequest request,
+                                             Supplier<HttpResponse.BodySubscriber<T>> decoder, long tokens,
+                                             int attempt, long backoffNanos) {
+        long wait = Math.max(backoffNanos, rateLimiter.reserve(model, tokens));
+        if (wait > 0) {
+            metrics.onThrottleWait(wait);
+        }
+
+        return after(wait, () -> limiter.submit(() -> {
+            metrics.onAttempt();
+            // A 200 body goes to the decoder; any other is kept as text for the error
+            return httpClient.sendAsync(request, responseInfo -> responseInfo.statusCode() == 200
+                    ? HttpResponse.BodySubscribers.mapping(decoder.get(), Reply::ok)
+                    : HttpResponse.BodySubscribers.mapping(
+                            HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), Reply::<T>error));
+        })).thenCompose(response -> {
+            if (response.statusCode() == 200) {
+                adaptiveConcurrency.onSuccess();
+                return CompletableFuture.completedFuture(response.body().value);
+            }
+
+            metrics.onStatus(response.statusCode());
+            OpenAIApiException error = new OpenAIApiException(response.statusCode(), response.body().errorBody,
+                    retryAfter(response));
+            if (error.isRateLimited()) {
+                adaptiveConcurrency.onThrottle();
+            }
+            if (!error.isRetryable() || attempt >= maxRetries) {
+                return CompletableFuture.failedFuture(error);
+            }
+
+            long backoff = backoffNanos(error, attempt);
+            if (error.isRateLimited()) {
+                // The whole model is over its limit, not just this request
+                rateLimiter.pause(model, backoff);
+            }
+            metrics.onRetry();
+            return attempt(model, request, decoder, tokens, attempt + 1, backoff);
+        });
+    }
 
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("OpenAI API error: " + response.statusCode() + " - " + response.body());
+    /**
+     * Starts a call after a delay, without blocking a thread meanwhile.
+     */
+    private static <T> CompletableFuture<T> after(long delayNanos, Supplier<CompletableFuture<T>> call) {
+        if (delayNanos <= 0) {
+            return call.get();
         }
+        Executor delayed = CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS);
+        return CompletableFuture.runAsync(() -> { }, delayed).thenCompose(ignored -> call.get());
+    }
 
-        JsonNode responseJson = objectMapper.readTree(response.body());
-        String jsonContent = responseJson.get("choices").get(0).get("message").get("content").asText();
+    /**
+     * @return Server's Retry-After, or an exponential backoff with jitter (0.5 s, 1 s, 2 s... up to 30 s)
+     */
+    private static long backoffNanos(OpenAIApiException error, int attempt) {
+        if (error.getRetryAfter() != null) {
+            return error.getRetryAfter().toNanos();
+        }
+        long exponential = Math.min(MAX_BACKOFF_NANOS, BASE_BACKOFF_NANOS << Math.min(attempt, 16));
+        return (long) (exponential * (0.5 + 0.5 * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /**
+     * @return Wait requested by the response ({@code retry-after-ms}, or {@code Retry-After} in seconds or
+     * as an HTTP date), null if none
+     */
+    static Duration retryAfter(HttpResponse<?> response) {
+        Optional<String> millis = response.headers().firstValue("retry-after-ms");
+        Optional<String> value = response.headers().firstValue("retry-after");
+        try {
+            if (millis.isPresent()) {
+                return Duration.ofMillis((long) Double.parseDouble(millis.get().trim()));
+            }
+            if (value.isPresent()) {
+                String retryAfter = value.get().trim();
+                if (!retryAfter.isEmpty() && Character.isDigit(retryAfter.charAt(0))) {
+                    return Duration.ofMillis((long) (Double.parseDouble(retryAfter) * 1000));
+                }
+                ZonedDateTime date = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration wait = Duration.between(ZonedDateTime.now(date.getZone()), date);
+                return wait.isNegative() ? Duration.ZERO : wait;
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            // Malformed header: fall back to the client's backoff
+        }
+        return null;
+    }
 
-        return objectMapper.readTree(jsonContent);
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Subscriber parsing a whole body as a JSON tree, from its bytes (no String copy)
+     */
+    private HttpResponse.BodySubscriber<JsonNode> jsonTree() {
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), bytes -> {
+            try {
+                return objectMapper.readTree(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Body of a response: the decoded value of a 200, the text of any other status
+     */
+    private static final class Reply<T> {
+        private final T value;
+        private final String errorBody;
+
+        private Reply(T value, String errorBody) {
+            this.value = value;
+            this.errorBody = errorBody;
+        }
+
+        private static <T> Reply<T> ok(T value) {
+            return new Reply<>(value, null);
+        }
+
+        private static <T> Reply<T> error(String body) {
+            return new Reply<>(null, body);
+        }
+    }
+
+    /**
+     * Waits for a call, rethrowing its original exception
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * @return The cause of a CompletionException (or of an UncheckedIOException), as thrown by the failed step
+     */
+    public static Exception unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        throw (Error) cause;
+    }
+
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Prints the call, retry and throttling counters
+     */
+    public void printMetrics() {
+        metrics.printSummary(limiter.getLimit());
     }
 
     /**
@@ -0,0 +1,65 @@
+package ssellm.clients;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client-side requests-per-minute and tokens-per-minute limits, one pair of {@link TokenBucket}s per model.
+ *
+ * Limits come from {@code openai.rpm.<model>} / {@code openai.tpm.<model>}, falling back to
+ * {@code openai.rpm} (default {@value #DEFAULT_RPM}) and {@code openai.tpm} (default {@value #DEFAULT_TPM}).
+ * A 429 with Retry-After pauses the model for that long on top of the buckets.
+ */
+public class RateLimiter {
+
+    public static final int DEFAULT_RPM = 500;
+    public static final int DEFAULT_TPM = 200_000;
+
+    private final Map<String, ModelLimits> models = new ConcurrentHashMap<>();
+
+    /**
+     * Reserves one request and an estimated number of tokens for a model.
+     *
+     * @return Nanoseconds to wait before sending
+     */
+    public long reserve(String model, long estimatedTokens) {
+        long now = System.nanoTime();
+        ModelLimits limits = models.computeIfAbsent(model, m -> new ModelLimits(m, now));
+        long wait = Math.max(limits.requests.reserve(1, now), limits.tokens.reserve(estimatedTokens, now));
+        return Math.max(wait, limits.pausedUntilNanos - now);
+    }
+
+    /**
+     * Holds back every request to a model for a while (server asked to retry later).
+     */
+    public void pause(String model, long nanos) {
+        long now = System.nanoTime();
+        ModelLimits limits = models.computeIfAbsent(model, m -> new ModelLimits(m, now));
+        synchronized (limits) {
+            limits.pausedUntilNanos = Math.max(limits.pausedUntilNanos, now + nanos);
+        }
+    }
+
+    /**
+     * Rough token count of a request body: about 4 bytes of JSON per token.
+     */
+    public static long estimateTokens(int bodyBytes) {
+        return Math.max(1, bodyBytes / 4);
+    }
+
+    private static final class ModelLimits {
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+        private volatile long pausedUntilNanos;
+
+        private ModelLimits(String model, long now) {
+            this.requests = new TokenBucket(limit("openai.rpm", model, DEFAULT_RPM), now);
+            this.tokens = new TokenBucket(limit("openai.tpm", model, DEFAULT_TPM), now);
+            this.pausedUntilNanos = now;
+        }
+
+        private static int limit(String property, String model, int defaultValue) {
+            return Integer.getInteger(property + "." + model, Integer.getInteger(property, defaultValue));
+        }
+    }
+}
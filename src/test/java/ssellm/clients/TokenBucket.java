@@ -0,0 +1,62 @@
+package ssellm.clients;
+
+/**
+ * Token bucket refilled continuously at {@code capacity} per minute, as the API's requests-per-minute and
+ * tokens-per-minute limits.
+ *
+ * {@link #reserve(double, long)} never blocks: it takes the amount right away, letting the balance go
+ * negative, and returns how long the caller has to wait before using it. Later reservations queue behind the
+ * debt, so callers are served in reservation order at the refill rate.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long lastRefillNanos;
+
+    /**
+     * @param perMinute Capacity and refill per minute
+     */
+    public TokenBucket(double perMinute, long nowNanos) {
+        if (perMinute <= 0) {
+            throw new IllegalArgumentException("perMinute must be positive: " + perMinute);
+        }
+        this.capacity = perMinute;
+        this.refillPerNano = perMinute / 60e9;
+        this.available = perMinute;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Takes an amount (capped at the capacity, so an oversized request still goes through once the bucket is
+     * full).
+     *
+     * @return Nanoseconds to wait before the amount is covered, 0 if available now
+     */
+    public synchronized long reserve(double amount, long nowNanos) {
+        refill(nowNanos);
+        available -= Math.min(amount, capacity);
+        return available >= 0 ? 0 : (long) Math.ceil(-available / refillPerNano);
+    }
+
+    /**
+     * @return Amount available now (negative while reservations are waiting)
+     */
+    public synchronized double getAvailable(long nowNanos) {
+        refill(nowNanos);
+        return available;
+    }
+
+    public double getCapacity() {
+        return capacity;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            available = Math.min(capacity, available + elapsed * refillPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
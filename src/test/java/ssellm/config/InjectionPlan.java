@@ -0,0 +1,173 @@
+package ssellm.config;
+
+import io.gatling.javaapi.core.ClosedInjectionStep;
+import io.gatling.javaapi.core.OpenInjectionStep;
+import io.gatling.javaapi.core.PopulationBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+
+/**
+ * Gatling injection profile built from the phases of a {@link WorkloadConfig}, together with the timeline
+ * of phase boundaries.
+ *
+ * Each phase maps to one or more injection steps, and every step gets a window on the timeline. A virtual
+ * user is labelled with the phase whose window contains its injection time, so {@code test_phase}
+ * follows the injection step that actually started the user. Step phases get one window per level
+ * ({@code STEP-1}, {@code STEP-2}, ...).
+ */
+public class InjectionPlan {
+
+    private final List<Window> windows = new ArrayList<>();
+    private final List<OpenInjectionStep> openSteps = new ArrayList<>();
+    private final List<ClosedInjectionStep> closedSteps = new ArrayList<>();
+    private final boolean closedModel;
+    private long totalMillis;
+
+    public InjectionPlan(WorkloadConfig config) {
+        this.closedModel = config.isClosedModel();
+        if (config.capacitySearch != null) {
+            // Users arrive at the ceiling rate; the capacity search admits the fraction its current level needs
+            // and stops the load generator when it converges, so this duration is only an upper bound
+            WorkloadConfig.CapacitySearch search = config.capacitySearch;
+            long millis = search.getMaxLevels() * search.getLevelDurationMillis();
+            addOpen("CAPACITY", millis, constantUsersPerSec(search.maxRate).during(Duration.ofMillis(millis)));
+            return;
+        }
+        for (WorkloadConfig.Phase phase : config.phases) {
+            addPhase(phase);
+        }
+    }
+
+    private void addPhase(WorkloadConfig.Phase phase) {
+        long millis = phase.getDurationMillis();
+        Duration duration = Duration.ofMillis(millis);
+        String name = phase.getName();
+
+        switch (phase.type) {
+            case "ramp":
+                addOpen(name, millis, rampUsers(phase.users).during(duration));
+                break;
+            case "constant":
+            case "soak":
+                addOpen(name, millis, constantUsersPerSec(phase.rate).during(duration));
+                break;
+            case "ramp_rate":
+                addOpen(name, millis, rampUsersPerSec(phase.from).to(phase.to).during(duration));
+                break;
+            case "step":
+                for (int level = 0; level < phase.steps; level++) {
+                    addOpen(name + "-" + (level + 1), millis,
+                            constantUsersPerSec(levelValue(phase, level)).during(duration));
+                }
+                break;
+            case "spike":
+                // The burst and the tail that follows it share the phase window
+                openSteps.add(atOnceUsers(phase.users));
+                addOpen(name, millis, phase.rate != null && phase.rate > 0
+                        ? constantUsersPerSec(phase.rate).during(duration)
+                        : nothingFor(duration));
+                break;
+            case "pause":
+                addOpen(name, millis, nothingFor(duration));
+                break;
+            case "concurrent":
+                addClosed(name, millis, constantConcurrentUsers(phase.users).during(duration));
+                break;
+            case "ramp_concurrent":
+                addClosed(name, millis, rampConcurrentUsers(phase.from.intValue()).to(phase.to.intValue()).during(duration));
+                break;
+            case "step_concurrent":
+                for (int level = 0; level < phase.steps; level++) {
+                    addClosed(name + "-" + (level + 1), millis,
+                            constantConcurrentUsers((int) Math.round(levelValue(phase, level))).during(duration));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown phase type: " + phase.type);
+        }
+    }
+
+    private static double levelValue(WorkloadConfig.Phase phase, int level) {
+        if (phase.steps == 1) {
+            return phase.from;
+        }
+        return phase.from + (phase.to - phase.from) * level / (phase.steps - 1);
+    }
+
+    private void addOpen(String name, long millis, OpenInjectionStep step) {
+        openSteps.add(step);
+        addWindow(name, millis);
+    }
+
+    private void addClosed(String name, long millis, ClosedInjectionStep step) {
+        closedSteps.add(step);
+        addWindow(name, millis);
+    }
+
+    private void addWindow(String name, long millis) {
+        windows.add(new Window(name, totalMillis, totalMillis + millis));
+        totalMillis += millis;
+    }
+
+    /**
+     * Applies the injection profile to a scenario.
+     */
+    public PopulationBuilder inject(ScenarioBuilder scenario) {
+        return closedModel ? scenario.injectClosed(closedSteps) : scenario.injectOpen(openSteps);
+    }
+
+    /**
+     * @param elapsedMillis Time since the injection started
+     * @return Name of the phase whose window contains {@code elapsedMillis} (the last phase once the plan is over)
+     */
+    public String phaseAt(long elapsedMillis) {
+        for (Window window : windows) {
+            if (elapsedMillis < window.endMillis) {
+                return window.name;
+            }
+        }
+        return windows.get(windows.size() - 1).name;
+    }
+
+    public List<Window> getWindows() {
+        return Collections.unmodifiableList(windows);
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public boolean isClosedModel() {
+        return closedModel;
+    }
+
+    /**
+     * Phase window on the injection timeline, in milliseconds since the injection started.
+     */
+    public static final class Window {
+        private final String name;
+        private final long startMillis;
+        private final long endMillis;
+
+        private Window(String name, long startMillis, long endMillis) {
+            this.name = name;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        public String getName() { return name; }
+        public long getStartMillis() { return startMillis; }
+        public long getEndMillis() { return endMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("%s[%d-%dms]", name, startMillis, endMillis);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package ssellm.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Typed workload definition for the SSE simulation, loaded from YAML.
+ *
+ * The file describes the endpoint, the models and the injection profile as an ordered list of phases.
+ * By default {@code workload.yaml} is read from the classpath; {@code -Dworkload=path/to/file.yaml} selects
+ * another file. Example:
+ * <pre>
+ * endpoint:
+ *   base_url: https://api.openai.com/v1/chat
+ *   path: /completions
+ *   api_key_env: api_key
+ * model: gpt-3.5-turbo
+ * phases:
+ *   - type: ramp          # rampUsers(users).during(duration)
+ *     users: 10
+ *     duration: 10s
+ *   - type: constant      # constantUsersPerSec(rate).during(duration)
+ *     rate: 10
+ *     duration: 60s
+ * </pre>
+ *
+ * Open-model phase types: {@code ramp}, {@code constant}, {@code ramp_rate}, {@code step}, {@code spike},
+ * {@code soak}, {@code pause}. Closed-model phase types: {@code concurrent}, {@code ramp_concurrent},
+ * {@code step_concurrent}. Gatling cannot mix both models in one injection profile.
+ */
+public class WorkloadConfig {
+
+    public static final String DEFAULT_RESOURCE = "workload.yaml";
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*(ms|s|m|h)?");
+
+    @JsonProperty("endpoint")
+    public Endpoint endpoint = new Endpoint();
+
+    @JsonProperty("model")
+    public String model = "gpt-3.5-turbo";
+
+    // Optional per-category model override (category -> model)
+    @JsonProperty("models_by_category")
+    public Map<String, String> modelsByCategory = new HashMap<>();
+
+    @JsonProperty("feeder")
+    public String feeder = "prompts.csv";
+
+    @JsonProperty("phases")
+    public List<Phase> phases = new ArrayList<>();
+
+    // When present, replaces the phases with an automatic search of the saturation point
+    @JsonProperty("capacity_search")
+    public CapacitySearch capacitySearch;
+
+    // Inner Classes
+    public static class Endpoint {
+        // Base URL of an OpenAI-compatible chat API, or "mock" for the embedded MockSseServer
+        @JsonProperty("base_url")
+        public String baseUrl = "https://api.openai.com/v1/chat";
+
+        @JsonProperty("path")
+        public String path = "/completions";
+
+        // Environment variable holding the API key
+        @JsonProperty("api_key_env")
+        public String apiKeyEnv = "api_key";
+
+        public boolean isMock() {
+            return "mock".equalsIgnoreCase(baseUrl);
+        }
+    }
+
+    public static class Phase {
+        @JsonProperty("type")
+        public String type;
+
+        // Value written to test_phase; defaults depend on the type (RAMP, STEADY, STEP, SPIKE, SOAK, PAUSE)
+        @JsonProperty("name")
+        public String name;
+
+        // Length of the phase (of each level for step phases), e.g. 30s, 5m
+        @JsonProperty("duration")
+        public String duration;
+
+        // ramp, spike: users injected; concurrent: concurrent users
+        @JsonProperty("users")
+        public Integer users;
+
+        // constant, soak: arrival rate in users/sec; spike: rate after the burst (optional)
+        @JsonProperty("rate")
+        public Double rate;
+
+        // ramp_rate, ramp_concurrent, step, step_concurrent: start and end values
+        @JsonProperty("from")
+        public Double from;
+
+        @JsonProperty("to")
+        public Double to;
+
+        // step, step_concurrent: number of levels from 'from' to 'to', each named <name>-<level>
+        @JsonProperty("steps")
+        public Integer steps;
+
+        public long getDurationMillis() {
+            return parseDurationMillis(duration);
+        }
+
+        public String getName() {
+            if (name != null && !name.isEmpty()) {
+                return name;
+            }
+            switch (type) {
+                case "ramp":
+                case "ramp_rate":
+                case "ramp_concurrent":
+                    return "RAMP";
+                case "step":
+                case "step_concurrent":
+                    return "STEP";
+                case "spike":
+                    return "SPIKE";
+                case "soak":
+                    return "SOAK";
+                case "pause":
+                    return "PAUSE";
+                default:
+                    return "STEADY";
+            }
+        }
+
+        public boolean isClosedModel() {
+            return type.endsWith("concurrent");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s, %s)", type, getName(), duration);
+        }
+    }
+
+    /**
+     * Capacity search: arrival rate is stepped up (multiplied by {@code step_factor}) each level until a level
+     * breaks the SLO, then binary-searched between the last passing and the first failing rate.
+     */
+    public static class CapacitySearch {
+        @JsonProperty("start_rate")
+        public double startRate = 1;
+
+        // Injection rate ceiling (users/sec); lower target rates are reached by admitting a fraction of users
+        @JsonProperty("max_rate")
+        public double maxRate = 100;
+
+        @JsonProperty("step_factor")
+        public double stepFactor = 2.0;
+
+        @JsonProperty("level_duration")
+        public String levelDuration = "60s";
+
+        // Start of each level excluded from the evaluation, so the system can settle at the new rate
+        @JsonProperty("warmup")
+        public String warmup = "20s";
+
+        // Binary-search iterations after the first failing level
+        @JsonProperty("refine_steps")
+        public int refineSteps = 3;
+
+        // Fewer completed responses than this in a level's measurement window fails the level
+        @JsonProperty("min_samples")
+        public int minSamples = 20;
+
+        @JsonProperty("slo")
+        public Slo slo = new Slo();
+
+        public long getLevelDurationMillis() {
+            return parseDurationMillis(levelDuration);
+        }
+
+        public long getWarmupMillis() {
+            return parseDurationMillis(warmup);
+        }
+
+        /**
+         * @return Upper bound of the number of levels: stepping from start_rate to max_rate, then refining
+         */
+        public int getMaxLevels() {
+            int stepLevels = 1;
+            for (double rate = startRate; rate < maxRate; rate *= stepFactor) {
+                stepLevels++;
+            }
+            return stepLevels + refineSteps;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CapacitySearch{rate=%.1f..%.1f x%.1f, level=%s (warmup %s), refine=%d, slo=%s}",
+                    startRate, maxRate, stepFactor, levelDuration, warmup, refineSteps, slo);
+        }
+    }
+
+    public static class Slo {
+        @JsonProperty("ttft_p99_ms")
+        public double ttftP99Ms = 2000;
+
+        @JsonProperty("latency_p99_ms")
+        public double latencyP99Ms = 20000;
+
+        @JsonProperty("max_truncation_rate")
+        public double maxTruncationRate = 0.05;
+
+        @Override
+        public String toString() {
+            return String.format("ttftP99<=%.0fms, latencyP99<=%.0fms, truncation<=%.1f%%",
+                    ttftP99Ms, latencyP99Ms, maxTruncationRate * 100);
+        }
+    }
+
+    /**
+     * Loads the workload selected by the {@code workload} system property, or {@code workload.yaml}
+     * from the classpath.
+     */
+    public static WorkloadConfig load() throws IOException {
+        String file = System.getProperty("workload");
+        return file != null ? load(Path.of(file)) : loadResource(DEFAULT_RESOURCE);
+    }
+
+    public static WorkloadConfig load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return parse(in, file.toString());
+        }
+    }
+
+    public static WorkloadConfig loadResource(String resource) throws IOException {
+        try (InputStream in = WorkloadConfig.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Workload resource not found on classpath: " + resource);
+            }
+            return parse(in, resource);
+        }
+    }
+
+    private static WorkloadConfig parse(InputStream in, String source) throws IOException {
+        ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+        WorkloadConfig config = yamlMapper.readValue(in, WorkloadConfig.class);
+        try {
+            config.validate();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid workload " + source + ": " + e.getMessage(), e);
+        }
+        return config;
+    }
+
+    /**
+     * Checks that every phase has the fields its type needs and that open and closed phases are not mixed.
+     *
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    public void validate() {
+        if (endpoint == null || endpoint.baseUrl == null || endpoint.baseUrl.isEmpty()) {
+            throw new IllegalArgumentException("endpoint.base_url is required");
+        }
+        if (model == null || model.isEmpty()) {
+            throw new IllegalArgumentException("model is required");
+        }
+        if (capacitySearch != null) {
+            validateCapacitySearch();
+            return;
+        }
+        if (phases == null || phases.isEmpty()) {
+            throw new IllegalArgumentException("at least one phase is required");
+        }
+
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            if (phase.type == null) {
+                throw new IllegalArgumentException("phase " + (i + 1) + ": type is required");
+            }
+            phase.type = phase.type.toLowerCase(Locale.ROOT);
+        }
+
+        boolean closed = phases.get(0).isClosedModel();
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            String where = "phase " + (i + 1);
+            if (phase.isClosedModel() != closed) {
+                throw new IllegalArgumentException(where + ": open and closed injection phases cannot be mixed");
+            }
+            if (phase.getDurationMillis() <= 0) {
+                throw new IllegalArgumentException(where + ": duration is required");
+            }
+            switch (phase.type) {
+                case "ramp":
+                case "concurrent":
+                    require(phase.users != null && phase.users > 0, where + ": users must be positive");
+                    break;
+                case "constant":
+                case "soak":
+                    require(phase.rate != null && phase.rate > 0, where + ": rate must be positive");
+                    break;
+                case "spike":
+                    require(phase.users != null && phase.users > 0, where + ": users must be positive");
+                    require(phase.rate == null || phase.rate >= 0, where + ": rate cannot be negative");
+                    break;
+                case "ramp_rate":
+                case "ramp_concurrent":
+                    require(phase.from != null && phase.to != null && phase.from >= 0 && phase.to >= 0,
+                            where + ": from and to are required");
+                    break;
+                case "step":
+                case "step_concurrent":
+                    require(phase.from != null && phase.to != null && phase.from > 0 && phase.to >= phase.from,
+                            where + ": from and to are required (0 < from <= to)");
+                    require(phase.steps != null && phase.steps > 0, where + ": steps must be positive");
+                    break;
+                case "pause":
+                    break;
+                default:
+                    throw new IllegalArgumentException(where + ": unknown type '" + phase.type + "'");
+            }
+        }
+    }
+
+    private void validateCapacitySearch() {
+        CapacitySearch search = capacitySearch;
+        require(search.startRate > 0 && search.maxRate >= search.startRate,
+                "capacity_search: 0 < start_rate <= max_rate is required");
+        require(search.stepFactor > 1, "capacity_search: step_factor must be greater than 1");
+        require(search.getLevelDurationMillis() > search.getWarmupMillis(),
+                "capacity_search: level_duration must be longer than warmup");
+        require(search.refineSteps >= 0 && search.minSamples >= 0,
+                "capacity_search: refine_steps and min_samples cannot be negative");
+        require(search.slo != null, "capacity_search: slo is required");
+    }
+
+    public boolean isClosedModel() {
+        return capacitySearch == null && phases.get(0).isClosedModel();
+    }
+
+    /**
+     * @return Model to request for a category (per-category override or the default model)
+     */
+    public String modelFor(String category) {
+        String override = category != null ? modelsByCategory.get(category) : null;
+        return override != null ? override : model;
+    }
+
+    /**
+     * Parses a duration such as {@code 90}, {@code 90s}, {@code 500ms}, {@code 5m} or {@code 1h}
+     * (plain numbers are seconds).
+     *
+     * @return Duration in milliseconds, 0 if {@code text} is null or empty
+     */
+    public static long parseDurationMillis(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return 0;
+        }
+        Matcher matcher = DURATION.matcher(text.trim().toLowerCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid duration '" + text + "'");
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        String unit = matcher.group(2) != null ? matcher.group(2) : "s";
+        switch (unit) {
+            case "ms":
+                return (long) value;
+            case "m":
+                return (long) (value * 60_000);
+            case "h":
+                return (long) (value * 3_600_000);
+            default:
+                return (long) (value * 1000);
+        }
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WorkloadConfig{endpoint=%s%s, model=%s, %s}",
+                endpoint.baseUrl, endpoint.isMock() ? "" : endpoint.path, model,
+                capacitySearch != null ? capacitySearch : "phases=" + phases);
+    }
+}
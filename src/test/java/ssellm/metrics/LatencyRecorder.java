@@ -0,0 +1,266 @@
+package ssellm.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live TTFT, latency and inter-token histograms, one series per metric, category and test phase.
+ *
+ * Gatling threads record into HdrHistogram {@link Recorder}s without locking. A background thread writes
+ * the interval histograms to an HdrHistogram log every few seconds and adds them to the run totals.
+ */
+public class LatencyRecorder implements AutoCloseable {
+
+    public enum Metric {
+        TTFT(TimeUnit.MINUTES.toMicros(10)),     // Time to first token
+        LATENCY(TimeUnit.HOURS.toMicros(1)),     // Total response time
+        ITL(TimeUnit.MINUTES.toMicros(10));      // Inter-token gap
+
+        // Larger values are clamped
+        private final long highestTrackableMicros;
+
+        Metric(long highestTrackableMicros) {
+            this.highestTrackableMicros = highestTrackableMicros;
+        }
+    }
+
+    // Values in microseconds at 1% resolution, in auto-resizing histograms
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Map<Metric, ConcurrentMap<String, ConcurrentMap<String, Series>>> series = new EnumMap<>(Metric.class);
+    private final HistogramLogWriter logWriter;
+    private final Path logFile;
+    private final ScheduledExecutorService scheduler;
+    private final long intervalMs;
+    private long intervalStartMs;
+    private boolean closed = false;
+
+    /**
+     * @param logFile    HdrHistogram interval log, truncated when opened
+     * @param intervalMs Interval between two histogram dumps
+     * @throws IOException if the log file cannot be created
+     */
+    public LatencyRecorder(Path logFile, long intervalMs) throws IOException {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        for (Metric metric : Metric.values()) {
+            series.put(metric, new ConcurrentHashMap<>());
+        }
+        if (logFile.getParent() != null) {
+            Files.createDirectories(logFile.getParent());
+        }
+        try {
+            this.logWriter = new HistogramLogWriter(logFile.toFile());
+        } catch (FileNotFoundException e) {
+            throw new IOException("Cannot open latency log " + logFile, e);
+        }
+        this.logFile = logFile;
+        this.intervalMs = intervalMs;
+        this.intervalStartMs = System.currentTimeMillis();
+
+        logWriter.outputLogFormatVersion();
+        logWriter.outputComment("Latency histograms in microseconds, tagged <metric>.<category>.<phase>");
+        logWriter.setBaseTime(intervalStartMs);
+        logWriter.outputBaseTime(intervalStartMs);
+        logWriter.outputStartTime(intervalStartMs);
+        logWriter.outputLegend();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "latency-interval-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                dumpInterval();
+            } catch (RuntimeException e) {
+                // An exception would cancel the periodic task
+                System.err.println("❌ Error writing latency interval: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the series of a metric for a category and phase, creating it on first use.
+     * Resolve the series once when recording several values (e.g. all inter-token gaps of a response).
+     */
+    public Series series(Metric metric, String category, String phase) {
+        String categoryKey = category != null ? category : "unknown";
+        String phaseKey = phase != null ? phase : "unknown";
+        return series.get(metric)
+            .computeIfAbsent(categoryKey, c -> new ConcurrentHashMap<>())
+            .computeIfAbsent(phaseKey, p -> new Series(metric, categoryKey, phaseKey));
+    }
+
+    /**
+     * Records a single value.
+     *
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(Metric metric, String category, String phase, long nanos) {
+        series(metric, category, phase).record(nanos);
+    }
+
+    /**
+     * Collects the pending interval, writes it to the log, stops the background thread and closes the log.
+     * Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(intervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            dumpInterval();
+            closed = true;
+            logWriter.close();
+        }
+    }
+
+    /**
+     * @return Run totals of every series, keyed by tag, as collected by the last dump
+     */
+    public synchronized Map<String, Histogram> getTotals() {
+        Map<String, Histogram> totals = new TreeMap<>();
+        for (Series s : allSeries()) {
+            totals.put(s.tag, s.total.copy());
+        }
+        return totals;
+    }
+
+    /**
+     * Collects the pending interval now (the log then gets a shorter interval) and returns the run total of a
+     * metric in one phase, all categories merged. Subtract the total taken at the start of a measurement
+     * window from the one taken at its end to get the window alone.
+     */
+    public synchronized Histogram phaseTotal(Metric metric, String phase) {
+        dumpInterval();
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        for (ConcurrentMap<String, Series> byPhase : series.get(metric).values()) {
+            Series s = byPhase.get(phase);
+            if (s != null) {
+                total.add(s.total);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Prints p50/p90/p99/max per series, in milliseconds.
+     */
+    public void printSummary() {
+        Map<String, Histogram> totals = getTotals();
+        System.out.println("\n⏱️ Latency histograms (ms) - interval log: " + logFile);
+        System.out.println("─".repeat(90));
+        System.out.println(String.format("%-40s %10s %9s %9s %9s %9s", "Series", "Count", "p50", "p90", "p99", "Max"));
+        for (Map.Entry<String, Histogram> entry : totals.entrySet()) {
+            Histogram h = entry.getValue();
+            if (h.getTotalCount() == 0) {
+                continue;
+            }
+            System.out.println(String.format("%-40s %10d %9.1f %9.1f %9.1f %9.1f",
+                entry.getKey(), h.getTotalCount(),
+                h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0,
+                h.getValueAtPercentile(99) / 1000.0, h.getMaxValue() / 1000.0));
+        }
+        System.out.println("─".repeat(90));
+        System.out.println("ℹ️ ttft and itl are taken from Gatling's SSE receipt timestamps: 1 ms resolution");
+    }
+
+    // ========== Interval collection ==========
+
+    private synchronized void dumpInterval() {
+        if (closed) {
+            return;
+        }
+        long endMs = System.currentTimeMillis();
+        for (Series s : allSeries()) {
+            Histogram interval = s.collect();
+            if (interval.getTotalCount() == 0) {
+                continue;
+            }
+            interval.setStartTimeStamp(intervalStartMs);
+            interval.setEndTimeStamp(endMs);
+            interval.setTag(s.tag);
+            logWriter.outputIntervalHistogram(interval);
+            s.total.add(interval);
+        }
+        intervalStartMs = endMs;
+    }
+
+    private List<Series> allSeries() {
+        List<Series> all = new ArrayList<>();
+        for (ConcurrentMap<String, ConcurrentMap<String, Series>> byCategory : series.values()) {
+            for (ConcurrentMap<String, Series> byPhase : byCategory.values()) {
+                all.addAll(byPhase.values());
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Histogram series of one metric, category and phase.
+     */
+    public static final class Series {
+        private final String tag;
+        private final long highestTrackableMicros;
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+        // Only touched by the collecting thread, under the recorder lock
+        private Histogram interval;
+        private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+
+        private Series(Metric metric, String category, String phase) {
+            this.tag = metric.name().toLowerCase() + "." + category + "." + phase;
+            this.highestTrackableMicros = metric.highestTrackableMicros;
+        }
+
+        /**
+         * Records a duration.
+         *
+         * @param nanos Duration in nanoseconds (negative values are ignored)
+         */
+        public void record(long nanos) {
+            if (nanos < 0) {
+                return;
+            }
+            recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), highestTrackableMicros));
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        /**
+         * @return Values recorded since the previous call
+         */
+        private Histogram collect() {
+            // The recorder only accepts back histograms it produced itself
+            interval = recorder.getIntervalHistogram(interval);
+            return interval;
+        }
+    }
+}
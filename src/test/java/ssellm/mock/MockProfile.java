@@ -0,0 +1,168 @@
+package ssellm.mock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Behaviour of the mock server for one prompt category: response length, timing distributions and
+ * injected failures.
+ *
+ * TTFT and inter-token delays follow log-normal distributions given by their median and sigma (the
+ * standard deviation of the underlying normal), which matches the long right tail of real LLM latencies.
+ * Failure rates are probabilities in [0, 1] evaluated once per request.
+ */
+public class MockProfile {
+
+    private int minTokens = 50;
+    private int maxTokens = 300;
+    private double ttftMedianMs = 400;
+    private double ttftSigma = 0.3;
+    private double itlMedianMs = 20;
+    private double itlSigma = 0.4;
+    private double rateLimitRate = 0.0;   // HTTP 429 before the stream starts
+    private double serverErrorRate = 0.0; // HTTP 500 before the stream starts
+    private double disconnectRate = 0.0;  // Connection dropped mid-stream, without [DONE]
+
+    /**
+     * Default profiles for the categories in prompts.csv, shaped after the category timeouts of the
+     * simulation (short answers finish well within 5s, long ones need most of 20s).
+     */
+    public static Map<String, MockProfile> defaults() {
+        Map<String, MockProfile> profiles = new HashMap<>();
+        profiles.put("short", builder().tokens(20, 80).ttft(300, 0.3).itl(15, 0.4).build());
+        profiles.put("creative", builder().tokens(60, 200).ttft(350, 0.3).itl(20, 0.4).build());
+        profiles.put("medium", builder().tokens(150, 400).ttft(400, 0.3).itl(20, 0.4).build());
+        profiles.put("code_generation", builder().tokens(200, 500).ttft(450, 0.35).itl(18, 0.45).build());
+        profiles.put("analysis", builder().tokens(200, 500).ttft(500, 0.35).itl(22, 0.45).build());
+        profiles.put("long", builder().tokens(400, 900).ttft(500, 0.35).itl(22, 0.5).build());
+        profiles.put("contextual", builder().tokens(400, 900).ttft(500, 0.35).itl(22, 0.5).build());
+        profiles.put("troubleshooting", builder().tokens(400, 900).ttft(500, 0.35).itl(22, 0.5).build());
+        profiles.put("documentation", builder().tokens(400, 900).ttft(500, 0.35).itl(22, 0.5).build());
+        return profiles;
+    }
+
+    /**
+     * @param requestMaxTokens max_tokens of the request (0 when absent)
+     * @return Number of content tokens to stream, capped by the request budget
+     */
+    public int sampleTokens(Random random, int requestMaxTokens) {
+        int tokens = minTokens + (maxTokens > minTokens ? random.nextInt(maxTokens - minTokens + 1) : 0);
+        return requestMaxTokens > 0 ? Math.min(tokens, requestMaxTokens) : tokens;
+    }
+
+    public long sampleTtftNanos(Random random) {
+        return logNormalNanos(random, ttftMedianMs, ttftSigma);
+    }
+
+    public long sampleItlNanos(Random random) {
+        return logNormalNanos(random, itlMedianMs, itlSigma);
+    }
+
+    private static long logNormalNanos(Random random, double medianMs, double sigma) {
+        double ms = medianMs * Math.exp(sigma * random.nextGaussian());
+        return (long) (ms * 1_000_000);
+    }
+
+    /**
+     * @return Copy of this profile with every delay multiplied by {@code factor} (0 streams as fast as possible)
+     */
+    public MockProfile scaled(double factor) {
+        MockProfile copy = copy();
+        copy.ttftMedianMs = ttftMedianMs * factor;
+        copy.itlMedianMs = itlMedianMs * factor;
+        return copy;
+    }
+
+    /**
+     * @return Copy of this profile with the given failure rates
+     */
+    public MockProfile withFailures(double rateLimitRate, double serverErrorRate, double disconnectRate) {
+        MockProfile copy = copy();
+        copy.rateLimitRate = rateLimitRate;
+        copy.serverErrorRate = serverErrorRate;
+        copy.disconnectRate = disconnectRate;
+        return copy;
+    }
+
+    private MockProfile copy() {
+        MockProfile copy = new MockProfile();
+        copy.minTokens = minTokens;
+        copy.maxTokens = maxTokens;
+        copy.ttftMedianMs = ttftMedianMs;
+        copy.ttftSigma = ttftSigma;
+        copy.itlMedianMs = itlMedianMs;
+        copy.itlSigma = itlSigma;
+        copy.rateLimitRate = rateLimitRate;
+        copy.serverErrorRate = serverErrorRate;
+        copy.disconnectRate = disconnectRate;
+        return copy;
+    }
+
+    // Getters
+    public int getMinTokens() { return minTokens; }
+    public int getMaxTokens() { return maxTokens; }
+    public double getTtftMedianMs() { return ttftMedianMs; }
+    public double getTtftSigma() { return ttftSigma; }
+    public double getItlMedianMs() { return itlMedianMs; }
+    public double getItlSigma() { return itlSigma; }
+    public double getRateLimitRate() { return rateLimitRate; }
+    public double getServerErrorRate() { return serverErrorRate; }
+    public double getDisconnectRate() { return disconnectRate; }
+
+    @Override
+    public String toString() {
+        return String.format("MockProfile{tokens=%d-%d, ttft=%.0fms(σ%.2f), itl=%.0fms(σ%.2f), 429=%.1f%%, 500=%.1f%%, disconnect=%.1f%%}",
+                minTokens, maxTokens, ttftMedianMs, ttftSigma, itlMedianMs, itlSigma,
+                rateLimitRate * 100, serverErrorRate * 100, disconnectRate * 100);
+    }
+
+    // Builder Pattern
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final MockProfile profile = new MockProfile();
+
+        public Builder tokens(int min, int max) {
+            if (min < 1 || max < min) {
+                throw new IllegalArgumentException("Invalid token range: " + min + "-" + max);
+            }
+            profile.minTokens = min;
+            profile.maxTokens = max;
+            return this;
+        }
+
+        public Builder ttft(double medianMs, double sigma) {
+            profile.ttftMedianMs = medianMs;
+            profile.ttftSigma = sigma;
+            return this;
+        }
+
+        public Builder itl(double medianMs, double sigma) {
+            profile.itlMedianMs = medianMs;
+            profile.itlSigma = sigma;
+            return this;
+        }
+
+        public Builder rateLimitRate(double rate) {
+            profile.rateLimitRate = rate;
+            return this;
+        }
+
+        public Builder serverErrorRate(double rate) {
+            profile.serverErrorRate = rate;
+            return this;
+        }
+
+        public Builder disconnectRate(double rate) {
+            profile.disconnectRate = rate;
+            return this;
+        }
+
+        public MockProfile build() {
+            return profile.copy();
+        }
+    }
+}
@@ -0,0 +1,868 @@
+package ssellm.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the OpenAI API, used to run the simulation and the analyzers offline.
+ *
+ * Endpoints:
+ * - {@code POST /v1/chat/completions} with {@code "stream":true}: SSE stream of {@code data: {...delta...}}
+ *   frames followed by {@code data: [DONE]}, shaped by the {@link MockProfile} of the request's category
+ * - {@code POST /v1/chat/completions} without streaming: a judge-style JSON evaluation
+ * - {@code POST /v1/embeddings}: deterministic unit vectors derived from a hash of each input
+ *
+ * The category is taken from the {@code X-Prompt-Category} header, which the simulation fills from the
+ * {@code category} column of prompts.csv. Unknown categories use the default profile.
+ *
+ * The server runs on a few NIO event loops: every loop owns a selector and a timer queue of the streams
+ * it serves, and a stream costs no thread, only its connection state. This keeps tens of thousands of
+ * concurrent streams on one box (raise the open-files limit accordingly).
+ */
+public class MockSseServer implements AutoCloseable {
+
+    public static final String CATEGORY_HEADER = "X-Prompt-Category";
+
+    private static final int MAX_REQUEST_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_PENDING_OUTPUT_BYTES = 1024 * 1024;
+    private static final int EMBEDDING_DIMENSIONS = 1536;
+    private static final String[] WORDS = {
+        "la", "respuesta", "depende", "del", "contexto", "y", "de", "los", "datos", "disponibles",
+        "en", "general", "el", "sistema", "procesa", "cada", "solicitud", "con", "un", "modelo",
+        "que", "genera", "texto", "paso", "a", "por", "lo", "tanto", "es", "importante",
+        "considerar", "rendimiento", "latencia", "calidad", "resultado", "ejemplo", "código", "función"
+    };
+
+    private static final Pattern MAX_TOKENS = Pattern.compile("\"max_tokens\"\\s*:\\s*(\\d+)");
+    private static final Pattern STREAM = Pattern.compile("\"stream\"\\s*:\\s*true");
+    private static final Pattern MODEL = Pattern.compile("\"model\"\\s*:\\s*\"([^\"]*)\"");
+
+    private final int requestedPort;
+    private final int ioThreads;
+    private final Map<String, MockProfile> profiles;
+    private final MockProfile defaultProfile;
+    private final long seed;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private EventLoop[] loops;
+    private volatile boolean running = false;
+
+    // Metrics
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamsStarted = new AtomicLong();
+    private final AtomicLong streamsCompleted = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+    private final AtomicLong clientAborts = new AtomicLong();
+    private final AtomicLong tokensSent = new AtomicLong();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicInteger maxActiveStreams = new AtomicInteger();
+    private final AtomicLong completionIds = new AtomicLong();
+
+    private MockSseServer(Builder builder) {
+        this.requestedPort = builder.port;
+        this.ioThreads = builder.ioThreads;
+        this.profiles = new HashMap<>();
+        for (Map.Entry<String, MockProfile> entry : builder.profiles.entrySet()) {
+            profiles.put(entry.getKey().toLowerCase(Locale.ROOT), adjust(builder, entry.getValue()));
+        }
+        this.defaultProfile = adjust(builder, builder.defaultProfile);
+        this.seed = builder.seed;
+    }
+
+    private static MockProfile adjust(Builder builder, MockProfile profile) {
+        MockProfile adjusted = profile.scaled(builder.timeScale);
+        if (builder.rateLimitRate != null || builder.serverErrorRate != null || builder.disconnectRate != null) {
+            adjusted = adjusted.withFailures(
+                    builder.rateLimitRate != null ? builder.rateLimitRate : profile.getRateLimitRate(),
+                    builder.serverErrorRate != null ? builder.serverErrorRate : profile.getServerErrorRate(),
+                    builder.disconnectRate != null ? builder.disconnectRate : profile.getDisconnectRate());
+        }
+        return adjusted;
+    }
+
+    /**
+     * Binds the port and starts the acceptor and the event loops.
+     *
+     * @return this server, for chaining
+     * @throws IOException if the port cannot be bound
+     */
+    public MockSseServer start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress("localhost", requestedPort), 8192);
+
+        running = true;
+        loops = new EventLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            loops[i] = new EventLoop(new Random(seed + i));
+            Thread thread = new Thread(loops[i], "mock-sse-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        acceptor = new Thread(this::acceptLoop, "mock-sse-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        System.out.println("🧪 Mock SSE server listening on " + getBaseUrl() + " (" + ioThreads + " I/O threads)");
+        return this;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return Base URL mirroring {@code https://api.openai.com/v1}
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort() + "/v1";
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("❌ Error closing mock server socket: " + e.getMessage());
+        }
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        try {
+            acceptor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== Metrics ==========
+
+    public long getRequestCount() { return requests.get(); }
+    public long getStreamsStarted() { return streamsStarted.get(); }
+    public long getStreamsCompleted() { return streamsCompleted.get(); }
+    public long getRateLimitedCount() { return rateLimited.get(); }
+    public long getServerErrorCount() { return serverErrors.get(); }
+    public long getDisconnectCount() { return disconnects.get(); }
+    public long getClientAbortCount() { return clientAborts.get(); }
+    public long getTokensSent() { return tokensSent.get(); }
+    public int getActiveStreams() { return activeStreams.get(); }
+    public int getMaxActiveStreams() { return maxActiveStreams.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("MockSseServer{requests=%d, streams=%d/%d completed, 429=%d, 500=%d, disconnects=%d, clientAborts=%d, tokens=%d, maxActiveStreams=%d}",
+                getRequestCount(), getStreamsCompleted(), getStreamsStarted(), getRateLimitedCount(),
+                getServerErrorCount(), getDisconnectCount(), getClientAbortCount(), getTokensSent(),
+                getMaxActiveStreams());
+    }
+
+    // ========== Accepting ==========
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("❌ Mock server accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // ========== Responses ==========
+
+    private MockProfile profileFor(String category) {
+        if (category == null) {
+            return defaultProfile;
+        }
+        MockProfile profile = profiles.get(category.toLowerCase(Locale.ROOT));
+        return profile != null ? profile : defaultProfile;
+    }
+
+    private static String chunkFrame(String id, long created, String model, String delta, String finishReason) {
+        return "data: {\"id\":\"" + id + "\",\"object\":\"chat.completion.chunk\",\"created\":" + created
+                + ",\"model\":\"" + model + "\",\"choices\":[{\"index\":0,\"delta\":" + delta
+                + ",\"finish_reason\":" + (finishReason != null ? "\"" + finishReason + "\"" : "null") + "}]}\n\n";
+    }
+
+    private static String httpResponse(int status, String reason, String contentType, String body, String extraHeaders) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return "HTTP/1.1 " + status + " " + reason + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + bytes.length + "\r\n"
+                + extraHeaders
+                + "\r\n"
+                + body;
+    }
+
+    private static String errorBody(String message, String type, String code) {
+        return "{\"error\":{\"message\":\"" + message + "\",\"type\":\"" + type + "\",\"param\":null,\"code\":\"" + code + "\"}}";
+    }
+
+    private String embeddingsResponse(String body) throws IOException {
+        JsonNode request = objectMapper.readTree(body);
+        JsonNode input = request.get("input");
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("object", "list");
+        ArrayNode data = response.putArray("data");
+        int index = 0;
+        if (input != null && input.isArray()) {
+            for (JsonNode text : input) {
+                addEmbedding(data, index++, text.asText());
+            }
+        } else {
+            addEmbedding(data, index++, input != null ? input.asText() : "");
+        }
+        response.put("model", request.path("model").asText("text-embedding-3-small"));
+        response.putObject("usage").put("prompt_tokens", index).put("total_tokens", index);
+        return objectMapper.writeValueAsString(response);
+    }
+
+    private static void addEmbedding(ArrayNode data, int index, String text) {
+        // Same text, same vector: lets the semantic analysis see identical responses as identical
+        Random random = new Random(text.hashCode());
+        double[] vector = new double[EMBEDDING_DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        norm = Math.sqrt(norm);
+        ObjectNode item = data.addObject();
+        item.put("object", "embedding");
+        item.put("index", index);
+        ArrayNode embedding = item.putArray("embedding");
+        for (double v : vector) {
+            embedding.add((float) (v / norm));
+        }
+    }
+
+    private String judgeResponse(String body, String model) throws IOException {
+        // Stable pseudo-scores per evaluation prompt
+        Random random = new Random(body.hashCode());
+        ObjectNode evaluation = objectMapper.createObjectNode();
+        evaluation.put("similarity_score", 6 + random.nextInt(5));
+        evaluation.put("technical_correctness", 6 + random.nextInt(5));
+        evaluation.put("coherence_score", 7 + random.nextInt(4));
+        evaluation.put("creativity_expected", random.nextBoolean());
+        evaluation.putArray("issues_detected");
+        evaluation.putArray("legitimate_variations").add("Mock response variation");
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", "chatcmpl-mock-" + completionIds.incrementAndGet());
+        response.put("object", "chat.completion");
+        response.put("created", System.currentTimeMillis() / 1000);
+        response.put("model", model);
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("message").put("role", "assistant")
+                .put("content", objectMapper.writeValueAsString(evaluation));
+        choice.put("finish_reason", "stop");
+        return objectMapper.writeValueAsString(response);
+    }
+
+    // ========== Event loop ==========
+
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final PriorityQueue<Connection> timers =
+                new PriorityQueue<>((a, b) -> Long.compare(a.dueNanos, b.dueNanos));
+        private final Random random;
+
+        private EventLoop(Random random) throws IOException {
+            this.selector = Selector.open();
+            this.random = random;
+        }
+
+        private void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    long timeoutMs = 0; // block until I/O or wakeup
+                    Connection next = timers.peek();
+                    if (next != null) {
+                        long waitNanos = next.dueNanos - System.nanoTime();
+                        timeoutMs = waitNanos <= 0 ? -1 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+                    }
+                    if (timeoutMs < 0) {
+                        selector.selectNow();
+                    } else {
+                        selector.select(timeoutMs);
+                    }
+
+                    SocketChannel channel;
+                    while ((channel = pending.poll()) != null) {
+                        Connection connection = new Connection(this, channel);
+                        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (!key.isValid()) {
+                                continue;
+                            }
+                            if (key.isReadable()) {
+                                connection.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        } catch (RuntimeException e) {
+                            // e.g. CancelledKeyException: lose this connection, not the loop and its other connections
+                            connectionError(connection, e);
+                        }
+                    }
+
+                    long now = System.nanoTime();
+                    while (!timers.isEmpty() && timers.peek().dueNanos <= now) {
+                        Connection connection = timers.poll();
+                        connection.scheduled = false;
+                        if (!connection.closed) {
+                            try {
+                                connection.onTimer();
+                            } catch (RuntimeException e) {
+                                connectionError(connection, e);
+                            }
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("❌ Mock server loop error: " + e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((Connection) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // shutting down
+            }
+        }
+
+        private void connectionError(Connection connection, RuntimeException e) {
+            System.err.println("⚠️ Mock connection error, closing it: " + e);
+            connection.close();
+        }
+
+        private void schedule(Connection connection, long delayNanos) {
+            connection.dueNanos = System.nanoTime() + Math.max(0, delayNanos);
+            connection.scheduled = true;
+            timers.add(connection);
+        }
+    }
+
+    // ========== Connection ==========
+
+    private enum State { READING, DELAYED_RESPONSE, STREAMING, DRAINING }
+
+    private final class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(8 * 1024);
+        private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        private int pendingBytes;
+        private State state = State.READING;
+        private boolean closeAfterWrite;
+        private boolean closed;
+
+        // Timer
+        private long dueNanos;
+        private boolean scheduled;
+
+        // Delayed non-streaming response
+        private String delayedResponse;
+
+        // Stream
+        private MockProfile profile;
+        private String completionId;
+        private String model;
+        private long created;
+        private int tokensTotal;
+        private boolean cappedByRequest;
+        private int tokensSentInStream;
+        private int disconnectAt;
+
+        private Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        private void onReadable() {
+            int read;
+            try {
+                if (!in.hasRemaining()) {
+                    if (in.capacity() >= MAX_REQUEST_BYTES) {
+                        write(httpResponse(413, "Payload Too Large", "application/json",
+                                errorBody("Request too large", "invalid_request_error", "request_too_large"), "Connection: close\r\n"));
+                        closeAfterWrite = true;
+                        state = State.DRAINING;
+                        return;
+                    }
+                    ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                    in.flip();
+                    larger.put(in);
+                    in = larger;
+                }
+                read = channel.read(in);
+            } catch (IOException e) {
+                read = -1;
+            }
+            if (read < 0) {
+                if (state == State.STREAMING) {
+                    clientAborts.incrementAndGet();
+                }
+                close();
+                return;
+            }
+            if (state == State.READING) {
+                tryParseRequest();
+            }
+        }
+
+        private void tryParseRequest() {
+            int headerEnd = indexOfHeaderEnd();
+            if (headerEnd < 0) {
+                return;
+            }
+            String head = new String(in.array(), 0, headerEnd, StandardCharsets.ISO_8859_1);
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            String method = requestLine[0];
+            String path = requestLine.length > 1 ? requestLine[1] : "/";
+            int contentLength = 0;
+            String category = null;
+            boolean keepAlive = true;
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = lines[i].substring(0, colon).trim();
+                String value = lines[i].substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    try {
+                        contentLength = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        contentLength = -1;
+                    }
+                    if (contentLength < 0) {
+                        rejectRequest("Invalid Content-Length: " + value);
+                        return;
+                    }
+                } else if (name.equalsIgnoreCase(CATEGORY_HEADER)) {
+                    category = value;
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    keepAlive = !value.equalsIgnoreCase("close");
+                }
+            }
+            int bodyStart = headerEnd + 4;
+            if (in.position() < bodyStart + contentLength) {
+                return; // body not complete yet
+            }
+            String body = new String(in.array(), bodyStart, contentLength, StandardCharsets.UTF_8);
+
+            // Keep any pipelined bytes for the next request
+            int consumed = bodyStart + contentLength;
+            in.flip();
+            in.position(consumed);
+            in.compact();
+
+            requests.incrementAndGet();
+            handle(method, path, category, body, keepAlive);
+        }
+
+        /**
+         * Answers 400 to a request that cannot be parsed and closes the connection (its framing is lost)
+         */
+        private void rejectRequest(String message) {
+            requests.incrementAndGet();
+            write(httpResponse(400, "Bad Request", "application/json",
+                    errorBody(message, "invalid_request_error", "invalid_request"), "Connection: close\r\n"));
+            closeAfterWrite = true;
+            state = State.DRAINING;
+        }
+
+        private int indexOfHeaderEnd() {
+            byte[] bytes = in.array();
+            for (int i = 0; i + 3 < in.position(); i++) {
+                if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r' && bytes[i + 3] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void handle(String method, String path, String category, String body, boolean keepAlive) {
+            String connectionHeader = keepAlive ? "" : "Connection: close\r\n";
+            closeAfterWrite = !keepAlive;
+            try {
+                if (!method.equals("POST")) {
+                    respond(httpResponse(405, "Method Not Allowed", "application/json",
+                            errorBody("Only POST is supported", "invalid_request_error", "method_not_allowed"), connectionHeader));
+                } else if (path.endsWith("/embeddings")) {
+                    respond(httpResponse(200, "OK", "application/json", embeddingsResponse(body), connectionHeader));
+                } else if (path.endsWith("/chat/completions")) {
+                    handleChat(category, body, connectionHeader);
+                } else {
+                    respond(httpResponse(404, "Not Found", "application/json",
+                            errorBody("Unknown path " + path, "invalid_request_error", "not_found"), connectionHeader));
+                }
+            } catch (IOException | RuntimeException e) {
+                respond(httpResponse(400, "Bad Request", "application/json",
+                        errorBody("Invalid request body", "invalid_request_error", "invalid_json"), connectionHeader));
+            }
+        }
+
+        private void handleChat(String category, String body, String connectionHeader) throws IOException {
+            MockProfile chatProfile = profileFor(category);
+            Matcher modelMatcher = MODEL.matcher(body);
+            String requestModel = modelMatcher.find() ? modelMatcher.group(1) : "gpt-3.5-turbo";
+
+            double roll = loop.random.nextDouble();
+            if (roll < chatProfile.getRateLimitRate()) {
+                rateLimited.incrementAndGet();
+                respond(httpResponse(429, "Too Many Requests", "application/json",
+                        errorBody("Rate limit reached (mock)", "requests", "rate_limit_exceeded"),
+                        "Retry-After: 1\r\n" + connectionHeader));
+                return;
+            }
+            if (roll < chatProfile.getRateLimitRate() + chatProfile.getServerErrorRate()) {
+                serverErrors.incrementAndGet();
+                respond(httpResponse(500, "Internal Server Error", "application/json",
+                        errorBody("The server had an error while processing your request (mock)", "server_error", "server_error"),
+                        connectionHeader));
+                return;
+            }
+
+            if (!STREAM.matcher(body).find()) {
+                // Non-streaming completion (LLM-as-judge): one JSON document after the usual TTFT
+                delayedResponse = httpResponse(200, "OK", "application/json", judgeResponse(body, requestModel), connectionHeader);
+                state = State.DELAYED_RESPONSE;
+                loop.schedule(this, chatProfile.sampleTtftNanos(loop.random));
+                return;
+            }
+
+            Matcher maxTokensMatcher = MAX_TOKENS.matcher(body);
+            int requestMaxTokens = maxTokensMatcher.find() ? Integer.parseInt(maxTokensMatcher.group(1)) : 0;
+
+            profile = chatProfile;
+            model = requestModel;
+            completionId = "chatcmpl-mock-" + completionIds.incrementAndGet();
+            created = System.currentTimeMillis() / 1000;
+            tokensTotal = chatProfile.sampleTokens(loop.random, requestMaxTokens);
+            cappedByRequest = tokensTotal == requestMaxTokens;
+            tokensSentInStream = 0;
+            disconnectAt = loop.random.nextDouble() < chatProfile.getDisconnectRate()
+                    ? 1 + loop.random.nextInt(Math.max(1, tokensTotal - 1))
+                    : -1;
+
+            // The body of an SSE response is delimited by the connection close
+            state = State.STREAMING;
+            closeAfterWrite = true;
+            streamsStarted.incrementAndGet();
+            int active = activeStreams.incrementAndGet();
+            int max = maxActiveStreams.get();
+            while (active > max && !maxActiveStreams.compareAndSet(max, active)) {
+                max = maxActiveStreams.get();
+            }
+            write("HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: text/event-stream; charset=utf-8\r\n"
+                    + "Cache-Control: no-cache\r\n"
+                    + "Connection: close\r\n"
+                    + "\r\n");
+            loop.schedule(this, chatProfile.sampleTtftNanos(loop.random));
+        }
+
+        private void onTimer() {
+            if (state == State.DELAYED_RESPONSE) {
+                String response = delayedResponse;
+                delayedResponse = null;
+                respond(response);
+                return;
+            }
+            if (state != State.STREAMING) {
+                return;
+            }
+            if (tokensSentInStream == disconnectAt) {
+                disconnects.incrementAndGet();
+                endStream();
+                close();
+                return;
+            }
+
+            StringBuilder frames = new StringBuilder(256);
+            if (tokensSentInStream == 0) {
+                frames.append(chunkFrame(completionId, created, model, "{\"role\":\"assistant\",\"content\":\"\"}", null));
+            }
+            String word = WORDS[loop.random.nextInt(WORDS.length)];
+            frames.append(chunkFrame(completionId, created, model,
+                    "{\"content\":\"" + (tokensSentInStream == 0 ? word : " " + word) + "\"}", null));
+            tokensSentInStream++;
+            tokensSent.incrementAndGet();
+
+            if (tokensSentInStream >= tokensTotal) {
+                String finishReason = cappedByRequest ? "length" : "stop";
+                frames.append(chunkFrame(completionId, created, model, "{}", finishReason));
+                frames.append("data: [DONE]\n\n");
+                streamsCompleted.incrementAndGet();
+                endStream();
+                state = State.DRAINING;
+                write(frames.toString());
+                return;
+            }
+            write(frames.toString());
+            if (!closed) {
+                loop.schedule(this, profile.sampleItlNanos(loop.random));
+            }
+        }
+
+        private void endStream() {
+            activeStreams.decrementAndGet();
+            profile = null;
+        }
+
+        /**
+         * Writes a complete response and goes back to reading (keep-alive) unless the connection must close.
+         */
+        private void respond(String response) {
+            state = closeAfterWrite ? State.DRAINING : State.READING;
+            write(response);
+            if (!closed && state == State.READING && in.position() > 0) {
+                tryParseRequest(); // pipelined request
+            }
+        }
+
+        private void write(String text) {
+            if (closed) {
+                return;
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (pendingBytes > 0 && pendingBytes + bytes.length > MAX_PENDING_OUTPUT_BYTES) {
+                // Client is not reading: drop it rather than buffering without bound (a single large response,
+                // e.g. a batch of embeddings, is always accepted)
+                if (state == State.STREAMING) {
+                    clientAborts.incrementAndGet();
+                }
+                close();
+                return;
+            }
+            out.add(ByteBuffer.wrap(bytes));
+            pendingBytes += bytes.length;
+            flush();
+        }
+
+        private void flush() {
+            try {
+                while (!out.isEmpty()) {
+                    ByteBuffer head = out.peek();
+                    pendingBytes -= channel.write(head);
+                    if (head.hasRemaining()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    out.poll();
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                if (closeAfterWrite && state == State.DRAINING) {
+                    close();
+                }
+            } catch (IOException e) {
+                if (state == State.STREAMING) {
+                    clientAborts.incrementAndGet();
+                }
+                close();
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (state == State.STREAMING && profile != null) {
+                endStream();
+            }
+            out.clear();
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+    }
+
+    // ========== Standalone ==========
+
+    /**
+     * Runs the mock server until the process is stopped.
+     *
+     * Usage: MockSseServer [port]   (default 8089; see {@link #fromSystemProperties(int)} for tuning)
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        MockSseServer server = fromSystemProperties(port).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            System.out.println("📊 " + server);
+        }));
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Builds a server with the default category profiles, tuned by system properties:
+     * {@code mock.ioThreads}, {@code mock.timeScale} (delay multiplier, 0 = no delays),
+     * {@code mock.rateLimitRate}, {@code mock.serverErrorRate}, {@code mock.disconnectRate}, {@code mock.seed}.
+     *
+     * @param port Port to bind (0 picks a free port)
+     */
+    public static MockSseServer fromSystemProperties(int port) {
+        Builder builder = builder()
+                .port(port)
+                .ioThreads(Integer.getInteger("mock.ioThreads", Runtime.getRuntime().availableProcessors()))
+                .timeScale(Double.parseDouble(System.getProperty("mock.timeScale", "1.0")))
+                .seed(Long.getLong("mock.seed", 42L));
+        if (System.getProperty("mock.rateLimitRate") != null) {
+            builder.rateLimitRate(Double.parseDouble(System.getProperty("mock.rateLimitRate")));
+        }
+        if (System.getProperty("mock.serverErrorRate") != null) {
+            builder.serverErrorRate(Double.parseDouble(System.getProperty("mock.serverErrorRate")));
+        }
+        if (System.getProperty("mock.disconnectRate") != null) {
+            builder.disconnectRate(Double.parseDouble(System.getProperty("mock.disconnectRate")));
+        }
+        return builder.build();
+    }
+
+    // Builder Pattern
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int port = 0;
+        private int ioThreads = Runtime.getRuntime().availableProcessors();
+        private final Map<String, MockProfile> profiles = MockProfile.defaults();
+        private MockProfile defaultProfile = MockProfile.builder().build();
+        private double timeScale = 1.0;
+        private Double rateLimitRate;
+        private Double serverErrorRate;
+        private Double disconnectRate;
+        private long seed = 42L;
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder ioThreads(int ioThreads) {
+            if (ioThreads < 1) {
+                throw new IllegalArgumentException("At least one I/O thread is required");
+            }
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        public Builder profile(String category, MockProfile profile) {
+            this.profiles.put(category, profile);
+            return this;
+        }
+
+        public Builder defaultProfile(MockProfile profile) {
+            this.defaultProfile = profile;
+            return this;
+        }
+
+        /** Multiplies every TTFT and inter-token delay (0 streams as fast as possible). */
+        public Builder timeScale(double timeScale) {
+            if (timeScale < 0) {
+                throw new IllegalArgumentException("Time scale cannot be negative");
+            }
+            this.timeScale = timeScale;
+            return this;
+        }
+
+        /** Overrides the 429 rate of every profile. */
+        public Builder rateLimitRate(double rate) {
+            this.rateLimitRate = rate;
+            return this;
+        }
+
+        /** Overrides the 500 rate of every profile. */
+        public Builder serverErrorRate(double rate) {
+            this.serverErrorRate = rate;
+            return this;
+        }
+
+        /** Overrides the mid-stream disconnect rate of every profile. */
+        public Builder disconnectRate(double rate) {
+            this.disconnectRate = rate;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public MockSseServer build() {
+            return new MockSseServer(this);
+        }
+    }
+}
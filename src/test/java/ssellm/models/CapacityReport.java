@@ -0,0 +1,84 @@
+package ssellm.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a capacity search: one point per evaluated arrival rate and the saturation point found.
+ */
+public class CapacityReport {
+
+    @JsonProperty("timestamp")
+    public Instant timestamp = Instant.now();
+
+    @JsonProperty("endpoint")
+    public String endpoint;
+
+    @JsonProperty("slo")
+    public String slo;
+
+    // Highest arrival rate (users/sec) that met the SLO, 0 if none did
+    @JsonProperty("capacity_rate")
+    public double capacityRate;
+
+    // Lowest arrival rate that broke the SLO, null if none did
+    @JsonProperty("knee_rate")
+    public Double kneeRate;
+
+    @JsonProperty("stop_reason")
+    public String stopReason;
+
+    @JsonProperty("curve")
+    public List<LevelResult> curve = new ArrayList<>();
+
+    // Inner Classes
+    public static class LevelResult {
+        @JsonProperty("phase")
+        public String phase;
+
+        @JsonProperty("target_rate")
+        public double targetRate;
+
+        // Users actually admitted per second during the measurement window
+        @JsonProperty("admitted_rate")
+        public double admittedRate;
+
+        // Responses completed per second during the measurement window
+        @JsonProperty("throughput")
+        public double throughput;
+
+        @JsonProperty("completed")
+        public long completed;
+
+        @JsonProperty("truncation_rate")
+        public double truncationRate;
+
+        @JsonProperty("ttft_p50_ms")
+        public double ttftP50Ms;
+
+        @JsonProperty("ttft_p99_ms")
+        public double ttftP99Ms;
+
+        @JsonProperty("latency_p50_ms")
+        public double latencyP50Ms;
+
+        @JsonProperty("latency_p99_ms")
+        public double latencyP99Ms;
+
+        @JsonProperty("passed")
+        public boolean passed;
+
+        // SLO checks that failed, empty when passed
+        @JsonProperty("violations")
+        public List<String> violations = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            return String.format("%s rate=%.1f/s admitted=%.1f/s completed=%d ttftP99=%.0fms latencyP99=%.0fms truncation=%.1f%% → %s",
+                    phase, targetRate, admittedRate, completed, ttftP99Ms, latencyP99Ms, truncationRate * 100,
+                    passed ? "PASS" : "FAIL " + violations);
+        }
+    }
+}
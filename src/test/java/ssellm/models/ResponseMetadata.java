@@ -8,7 +8,7 @@ import java.time.Instant;
  *
  * This class stores all relevant information needed for consistency analysis including:
  * - Response content and identifiers
- * - Performance metrics (latency, TTFT, chunk count)
+ * - Performance metrics (latency, TTFT, chunk count, inter-token latency)
  * - Test context (category, prompt, test phase)
  * - Quality indicators (truncation flags)
  */
@@ -51,12 +51,44 @@ public class ResponseMetadata {
     @JsonProperty("response_time_ms")
     private long responseTimeMs;
 
+    // Arrival times in milliseconds from request dispatch. Gatling only exposes when an SSE message was
+    // received as an epoch-millisecond timestamp, so their resolution is 1 ms.
+    @JsonProperty("ttfb_ms")
+    private long ttfbMs;  // Time To First Byte (first SSE frame)
+
     @JsonProperty("ttft_ms")
-    private long ttftMs;  // Time To First Token
+    private long ttftMs;  // Time To First Token (first non-empty content delta)
+
+    // Monotonic timings in microseconds from request dispatch, taken when the scenario step runs, so they
+    // include up to one SSE poll interval of delay.
+    @JsonProperty("connect_us")
+    private long connectUs;  // Until the SSE stream is open
+
+    @JsonProperty("response_time_us")
+    private long responseTimeUs;
 
     @JsonProperty("total_chunks")
     private int totalChunks;
 
+    // Inter-token latency (gap between consecutive content deltas)
+    @JsonProperty("itl_p50_ms")
+    private double itlP50Ms;
+
+    @JsonProperty("itl_p90_ms")
+    private double itlP90Ms;
+
+    @JsonProperty("itl_p99_ms")
+    private double itlP99Ms;
+
+    @JsonProperty("itl_max_ms")
+    private double itlMaxMs;
+
+    @JsonProperty("tokens_per_second")
+    private double tokensPerSecond;  // Delta rate after the first token
+
+    @JsonProperty("longest_gap_ms")
+    private double longestGapMs;  // Includes a trailing stall before completion/timeout
+
     // Quality Indicators
     @JsonProperty("truncated")
     private boolean truncated;
@@ -143,6 +175,51 @@ public class ResponseMetadata {
             return this;
         }
 
+        public Builder connectUs(long connectUs) {
+            metadata.connectUs = connectUs;
+            return this;
+        }
+
+        public Builder ttfbMs(long ttfbMs) {
+            metadata.ttfbMs = ttfbMs;
+            return this;
+        }
+
+        public Builder responseTimeUs(long responseTimeUs) {
+            metadata.responseTimeUs = responseTimeUs;
+            return this;
+        }
+
+        public Builder itlP50Ms(double itlP50Ms) {
+            metadata.itlP50Ms = itlP50Ms;
+            return this;
+        }
+
+        public Builder itlP90Ms(double itlP90Ms) {
+            metadata.itlP90Ms = itlP90Ms;
+            return this;
+        }
+
+        public Builder itlP99Ms(double itlP99Ms) {
+            metadata.itlP99Ms = itlP99Ms;
+            return this;
+        }
+
+        public Builder itlMaxMs(double itlMaxMs) {
+            metadata.itlMaxMs = itlMaxMs;
+            return this;
+        }
+
+        public Builder tokensPerSecond(double tokensPerSecond) {
+            metadata.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        public Builder longestGapMs(double longestGapMs) {
+            metadata.longestGapMs = longestGapMs;
+            return this;
+        }
+
         public Builder truncated(boolean truncated) {
             metadata.truncated = truncated;
             return this;
@@ -266,6 +343,30 @@ public class ResponseMetadata {
         this.ttftMs = ttftMs;
     }
 
+    public long getConnectUs() {
+        return connectUs;
+    }
+
+    public void setConnectUs(long connectUs) {
+        this.connectUs = connectUs;
+    }
+
+    public long getTtfbMs() {
+        return ttfbMs;
+    }
+
+    public void setTtfbMs(long ttfbMs) {
+        this.ttfbMs = ttfbMs;
+    }
+
+    public long getResponseTimeUs() {
+        return responseTimeUs;
+    }
+
+    public void setResponseTimeUs(long responseTimeUs) {
+        this.responseTimeUs = responseTimeUs;
+    }
+
     public int getTotalChunks() {
         return totalChunks;
     }
@@ -274,6 +375,54 @@ public class ResponseMetadata {
         this.totalChunks = totalChunks;
     }
 
+    public double getItlP50Ms() {
+        return itlP50Ms;
+    }
+
+    public void setItlP50Ms(double itlP50Ms) {
+        this.itlP50Ms = itlP50Ms;
+    }
+
+    public double getItlP90Ms() {
+        return itlP90Ms;
+    }
+
+    public void setItlP90Ms(double itlP90Ms) {
+        this.itlP90Ms = itlP90Ms;
+    }
+
+    public double getItlP99Ms() {
+        return itlP99Ms;
+    }
+
+    public void setItlP99Ms(double itlP99Ms) {
+        this.itlP99Ms = itlP99Ms;
+    }
+
+    public double getItlMaxMs() {
+        return itlMaxMs;
+    }
+
+    public void setItlMaxMs(double itlMaxMs) {
+        this.itlMaxMs = itlMaxMs;
+    }
+
+    public double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    public void setTokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+    public double getLongestGapMs() {
+        return longestGapMs;
+    }
+
+    public void setLongestGapMs(double longestGapMs) {
+        this.longestGapMs = longestGapMs;
+    }
+
     public boolean isTruncated() {
         return truncated;
     }
@@ -312,7 +461,7 @@ public class ResponseMetadata {
     @Override
     public String toString() {
         return String.format("ResponseMetadata{sessionId='%s', category='%s', prompt='%s', " +
-                "responseTime=%dms, ttft=%dms, chunks=%d, truncated=%s, phase=%s, timeout=%dms}",
-                sessionId, category, prompt, responseTimeMs, ttftMs, totalChunks, truncated, testPhase, timeoutUsedMs);
+                "responseTime=%dms, ttft=%dms, chunks=%d, itlP99=%.1fms, tokensPerSec=%.1f, truncated=%s, phase=%s, timeout=%dms}",
+                sessionId, category, prompt, responseTimeMs, ttftMs, totalChunks, itlP99Ms, tokensPerSecond, truncated, testPhase, timeoutUsedMs);
     }
 }
@@ -30,6 +30,10 @@ public class SemanticAnalysisResult {
     @JsonProperty("similarity_matrix")
     private double[][] similarityMatrix;
 
+    // Pairs i < j row by row, when the matrix is kept packed instead of square
+    @JsonProperty("similarity_upper")
+    private float[] similarityUpper;
+
     @JsonProperty("is_consistent")
     private boolean isConsistent;
 
@@ -80,6 +84,11 @@ public class SemanticAnalysisResult {
             return this;
         }
 
+        public Builder similarityUpper(float[] similarityUpper) {
+            result.similarityUpper = similarityUpper;
+            return this;
+        }
+
         public Builder isConsistent(boolean isConsistent) {
             result.isConsistent = isConsistent;
             return this;
@@ -156,6 +165,14 @@ public class SemanticAnalysisResult {
         this.similarityMatrix = similarityMatrix;
     }
 
+    public float[] getSimilarityUpper() {
+        return similarityUpper;
+    }
+
+    public void setSimilarityUpper(float[] similarityUpper) {
+        this.similarityUpper = similarityUpper;
+    }
+
     public boolean isConsistent() {
         return isConsistent;
     }
@@ -0,0 +1,309 @@
+package ssellm.recording;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer background sink for the files produced during a load test.
+ *
+ * Producers (Gatling's event-loop threads) only enqueue records into a bounded lock-free queue and never
+ * touch the disk. A dedicated daemon thread drains the queue, batches records per output into a buffer and
+ * writes each batch through one long-lived {@link FileChannel}. A batch is written when its buffer fills
+ * up or when the flush interval elapses, whichever comes first.
+ *
+ * When the queue is full, records are dropped rather than blocking the caller; the drop counter and the
+ * queue depth high-water mark tell whether the recorder ever became the bottleneck.
+ */
+public class AsyncRecordWriter implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int capacity;
+    private final int batchBytes;
+    private final long flushIntervalNanos;
+
+    private final Queue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    // Producers between their closed check and their offer; close() waits for them before the final drain
+    private final AtomicInteger enqueuing = new AtomicInteger();
+    private final List<Output> outputs = new CopyOnWriteArrayList<>();
+    private final Thread writerThread;
+
+    // Metrics
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile boolean closed = false;
+
+    /**
+     * @param capacity        Maximum number of records waiting in the queue
+     * @param batchBytes      Buffer size per output; a full buffer is written immediately
+     * @param flushIntervalMs Maximum time a record may sit in a buffer before being written
+     */
+    public AsyncRecordWriter(int capacity, int batchBytes, long flushIntervalMs) {
+        if (capacity <= 0 || batchBytes <= 0 || flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("Capacity, batch size and flush interval must be positive");
+        }
+        this.capacity = capacity;
+        this.batchBytes = batchBytes;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.writerThread = new Thread(this::drainLoop, "sse-record-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Opens (and truncates) an output file. Parent directories are created once, here.
+     *
+     * @param file Output file
+     * @return Handle used to append records to the file
+     * @throws IOException if the file cannot be opened
+     */
+    public Output open(Path file) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        Output output = new Output(file, channel, ByteBuffer.allocate(batchBytes));
+        outputs.add(output);
+        return output;
+    }
+
+    /**
+     * Stops accepting records, drains everything still queued, forces the files to disk and closes them.
+     * Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Producers that saw the writer open finish their offer, then nothing else can be enqueued
+        while (enqueuing.get() > 0) {
+            Thread.onSpinWait();
+        }
+        // Records enqueued while the writer thread was exiting
+        Record record;
+        while ((record = queue.poll()) != null) {
+            depth.decrementAndGet();
+            buffer(record);
+        }
+        flushAll();
+        for (Output output : outputs) {
+            try {
+                output.channel.force(false);
+                output.channel.close();
+            } catch (IOException e) {
+                System.err.println("❌ Error closing " + output.file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // ========== Metrics ==========
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AsyncRecordWriter{written=%d, dropped=%d, batches=%d, bytes=%d, queueDepth=%d, maxQueueDepth=%d/%d}",
+                getWrittenCount(), getDroppedCount(), getBatchCount(), getBytesWritten(),
+                getQueueDepth(), getMaxQueueDepth(), capacity);
+    }
+
+    // ========== Writer thread ==========
+
+    private boolean enqueue(Output output, String text) {
+        // Registered before reading closed: either close() waits for this offer, or this sees closed
+        enqueuing.incrementAndGet();
+        try {
+            if (closed) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            int size = depth.incrementAndGet();
+            if (size > capacity) {
+                depth.decrementAndGet();
+                dropped.incrementAndGet();
+                return false;
+            }
+            int max = maxDepth.get();
+            while (size > max && !maxDepth.compareAndSet(max, size)) {
+                max = maxDepth.get();
+            }
+            queue.offer(new Record(output, text));
+            return true;
+        } finally {
+            enqueuing.decrementAndGet();
+        }
+    }
+
+    private void drainLoop() {
+        long lastFlush = System.nanoTime();
+        while (true) {
+            Record record = queue.poll();
+            if (record != null) {
+                depth.decrementAndGet();
+                buffer(record);
+            } else if (!running) {
+                break;
+            }
+
+            long now = System.nanoTime();
+            if (now - lastFlush >= flushIntervalNanos) {
+                flushAll();
+                lastFlush = now;
+            }
+            if (record == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        flushAll();
+    }
+
+    private void buffer(Record record) {
+        Output output = record.output;
+        byte[] bytes = record.text.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (bytes.length > output.buffer.remaining()) {
+                flush(output);
+            }
+            if (bytes.length > output.buffer.capacity()) {
+                writeFully(output, ByteBuffer.wrap(bytes));
+            } else {
+                output.buffer.put(bytes);
+                if (!output.buffer.hasRemaining()) {
+                    flush(output);
+                }
+            }
+            written.incrementAndGet();
+        } catch (IOException e) {
+            dropped.incrementAndGet();
+            System.err.println("❌ Error writing to " + output.file + ": " + e.getMessage());
+        }
+    }
+
+    private void flushAll() {
+        for (Output output : outputs) {
+            try {
+                flush(output);
+            } catch (IOException e) {
+                System.err.println("❌ Error flushing " + output.file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void flush(Output output) throws IOException {
+        if (output.buffer.position() == 0) {
+            return;
+        }
+        output.buffer.flip();
+        try {
+            writeFully(output, output.buffer);
+        } finally {
+            output.buffer.clear();
+        }
+    }
+
+    private void writeFully(Output output, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            bytesWritten.addAndGet(output.channel.write(bytes));
+        }
+        batches.incrementAndGet();
+    }
+
+    // ========== Types ==========
+
+    /**
+     * Handle to one output file. Appending never blocks and never performs I/O on the calling thread.
+     */
+    public final class Output {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer; // only touched by the writer thread
+
+        private Output(Path file, FileChannel channel, ByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Queues a record for writing.
+         *
+         * @param text Record content, written as-is (include the line separator if needed)
+         * @return false if the record was dropped because the queue is full or the writer is closed
+         */
+        public boolean append(String text) {
+            return enqueue(this, text);
+        }
+
+        public Path getFile() {
+            return file;
+        }
+    }
+
+    private static final class Record {
+        private final Output output;
+        private final String text;
+
+        private Record(Output output, String text) {
+            this.output = output;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package ssellm.store;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only key-value file for content-addressed values (the key is a hash of the value's inputs, so a
+ * key is written once and never changes).
+ *
+ * Layout: an 8-byte header ({@code SSKV} + format version), then records back to back:
+ * {@code [key: KEY_BYTES][value length: int][value bytes]}, big-endian. The offset of every record is
+ * indexed in memory when the file is opened; values are read with positional reads, so the file can grow
+ * past what a single mapping addresses. A record cut short by a crash is dropped (the file is truncated back
+ * to the last complete record) when the file is opened.
+ *
+ * Disk use is bounded by {@code maxBytes}, split in two generations: when an append would take the file
+ * past half of it, the file is renamed to {@code <file>.old} (replacing the previous one) and a new file is
+ * started. Keys found only in the old generation are copied into the current one when read, so entries in
+ * use survive rotations and the others are dropped with the old file.
+ *
+ * Thread-safe: all methods are synchronized.
+ */
+public final class AppendOnlyStore implements AutoCloseable {
+
+    public static final int KEY_BYTES = 32;
+    public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+    private static final int MAGIC = 0x53534B56; // "SSKV"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = KEY_BYTES + Integer.BYTES;
+    private static final int SCAN_BUFFER_BYTES = 64 * 1024;
+
+    private final Path file;
+    private final Path oldFile;
+    private final long generationBytes;
+    private Generation current;
+    private Generation previous;
+
+    private AppendOnlyStore(Path file, long maxBytes) {
+        this.file = file;
+        this.oldFile = file.resolveSibling(file.getFileName() + ".old");
+        this.generationBytes = maxBytes / 2;
+    }
+
+    /**
+     * Opens the store file with a bound of {@value #DEFAULT_MAX_BYTES} bytes.
+     *
+     * @see #open(Path, long)
+     */
+    public static AppendOnlyStore open(Path file) throws IOException {
+        return open(file, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Opens the store file, creating it (and its directory) if it does not exist, along with the old
+     * generation if there is one.
+     *
+     * @param maxBytes Bound on the size of both generations together
+     * @throws IOException if the file exists but is not a store of this format version
+     */
+    public static AppendOnlyStore open(Path file, long maxBytes) throws IOException {
+        if (maxBytes < 2 * (HEADER_BYTES + RECORD_HEADER_BYTES)) {
+            throw new IllegalArgumentException("maxBytes too small for a key-value store: " + maxBytes);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        AppendOnlyStore store = new AppendOnlyStore(file, maxBytes);
+        store.current = Generation.open(file, true);
+        try {
+            if (Files.exists(store.oldFile)) {
+                store.previous = Generation.open(store.oldFile, false);
+            }
+        } catch (IOException | RuntimeException e) {
+            store.current.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * @return Value stored under the key (a read-only buffer of its own), null if absent
+     */
+    public synchronized ByteBuffer get(byte[] key) throws IOException {
+        ByteBuffer keyBuffer = ByteBuffer.wrap(checkKey(key));
+        ByteBuffer value = current.get(keyBuffer);
+        if (value == null && previous != null) {
+            value = previous.get(keyBuffer);
+            if (value != null && fits(value.remaining())) {
+                append(key.clone(), value.duplicate());
+            }
+        }
+        return value == null ? null : value.asReadOnlyBuffer();
+    }
+
+    public synchronized boolean contains(byte[] key) {
+        ByteBuffer keyBuffer = ByteBuffer.wrap(checkKey(key));
+        return current.offsets.containsKey(keyBuffer) || (previous != null && previous.offsets.containsKey(keyBuffer));
+    }
+
+    /**
+     * Appends a value, unless the key is already stored (values are content-addressed, so the stored one is
+     * the same).
+     *
+     * @return true if the record was appended
+     * @throws IllegalArgumentException if the record does not fit in a generation of the store
+     */
+    public synchronized boolean put(byte[] key, ByteBuffer value) throws IOException {
+        if (contains(key)) {
+            return false;
+        }
+        append(key.clone(), value);
+        return true;
+    }
+
+    private boolean fits(int valueBytes) {
+        return HEADER_BYTES + RECORD_HEADER_BYTES + (long) valueBytes <= generationBytes;
+    }
+
+    private void append(byte[] key, ByteBuffer value) throws IOException {
+        long recordBytes = (long) RECORD_HEADER_BYTES + value.remaining();
+        if (!fits(value.remaining())) {
+            throw new IllegalArgumentException("Value of " + value.remaining() + " bytes does not fit in key-value store "
+                    + file + " (" + generationBytes + " bytes per generation)");
+        }
+        if (current.end + recordBytes > generationBytes) {
+            rotate();
+        }
+        current.append(key, value, (int) recordBytes);
+    }
+
+    /**
+     * Turns the current file into the old generation, dropping the previous old one, and starts a new file.
+     */
+    private void rotate() throws IOException {
+        System.out.println("🔄 Rotating key-value store " + file + " (" + current.end + " bytes, "
+                + current.offsets.size() + " keys)");
+        if (previous != null) {
+            previous.close();
+        }
+        current.close();
+        Files.move(file, oldFile, StandardCopyOption.REPLACE_EXISTING);
+        previous = Generation.open(oldFile, false);
+        current = Generation.open(file, true);
+    }
+
+    /**
+     * @return Number of distinct keys stored, in both generations
+     */
+    public synchronized int size() {
+        int size = current.offsets.size();
+        if (previous != null) {
+            for (ByteBuffer key : previous.offsets.keySet()) {
+                if (!current.offsets.containsKey(key)) {
+                    size++;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return Size of the files in bytes, both generations
+     */
+    public synchronized long getFileBytes() {
+        return current.end + (previous != null ? previous.end : 0);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private static byte[] checkKey(byte[] key) {
+        if (key.length != KEY_BYTES) {
+            throw new IllegalArgumentException("Key must be " + KEY_BYTES + " bytes, got " + key.length);
+        }
+        return key;
+    }
+
+    /**
+     * Forces the appended records to disk and closes the files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            current.close();
+        } finally {
+            if (previous != null) {
+                previous.close();
+            }
+        }
+    }
+
+    /**
+     * One store file: its channel, the offset of every key and the end of the last complete record
+     */
+    private static final class Generation {
+        private final Path file;
+        private final FileChannel channel;
+        private final boolean writable;
+        private final Map<ByteBuffer, Long> offsets = new HashMap<>();
+        private long end;
+
+        private Generation(Path file, FileChannel channel, boolean writable) {
+            this.file = file;
+            this.channel = channel;
+            this.writable = writable;
+        }
+
+        private static Generation open(Path file, boolean writable) throws IOException {
+            FileChannel channel = writable
+                    ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(file, StandardOpenOption.READ);
+            Generation generation = new Generation(file, channel, writable);
+            try {
+                generation.load();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            return generation;
+        }
+
+        private void load() throws IOException {
+            if (channel.size() == 0 && writable) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION);
+                header.flip();
+                write(header, 0);
+            }
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (size < HEADER_BYTES || read(header, 0) < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a key-value store: " + file);
+            }
+            if (header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Unsupported key-value store version " + header.getInt(4) + ": " + file);
+            }
+
+            // Record headers through a sliding window, skipping the values
+            ByteBuffer window = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+            long windowStart = 0;
+            window.limit(0);
+            long position = HEADER_BYTES;
+            while (position + RECORD_HEADER_BYTES <= size) {
+                if (position < windowStart || position + RECORD_HEADER_BYTES > windowStart + window.limit()) {
+                    window.clear();
+                    read(window, position);
+                    window.flip();
+                    windowStart = position;
+                }
+                int offset = (int) (position - windowStart);
+                int length = window.getInt(offset + KEY_BYTES);
+                long next = position + RECORD_HEADER_BYTES + length;
+                if (length < 0 || next > size) {
+                    break;
+                }
+                byte[] key = new byte[KEY_BYTES];
+                window.position(offset);
+                window.get(key);
+                offsets.putIfAbsent(ByteBuffer.wrap(key), position);
+                position = next;
+            }
+            if (position < size) {
+                System.out.println("⚠️ Dropping " + (size - position) + " bytes of incomplete record at the end of " + file);
+                if (writable) {
+                    channel.truncate(position);
+                }
+            }
+            end = position;
+        }
+
+        private ByteBuffer get(ByteBuffer key) throws IOException {
+            Long position = offsets.get(key);
+            if (position == null) {
+                return null;
+            }
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            readFully(length, position + KEY_BYTES);
+            ByteBuffer value = ByteBuffer.allocate(length.getInt(0));
+            readFully(value, position + RECORD_HEADER_BYTES);
+            value.flip();
+            return value;
+        }
+
+        private void append(byte[] key, ByteBuffer value, int recordBytes) throws IOException {
+            ByteBuffer record = ByteBuffer.allocate(recordBytes);
+            record.put(key).putInt(value.remaining()).put(value.duplicate());
+            record.flip();
+            write(record, end);
+            offsets.put(ByteBuffer.wrap(key), end);
+            end += recordBytes;
+        }
+
+        private int read(ByteBuffer buffer, long position) throws IOException {
+            int total = 0;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + total);
+                if (read < 0) {
+                    break;
+                }
+                total += read;
+            }
+            return total;
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            int expected = buffer.remaining();
+            if (read(buffer, position) < expected) {
+                throw new EOFException("Key-value store truncated at " + position + ": " + file);
+            }
+        }
+
+        private void write(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        private void close() throws IOException {
+            if (channel.isOpen()) {
+                if (writable) {
+                    channel.force(false);
+                }
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ssellm.store;
+
+/**
+ * Fixed-width columns of the columnar response store. Each column is a file of big-endian primitives,
+ * one value per response, in the order the responses were written.
+ */
+public enum Column {
+    RESPONSE_TIME_MS("response_time_ms.i64", Long.BYTES),
+    RESPONSE_TIME_US("response_time_us.i64", Long.BYTES),
+    CONNECT_US("connect_us.i64", Long.BYTES),
+    TTFB_MS("ttfb_ms.i64", Long.BYTES),
+    TTFT_MS("ttft_ms.i64", Long.BYTES),
+    TIMESTAMP_MS("timestamp_ms.i64", Long.BYTES),  // Epoch millis, 0 when missing
+    USER_ID("user_id.i64", Long.BYTES),
+    TOTAL_CHUNKS("total_chunks.i32", Integer.BYTES),
+    RESPONSE_LENGTH("response_length.i32", Integer.BYTES),
+    MAX_TOKENS("max_tokens.i32", Integer.BYTES),
+    CATEGORY("category.i32", Integer.BYTES),  // Dictionary id, -1 when missing
+    PHASE("phase.i32", Integer.BYTES),
+    PROMPT("prompt.i32", Integer.BYTES),
+    TRUNCATION_REASON("truncation_reason.i32", Integer.BYTES),
+    FLAGS("flags.i8", Byte.BYTES);
+
+    /** Bit of {@link #FLAGS} set for truncated responses */
+    public static final byte FLAG_TRUNCATED = 1;
+
+    private final String fileName;
+    private final int width;
+
+    Column(String fileName, int width) {
+        this.fileName = fileName;
+        this.width = width;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return Bytes per value
+     */
+    public int getWidth() {
+        return width;
+    }
+}
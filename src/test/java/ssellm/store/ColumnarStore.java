@@ -0,0 +1,197 @@
+package ssellm.store;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read side of the columnar response store, a binary copy of responses_metadata.jsonl laid out for
+ * numeric analytics.
+ *
+ * Layout of the store directory:
+ * - One file per {@link Column}: fixed-width big-endian values, one per response (row)
+ * - {@code category}, {@code phase}, {@code prompt} and {@code truncation_reason} stored as ids into the
+ *   dictionaries of {@code store.json} (which also holds the row count)
+ * - {@code response.blob}: response texts (UTF-8) back to back, and {@code response.offsets}: row count + 1
+ *   longs, row {@code i} spanning {@code [offsets[i], offsets[i + 1])}
+ *
+ * Columns are memory-mapped read-only, so a scan over millions of rows touches the page cache rather than
+ * the heap. Response texts are read from the blob on demand. A mapping is limited to 2 GB, which caps a
+ * store at about 268M rows.
+ */
+public class ColumnarStore implements AutoCloseable {
+
+    public static final int FORMAT_VERSION = 2;
+    public static final String MANIFEST_FILE = "store.json";
+    public static final String BLOB_FILE = "response.blob";
+    public static final String OFFSETS_FILE = "response.offsets";
+    static final List<String> DICTIONARIES = List.of("category", "phase", "prompt", "truncation_reason");
+
+    private final Manifest manifest;
+    private final int rows;
+    private final Map<Column, ByteBuffer> columns = new EnumMap<>(Column.class);
+    private final LongBuffer offsets;
+    private final FileChannel blob;
+
+    private ColumnarStore(Path directory, Manifest manifest) throws IOException {
+        this.manifest = manifest;
+        this.rows = Math.toIntExact(manifest.rowCount);
+        for (Column column : Column.values()) {
+            ByteBuffer buffer = map(directory.resolve(column.getFileName()));
+            if (buffer.capacity() != (long) rows * column.getWidth()) {
+                throw new IOException("Column " + column + " has " + buffer.capacity() + " bytes, expected "
+                        + (long) rows * column.getWidth());
+            }
+            columns.put(column, buffer);
+        }
+        this.offsets = map(directory.resolve(OFFSETS_FILE)).asLongBuffer();
+        this.blob = FileChannel.open(directory.resolve(BLOB_FILE), StandardOpenOption.READ);
+    }
+
+    /**
+     * Opens a store written by {@link ColumnarStoreWriter}.
+     *
+     * @param directory Store directory
+     * @return Open store (close it to release the blob file)
+     * @throws IOException if the store is missing, of another format version or inconsistent
+     */
+    public static ColumnarStore open(Path directory) throws IOException {
+        Path manifestFile = directory.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifestFile)) {
+            throw new IOException("Not a columnar store (no " + MANIFEST_FILE + "): " + directory);
+        }
+        Manifest manifest = new ObjectMapper().readValue(manifestFile.toFile(), Manifest.class);
+        if (manifest.formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported store format version " + manifest.formatVersion + ": " + directory);
+        }
+        return new ColumnarStore(directory, manifest);
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    // ========== Columns ==========
+
+    /**
+     * @return Read-only view of a 64-bit column (absolute {@code get(row)})
+     */
+    public LongBuffer longColumn(Column column) {
+        requireWidth(column, Long.BYTES);
+        return columns.get(column).duplicate().asLongBuffer();
+    }
+
+    /**
+     * @return Read-only view of a 32-bit column (absolute {@code get(row)})
+     */
+    public IntBuffer intColumn(Column column) {
+        requireWidth(column, Integer.BYTES);
+        return columns.get(column).duplicate().asIntBuffer();
+    }
+
+    /**
+     * @return Read-only view of an 8-bit column (absolute {@code get(row)})
+     */
+    public ByteBuffer byteColumn(Column column) {
+        requireWidth(column, Byte.BYTES);
+        return columns.get(column).duplicate();
+    }
+
+    private static void requireWidth(Column column, int width) {
+        if (column.getWidth() != width) {
+            throw new IllegalArgumentException("Column " + column + " is " + column.getWidth() * 8 + "-bit, not " + width * 8 + "-bit");
+        }
+    }
+
+    public boolean isTruncated(int row) {
+        return (columns.get(Column.FLAGS).get(row) & Column.FLAG_TRUNCATED) != 0;
+    }
+
+    // ========== Dictionaries ==========
+
+    /**
+     * @param name One of category, phase, prompt, truncation_reason
+     * @return Values by id
+     */
+    public List<String> dictionary(String name) {
+        List<String> values = manifest.dictionaries.get(name);
+        if (values == null) {
+            throw new IllegalArgumentException("Unknown dictionary: " + name + " (expected one of " + DICTIONARIES + ")");
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    public List<String> getCategories() {
+        return dictionary("category");
+    }
+
+    public List<String> getPhases() {
+        return dictionary("phase");
+    }
+
+    public List<String> getPrompts() {
+        return dictionary("prompt");
+    }
+
+    public List<String> getTruncationReasons() {
+        return dictionary("truncation_reason");
+    }
+
+    // ========== Response text ==========
+
+    /**
+     * Reads the response text of a row from the blob.
+     */
+    public String getResponse(int row) throws IOException {
+        Objects.checkIndex(row, rows);
+        long start = offsets.get(row);
+        int length = Math.toIntExact(offsets.get(row + 1) - start);
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (blob.read(bytes, start + bytes.position()) < 0) {
+                throw new IOException("Response blob ends before row " + row);
+            }
+        }
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Mapped buffers are released by the GC; only the blob channel holds a descriptor
+        blob.close();
+    }
+
+    /**
+     * Store manifest (store.json).
+     */
+    public static class Manifest {
+        @JsonProperty("format_version")
+        public int formatVersion;
+
+        @JsonProperty("row_count")
+        public long rowCount;
+
+        @JsonProperty("blob_bytes")
+        public long blobBytes;
+
+        @JsonProperty("dictionaries")
+        public Map<String, List<String>> dictionaries = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,151 @@
+package ssellm.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import ssellm.models.ResponseMetadata;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Writes responses into a columnar store directory (see {@link ColumnarStore} for the layout).
+ *
+ * Values are appended to one buffered stream per column; the dictionaries and the manifest are written by
+ * {@link #commit()}, so a store is only readable once all its rows have been appended. A writer closed
+ * without a commit (e.g. after a failed append) leaves no manifest: {@link ColumnarStore#open(Path)} rejects
+ * the partial store instead of reading it.
+ */
+public class ColumnarStoreWriter implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final Path directory;
+    private final Map<Column, DataOutputStream> columns = new EnumMap<>(Column.class);
+    private final DataOutputStream blob;
+    private final DataOutputStream offsets;
+    private final Map<String, SymbolTable> dictionaries = new LinkedHashMap<>();
+    private long blobOffset = 0;
+    private long rows = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates (or overwrites) the store files in a directory. The manifest of a previous store there is
+     * removed first, so the directory is not readable until {@link #commit()}.
+     */
+    public ColumnarStoreWriter(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(ColumnarStore.MANIFEST_FILE));
+        for (Column column : Column.values()) {
+            columns.put(column, open(column.getFileName()));
+        }
+        this.blob = open(ColumnarStore.BLOB_FILE);
+        this.offsets = open(ColumnarStore.OFFSETS_FILE);
+        this.offsets.writeLong(0);
+        for (String name : ColumnarStore.DICTIONARIES) {
+            dictionaries.put(name, new SymbolTable());
+        }
+    }
+
+    private DataOutputStream open(String fileName) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(fileName)), BUFFER_BYTES));
+    }
+
+    /**
+     * Appends a response as the next row.
+     */
+    public void append(ResponseMetadata response) throws IOException {
+        columns.get(Column.RESPONSE_TIME_MS).writeLong(response.getResponseTimeMs());
+        columns.get(Column.RESPONSE_TIME_US).writeLong(response.getResponseTimeUs());
+        columns.get(Column.CONNECT_US).writeLong(response.getConnectUs());
+        columns.get(Column.TTFB_MS).writeLong(response.getTtfbMs());
+        columns.get(Column.TTFT_MS).writeLong(response.getTtftMs());
+        columns.get(Column.TIMESTAMP_MS).writeLong(response.getTimestamp() != null ? response.getTimestamp().toEpochMilli() : 0L);
+        columns.get(Column.USER_ID).writeLong(response.getUserId());
+        columns.get(Column.TOTAL_CHUNKS).writeInt(response.getTotalChunks());
+        columns.get(Column.RESPONSE_LENGTH).writeInt(response.getResponseLength());
+        columns.get(Column.MAX_TOKENS).writeInt(response.getMaxTokens());
+        columns.get(Column.CATEGORY).writeInt(dictionaries.get("category").intern(response.getCategory()));
+        columns.get(Column.PHASE).writeInt(dictionaries.get("phase").intern(response.getTestPhase()));
+        columns.get(Column.PROMPT).writeInt(dictionaries.get("prompt").intern(response.getPrompt()));
+        columns.get(Column.TRUNCATION_REASON).writeInt(dictionaries.get("truncation_reason").intern(response.getTruncationReason()));
+        columns.get(Column.FLAGS).writeByte(response.isTruncated() ? Column.FLAG_TRUNCATED : 0);
+
+        // Response text out of line: UTF-8 bytes in the blob, end offset in the offsets file
+        if (response.getResponse() != null) {
+            byte[] text = response.getResponse().getBytes(StandardCharsets.UTF_8);
+            blob.write(text);
+            blobOffset += text.length;
+        }
+        offsets.writeLong(blobOffset);
+        rows++;
+    }
+
+    public long getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Flushes every column, then writes the dictionaries and the manifest, which makes the store readable.
+     * The writer is closed afterwards.
+     */
+    public void commit() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Columnar store writer is closed: " + directory);
+        }
+        closeStreams();
+
+        ColumnarStore.Manifest manifest = new ColumnarStore.Manifest();
+        manifest.formatVersion = ColumnarStore.FORMAT_VERSION;
+        manifest.rowCount = rows;
+        manifest.blobBytes = blobOffset;
+        dictionaries.forEach((name, dictionary) -> manifest.dictionaries.put(name, new ArrayList<>(dictionary.symbols())));
+
+        // Written aside and moved into place, so a crash never leaves a partial manifest
+        Path manifestFile = directory.resolve(ColumnarStore.MANIFEST_FILE);
+        Path tempFile = directory.resolve(ColumnarStore.MANIFEST_FILE + ".tmp");
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(tempFile.toFile(), manifest);
+        Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Closes the column files. Without a prior {@link #commit()} no manifest is written, and the store stays
+     * unreadable.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closeStreams();
+        }
+    }
+
+    private void closeStreams() throws IOException {
+        closed = true;
+        IOException failure = null;
+        List<DataOutputStream> streams = new ArrayList<>(columns.values());
+        streams.add(blob);
+        streams.add(offsets);
+        for (DataOutputStream stream : streams) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
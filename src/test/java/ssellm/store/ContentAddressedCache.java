@@ -0,0 +1,147 @@
+package ssellm.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-level cache of values keyed by the SHA-256 of their inputs: an in-memory {@link LruCache} in front of
+ * an {@link AppendOnlyStore} file that survives across runs. A {@link Codec} turns values into the bytes
+ * stored on disk and back.
+ *
+ * Values are shared with the cache once stored: callers must not modify them. Thread-safe.
+ *
+ * @param <V> Cached value
+ */
+public final class ContentAddressedCache<V> implements AutoCloseable {
+
+    /**
+     * Converts values to and from their bytes in the store file.
+     */
+    public interface Codec<V> {
+        ByteBuffer encode(V value);
+
+        /**
+         * @param bytes Stored bytes (a buffer of their own, positioned at the value)
+         */
+        V decode(ByteBuffer bytes);
+    }
+
+    private final AppendOnlyStore store;
+    private final LruCache<ByteBuffer, V> memory;
+    private final Codec<V> codec;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+
+    /**
+     * @param file         Store file, null for an in-memory cache only
+     * @param maxFileBytes Bound on the store file (both generations of the {@link AppendOnlyStore})
+     * @param maxEntries   Values kept in memory
+     */
+    public ContentAddressedCache(Path file, long maxFileBytes, int maxEntries, Codec<V> codec) throws IOException {
+        this.store = file != null ? AppendOnlyStore.open(file, maxFileBytes) : null;
+        this.memory = new LruCache<>(maxEntries);
+        this.codec = codec;
+    }
+
+    /**
+     * Cache configured by {@code <prefix>.cacheFile} ({@code none} to keep it in memory only),
+     * {@code <prefix>.cacheMaxMb} and {@code <prefix>.cacheEntries}.
+     */
+    public static <V> ContentAddressedCache<V> fromSystemProperties(String prefix, String defaultFile,
+                                                                    long defaultMaxFileMb, int defaultMaxEntries,
+                                                                    Codec<V> codec) throws IOException {
+        String file = System.getProperty(prefix + ".cacheFile", defaultFile);
+        long maxFileMb = Long.getLong(prefix + ".cacheMaxMb", defaultMaxFileMb);
+        int maxEntries = Integer.getInteger(prefix + ".cacheEntries", defaultMaxEntries);
+        return new ContentAddressedCache<>(file.equalsIgnoreCase("none") ? null : Path.of(file),
+                maxFileMb << 20, maxEntries, codec);
+    }
+
+    /**
+     * @return SHA-256 of the parts (UTF-8), separated by NUL bytes
+     */
+    public static ByteBuffer key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    digest.update((byte) 0);
+                }
+                digest.update(parts[i].getBytes(StandardCharsets.UTF_8));
+            }
+            return ByteBuffer.wrap(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @param key Result of {@link #key(String...)}
+     * @return Cached value, from memory or from the file (then kept in memory), null if absent
+     */
+    public V lookup(ByteBuffer key) throws IOException {
+        V value = memory.get(key);
+        if (value != null) {
+            memoryHits.incrementAndGet();
+            return value;
+        }
+        if (store == null) {
+            return null;
+        }
+        ByteBuffer bytes = store.get(key.array());
+        if (bytes == null) {
+            return null;
+        }
+        value = codec.decode(bytes);
+        memory.put(key, value);
+        diskHits.incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Caches a value in memory and appends it to the file.
+     *
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void store(ByteBuffer key, V value) {
+        memory.put(key, value);
+        if (store != null) {
+            try {
+                store.put(key.array(), codec.encode(value));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write cache " + store.getFile(), e);
+            }
+        }
+    }
+
+    // ========== Statistics ==========
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * @return Description of the file contents for the stats line, empty for an in-memory cache
+     */
+    public String describeFile(String entries) {
+        return store != null ? ", " + store.size() + " " + entries + " in " + store.getFile() : "";
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+}
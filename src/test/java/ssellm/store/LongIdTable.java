@@ -0,0 +1,72 @@
+package ssellm.store;
+
+import java.util.Arrays;
+
+/**
+ * Maps long keys (user ids, time buckets) to dense int ids in first-seen order, without boxing.
+ * Open addressing with linear probing; not thread-safe.
+ */
+public final class LongIdTable {
+
+    private long[] keysById = new long[16];
+    private int size = 0;
+
+    // Slots hold id + 1, 0 = empty; capacity is a power of two kept at most half full
+    private int[] slots = new int[32];
+
+    /**
+     * @return Id of the key, assigning the next id if it is new
+     */
+    public int intern(long key) {
+        int mask = slots.length - 1;
+        for (int slot = spread(key) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                if (size == keysById.length) {
+                    keysById = Arrays.copyOf(keysById, size * 2);
+                }
+                int id = size++;
+                keysById[id] = key;
+                slots[slot] = id + 1;
+                if (size * 2 > slots.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (keysById[entry - 1] == key) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * @return Key of an id
+     */
+    public long key(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown id " + id + " (size " + size + ")");
+        }
+        return keysById[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(keysById[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int spread(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,141 @@
+package ssellm.store;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interns strings into dense int ids (0, 1, 2... in first-seen order).
+ *
+ * Lookups go through an open-addressing table of ids, so no Integer is boxed per lookup, and the
+ * canonical instance returned by {@link #canonical(String)} lets every record share one copy of each
+ * distinct string. Null is never interned: it maps to {@link #NONE}. Not thread-safe.
+ */
+public final class SymbolTable {
+
+    public static final int NONE = -1;
+
+    private String[] symbols = new String[16];
+    private int[] hashes = new int[16];
+    private int size = 0;
+
+    // Slots hold id + 1, 0 = empty; capacity is a power of two kept at most half full
+    private int[] slots = new int[32];
+
+    /**
+     * @return Id of the string, assigning the next id if it is new; {@link #NONE} for null
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        int hash = spread(value.hashCode());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return add(value, hash, slot);
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && symbols[id].equals(value)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @return Id of the string, or {@link #NONE} if it was never interned
+     */
+    public int idOf(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        int hash = spread(value.hashCode());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return NONE;
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && symbols[id].equals(value)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @return The shared instance equal to the string (interning it if new), null for null
+     */
+    public String canonical(String value) {
+        int id = intern(value);
+        return id == NONE ? null : symbols[id];
+    }
+
+    /**
+     * @return String of an id, null for {@link #NONE}
+     */
+    public String symbol(int id) {
+        if (id == NONE) {
+            return null;
+        }
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown symbol id " + id + " (size " + size + ")");
+        }
+        return symbols[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Read-only view of the symbols, indexed by id
+     */
+    public List<String> symbols() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return symbol(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int add(String value, int hash, int slot) {
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        symbols[id] = value;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int spread(int hash) {
+        // Mix the high bits in: linear probing on the low bits of String.hashCode clusters badly
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,97 @@
+package ssellm.streaming;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures the bytes allocated per streamed response by the former session round trip (each poll copies the
+ * accumulated text into a new StringBuilder, appends its deltas and stores {@code toString()} back) against
+ * {@link ResponseAccumulator} (one presized buffer appended in place), for several numbers of deltas per poll.
+ *
+ * Only the response text and the accumulator are measured; the Gatling session updates the former path also
+ * made on every poll ({@code llmResponse}, {@code chunkCount}, {@code ttft}) would add to its side.
+ *
+ * Usage: {@code AccumulatorBenchmark [tokens=2000] [responses=200] [deltasPerPoll=1,5,20]}
+ */
+public class AccumulatorBenchmark {
+
+    private static final String[] WORDS = {" the", " response", " stream", " token", " latency", " model", " a",
+            " consistency", ",", " análisis", "."};
+
+    public static void main(String[] args) {
+        int tokens = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int responses = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        String[] batchSizes = (args.length > 2 ? args[2] : "1,5,20").split(",");
+
+        Random random = new Random(42);
+        String[] deltas = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            deltas[i] = WORDS[random.nextInt(WORDS.length)];
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        System.out.println("💾 Allocation per response, " + tokens + " tokens, " + responses + " responses");
+        for (String batchSize : batchSizes) {
+            int perPoll = Integer.parseInt(batchSize.trim());
+            long copiedBytes = 0;
+            long accumulatedBytes = 0;
+            for (int round = 0; round < 3; round++) { // the last round is measured, after 2 warm-up rounds
+                long allocated = threads.getThreadAllocatedBytes(thread);
+                int copiedLength = 0;
+                for (int r = 0; r < responses; r++) {
+                    copiedLength += copyPerPoll(deltas, perPoll).length();
+                }
+                copiedBytes = threads.getThreadAllocatedBytes(thread) - allocated;
+
+                allocated = threads.getThreadAllocatedBytes(thread);
+                int accumulatedLength = 0;
+                for (int r = 0; r < responses; r++) {
+                    accumulatedLength += accumulate(deltas, perPoll, tokens).length();
+                }
+                accumulatedBytes = threads.getThreadAllocatedBytes(thread) - allocated;
+
+                if (copiedLength != accumulatedLength) {
+                    throw new IllegalStateException("Accumulated content differs: " + copiedLength + " vs "
+                            + accumulatedLength + " chars");
+                }
+            }
+
+            System.out.println(String.format("  %2d deltas/poll: session copy %10.1f KB/response, "
+                            + "ResponseAccumulator %8.1f KB/response  (%.0fx less)",
+                    perPoll, copiedBytes / 1024.0 / responses, accumulatedBytes / 1024.0 / responses,
+                    (double) copiedBytes / Math.max(1, accumulatedBytes)));
+        }
+    }
+
+    /**
+     * Former path: the whole text goes out of the session and back in on every poll
+     */
+    private static String copyPerPoll(String[] deltas, int perPoll) {
+        String stored = null;
+        for (int start = 0; start < deltas.length; start += perPoll) {
+            StringBuilder responseContent = new StringBuilder();
+            if (stored != null) {
+                responseContent.append(stored);
+            }
+            for (int i = start; i < Math.min(deltas.length, start + perPoll); i++) {
+                responseContent.append(deltas[i]);
+            }
+            stored = responseContent.toString();
+        }
+        return stored;
+    }
+
+    /**
+     * Current path: one accumulator per response, appended in place, read once at the end
+     */
+    private static String accumulate(String[] deltas, int perPoll, int maxTokens) {
+        long start = System.nanoTime();
+        ResponseAccumulator accumulator = new ResponseAccumulator(start, System.currentTimeMillis(), maxTokens);
+        for (int i = 0; i < deltas.length; i++) {
+            accumulator.content().append(deltas[i]);
+            accumulator.onContentDelta(start + (i / perPoll) * 1_000_000L);
+        }
+        return accumulator.content().toString();
+    }
+}
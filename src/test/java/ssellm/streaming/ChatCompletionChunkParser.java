@@ -0,0 +1,404 @@
+package ssellm.streaming;
+
+/**
+ * Incremental parser for the OpenAI chat-completion delta format as delivered by Gatling's SSE support.
+ *
+ * Gatling hands every SSE event over as a JSON wrapper whose {@code data} field holds the OpenAI chunk
+ * as an escaped JSON string:
+ * <pre>
+ * {"event":"message","data":"{\"id\":\"chatcmpl-1\",\"choices\":[{\"delta\":{\"content\":\"Hola\"}}]}"}
+ * </pre>
+ * Instead of parsing the wrapper, copying {@code data} out and parsing it again into a tree, this parser
+ * walks both layers in a single pass over the original char sequence: the escapes of the wrapper string
+ * are decoded on the fly while the inner document is scanned, and only {@code id} and
+ * {@code choices[0].delta.content} are extracted. Content is appended straight into the caller's buffer.
+ *
+ * Instances are reusable but not thread-safe; keep one per thread.
+ */
+public final class ChatCompletionChunkParser {
+
+    /** Returned by {@link #parse} when the wrapper has no {@code data} field. */
+    public static final int NO_DATA = -1;
+
+    private static final int END = -1;
+
+    private final StringBuilder scratch = new StringBuilder(32);
+
+    private CharSequence source;
+    private int pos;
+    private int limit;
+    private boolean nested;
+
+    private String id;
+    private boolean hasContent;
+
+    /**
+     * Parses one Gatling SSE message.
+     *
+     * @param message   Raw message as returned by {@code SseMessage.message()}
+     * @param content   Buffer receiving the decoded {@code choices[0].delta.content}, if present
+     * @param captureId Whether the chunk {@code id} should be materialized (only needed once per response)
+     * @return Number of characters appended to {@code content}, or {@link #NO_DATA}
+     * @throws IllegalArgumentException if the message is not well-formed
+     */
+    public int parse(CharSequence message, StringBuilder content, boolean captureId) {
+        this.source = message;
+        this.pos = 0;
+        this.limit = message.length();
+        this.nested = false;
+        this.id = null;
+        this.hasContent = false;
+
+        int before = content.length();
+        boolean sawData = false;
+
+        expect('{');
+        if (peekSkippingWhitespace() == '}') {
+            next();
+            return NO_DATA;
+        }
+        while (true) {
+            readString(scratch);
+            expect(':');
+            if (!sawData && contentEquals(scratch, "data") && peekSkippingWhitespace() == '"') {
+                next();
+                nested = true;
+                parseChunk(content, captureId);
+                skipWhitespace();
+                if (next() != END) {
+                    throw malformed("trailing characters in data");
+                }
+                nested = false;
+                next(); // closing quote of the wrapper string
+                sawData = true;
+            } else {
+                skipValue();
+            }
+            int c = nextSkippingWhitespace();
+            if (c == '}') {
+                break;
+            }
+            if (c != ',') {
+                throw malformed("expected ',' or '}'");
+            }
+        }
+        return sawData ? content.length() - before : NO_DATA;
+    }
+
+    /**
+     * @return The chunk id of the last parsed message, or null if it was not captured or absent
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * @return Whether the last parsed message carried a {@code delta.content} string (possibly empty)
+     */
+    public boolean hasContent() {
+        return hasContent;
+    }
+
+    // ========== Inner document ==========
+
+    private void parseChunk(StringBuilder content, boolean captureId) {
+        expect('{');
+        if (peekSkippingWhitespace() == '}') {
+            next();
+            return;
+        }
+        while (true) {
+            readString(scratch);
+            expect(':');
+            if (captureId && id == null && contentEquals(scratch, "id") && peekSkippingWhitespace() == '"') {
+                readString(scratch);
+                id = scratch.toString();
+            } else if (contentEquals(scratch, "choices") && peekSkippingWhitespace() == '[') {
+                parseChoices(content);
+            } else {
+                skipValue();
+            }
+            if (!nextMember()) {
+                return;
+            }
+        }
+    }
+
+    private void parseChoices(StringBuilder content) {
+        expect('[');
+        if (peekSkippingWhitespace() == ']') {
+            next();
+            return;
+        }
+        boolean first = true;
+        while (true) {
+            if (first && peekSkippingWhitespace() == '{') {
+                parseChoice(content);
+            } else {
+                skipValue();
+            }
+            first = false;
+            int c = nextSkippingWhitespace();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                throw malformed("expected ',' or ']'");
+            }
+        }
+    }
+
+    private void parseChoice(StringBuilder content) {
+        expect('{');
+        if (peekSkippingWhitespace() == '}') {
+            next();
+            return;
+        }
+        while (true) {
+            readString(scratch);
+            expect(':');
+            if (contentEquals(scratch, "delta") && peekSkippingWhitespace() == '{') {
+                parseDelta(content);
+            } else {
+                skipValue();
+            }
+            if (!nextMember()) {
+                return;
+            }
+        }
+    }
+
+    private void parseDelta(StringBuilder content) {
+        expect('{');
+        if (peekSkippingWhitespace() == '}') {
+            next();
+            return;
+        }
+        while (true) {
+            readString(scratch);
+            expect(':');
+            if (contentEquals(scratch, "content") && peekSkippingWhitespace() == '"') {
+                appendString(content);
+                hasContent = true;
+            } else {
+                skipValue();
+            }
+            if (!nextMember()) {
+                return;
+            }
+        }
+    }
+
+    // ========== Generic scanning ==========
+
+    private boolean nextMember() {
+        int c = nextSkippingWhitespace();
+        if (c == ',') {
+            return true;
+        }
+        if (c == '}') {
+            return false;
+        }
+        throw malformed("expected ',' or '}'");
+    }
+
+    private void skipValue() {
+        int c = peekSkippingWhitespace();
+        switch (c) {
+            case '"':
+                skipString();
+                return;
+            case '{':
+                next();
+                if (peekSkippingWhitespace() == '}') {
+                    next();
+                    return;
+                }
+                while (true) {
+                    skipString();
+                    expect(':');
+                    skipValue();
+                    if (!nextMember()) {
+                        return;
+                    }
+                }
+            case '[':
+                next();
+                if (peekSkippingWhitespace() == ']') {
+                    next();
+                    return;
+                }
+                while (true) {
+                    skipValue();
+                    int d = nextSkippingWhitespace();
+                    if (d == ']') {
+                        return;
+                    }
+                    if (d != ',') {
+                        throw malformed("expected ',' or ']'");
+                    }
+                }
+            default:
+                // Literal or number: consume until a structural character
+                int consumed = 0;
+                while (true) {
+                    int p = peek();
+                    if (p == END || p == ',' || p == '}' || p == ']' || isWhitespace(p)) {
+                        break;
+                    }
+                    next();
+                    consumed++;
+                }
+                if (consumed == 0) {
+                    throw malformed("expected a value");
+                }
+        }
+    }
+
+    private void readString(StringBuilder out) {
+        out.setLength(0);
+        appendString(out);
+    }
+
+    private void skipString() {
+        appendString(null);
+    }
+
+    private void appendString(StringBuilder out) {
+        expect('"');
+        while (true) {
+            int c = next();
+            if (c == END) {
+                throw malformed("unterminated string");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                c = unescape(next());
+            }
+            if (out != null) {
+                out.append((char) c);
+            }
+        }
+    }
+
+    private int unescape(int e) {
+        switch (e) {
+            case '"':
+            case '\\':
+            case '/':
+                return e;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                return (hex(next()) << 12) | (hex(next()) << 8) | (hex(next()) << 4) | hex(next());
+            default:
+                throw malformed("invalid escape");
+        }
+    }
+
+    private int hex(int c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        throw malformed("invalid unicode escape");
+    }
+
+    // ========== Character layer ==========
+
+    /**
+     * Returns the next logical character. At the wrapper level this is the raw character; inside the
+     * wrapper's {@code data} string it is the character after decoding the wrapper escapes, and
+     * {@link #END} once the closing (unconsumed) quote of that string is reached.
+     */
+    private int next() {
+        if (pos >= limit) {
+            return END;
+        }
+        char c = source.charAt(pos);
+        if (!nested) {
+            pos++;
+            return c;
+        }
+        if (c == '"') {
+            return END;
+        }
+        pos++;
+        if (c != '\\') {
+            return c;
+        }
+        if (pos >= limit) {
+            throw malformed("unterminated escape");
+        }
+        char e = source.charAt(pos++);
+        if (e == 'u') {
+            if (pos + 4 > limit) {
+                throw malformed("unterminated unicode escape");
+            }
+            int value = (hex(source.charAt(pos)) << 12) | (hex(source.charAt(pos + 1)) << 8)
+                    | (hex(source.charAt(pos + 2)) << 4) | hex(source.charAt(pos + 3));
+            pos += 4;
+            return value;
+        }
+        return unescape(e);
+    }
+
+    private int peek() {
+        int mark = pos;
+        int c = next();
+        pos = mark;
+        return c;
+    }
+
+    private void skipWhitespace() {
+        while (isWhitespace(peek())) {
+            next();
+        }
+    }
+
+    private int peekSkippingWhitespace() {
+        skipWhitespace();
+        return peek();
+    }
+
+    private int nextSkippingWhitespace() {
+        skipWhitespace();
+        return next();
+    }
+
+    private void expect(char expected) {
+        if (nextSkippingWhitespace() != expected) {
+            throw malformed("expected '" + expected + "'");
+        }
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static boolean contentEquals(StringBuilder sb, String literal) {
+        int length = literal.length();
+        if (sb.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (sb.charAt(i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed SSE chunk at offset " + pos + ": " + reason);
+    }
+}
@@ -0,0 +1,110 @@
+package ssellm.streaming;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times the extraction of {@code id} and {@code choices[0].delta.content} from Gatling SSE messages: the
+ * former path (Gson tree of the wrapper, then a second tree of the {@code data} string) against
+ * {@link ChatCompletionChunkParser}, reporting nanoseconds and bytes allocated per chunk.
+ *
+ * Usage: {@code ChunkParserBenchmark [chunks=100000] [iterations=10]}
+ */
+public class ChunkParserBenchmark {
+
+    private static final String[] WORDS = {"the", "response", "stream", "token", "latency", "server", "model",
+            "consistency", "é", "\\\\\\\"quoted\\\\\\\"", "line\\\\nbreak", "data", "análisis"};
+
+    public static void main(String[] args) {
+        int chunks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<String> messages = messages(chunks, new Random(42));
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        System.out.println("⏱️ SSE chunk parsing, " + chunks + " chunks, " + iterations + " iterations");
+        ChatCompletionChunkParser parser = new ChatCompletionChunkParser();
+        StringBuilder content = new StringBuilder(chunks * 8);
+        long gsonNanos = Long.MAX_VALUE;
+        long parserNanos = Long.MAX_VALUE;
+        long gsonBytes = 0;
+        long parserBytes = 0;
+        String gsonContent = null;
+        String parserContent = null;
+        for (int iteration = -2; iteration < iterations; iteration++) { // 2 warm-up rounds
+            content.setLength(0);
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            parseWithGson(messages, content);
+            long gsonTime = System.nanoTime() - start;
+            long gsonAllocated = threads.getThreadAllocatedBytes(thread) - allocated;
+            gsonContent = content.toString();
+
+            content.setLength(0);
+            allocated = threads.getThreadAllocatedBytes(thread);
+            start = System.nanoTime();
+            parseWithParser(messages, parser, content);
+            long parserTime = System.nanoTime() - start;
+            long parserAllocated = threads.getThreadAllocatedBytes(thread) - allocated;
+            parserContent = content.toString();
+
+            if (iteration >= 0) {
+                gsonNanos = Math.min(gsonNanos, gsonTime);
+                parserNanos = Math.min(parserNanos, parserTime);
+                gsonBytes = gsonAllocated;
+                parserBytes = parserAllocated;
+            }
+        }
+
+        System.out.println(String.format("  Gson, two trees:            %7.1f ns/chunk  %7.1f B/chunk",
+                (double) gsonNanos / chunks, (double) gsonBytes / chunks));
+        System.out.println(String.format("  ChatCompletionChunkParser:  %7.1f ns/chunk  %7.1f B/chunk  (%.1fx)",
+                (double) parserNanos / chunks, (double) parserBytes / chunks, (double) gsonNanos / parserNanos));
+        if (!gsonContent.equals(parserContent)) {
+            throw new IllegalStateException("Extracted content differs between Gson and ChatCompletionChunkParser");
+        }
+    }
+
+    /**
+     * Messages as Gatling delivers them: a JSON wrapper whose {@code data} is the escaped OpenAI chunk
+     */
+    private static List<String> messages(int count, Random random) {
+        List<String> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            messages.add("{\"event\":\"message\",\"id\":\"\",\"data\":\"{\\\"id\\\":\\\"chatcmpl-" + (i / 500)
+                    + "\\\",\\\"object\\\":\\\"chat.completion.chunk\\\",\\\"created\\\":1735689600,"
+                    + "\\\"model\\\":\\\"gpt-4o-mini-2024-07-18\\\",\\\"system_fingerprint\\\":\\\"fp_0ba0d124f1\\\","
+                    + "\\\"choices\\\":[{\\\"index\\\":0,\\\"delta\\\":{\\\"content\\\":\\\" " + word
+                    + "\\\"},\\\"logprobs\\\":null,\\\"finish_reason\\\":null}]}\"}");
+        }
+        return messages;
+    }
+
+    private static void parseWithGson(List<String> messages, StringBuilder content) {
+        String id = null;
+        for (String message : messages) {
+            JsonObject chunkJson = JsonParser.parseString(message).getAsJsonObject();
+            JsonObject innerJson = JsonParser.parseString(chunkJson.get("data").getAsString()).getAsJsonObject();
+            if (innerJson.has("id") && id == null) {
+                id = innerJson.get("id").getAsString();
+            }
+            JsonObject delta = innerJson.getAsJsonArray("choices").get(0).getAsJsonObject().getAsJsonObject("delta");
+            if (delta.has("content")) {
+                content.append(delta.get("content").getAsString());
+            }
+        }
+    }
+
+    private static void parseWithParser(List<String> messages, ChatCompletionChunkParser parser, StringBuilder content) {
+        for (int i = 0; i < messages.size(); i++) {
+            parser.parse(messages.get(i), content, i == 0);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ssellm.streaming;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mutable per-virtual-user state of one streamed response.
+ *
+ * The accumulator is stored in the Gatling session once, right before the request is dispatched, and is
+ * then appended to in place. Each poll only pays for the chunks it received, instead of copying the whole
+ * response out of the session and back in again.
+ *
+ * All timings use {@link System#nanoTime()} and are anchored at request dispatch, so the stream milestones
+ * (stream open, first byte, first content token, completion) include connection setup.
+ *
+ * The SSE messages are handed to the scenario in batches, when the user's loop polls for them, so the poll
+ * time is not when a message arrived: every delta of a batch would get nearly the same time. Content deltas
+ * are stamped instead with the time Gatling recorded when it received the message
+ * ({@link #arrivalNanos(long, long)}), at millisecond resolution.
+ *
+ * A virtual user processes its SSE messages sequentially, so no synchronization is needed.
+ */
+public final class ResponseAccumulator {
+
+    /** Session attribute holding the accumulator. */
+    public static final String SESSION_KEY = "responseAccumulator";
+
+    // Rough average of characters per token, used to presize the content buffer
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final long requestStartNanos;
+    private final long requestStartEpochMillis;
+    private final StringBuilder content;
+    private final TokenTimeline timeline;
+    private String chunkId;
+    private int chunkCount;
+    private long streamOpenNanos;
+    private long firstByteNanos;
+
+    /**
+     * @param requestStartNanos       Dispatch time of the request, from {@link System#nanoTime()}
+     * @param requestStartEpochMillis The same instant from {@link System#currentTimeMillis()}, to place the
+     *                                message timestamps on the nanoTime scale
+     * @param maxTokens               Token budget of the request, used to presize the buffers
+     */
+    public ResponseAccumulator(long requestStartNanos, long requestStartEpochMillis, int maxTokens) {
+        this.requestStartNanos = requestStartNanos;
+        this.requestStartEpochMillis = requestStartEpochMillis;
+        this.content = new StringBuilder(Math.max(16, maxTokens * CHARS_PER_TOKEN));
+        this.timeline = new TokenTimeline(maxTokens);
+    }
+
+    /**
+     * Records that the SSE connection is established (response headers received).
+     *
+     * @param nanoTime Time from {@link System#nanoTime()}
+     */
+    public void onStreamOpen(long nanoTime) {
+        if (streamOpenNanos == 0) {
+            streamOpenNanos = nanoTime;
+        }
+    }
+
+    /**
+     * Records the arrival of an SSE frame; the first one sets the time to first byte.
+     *
+     * @param nanoTime Arrival time on the {@link System#nanoTime()} scale, see {@link #arrivalNanos(long, long)}
+     */
+    public void onFrame(long nanoTime) {
+        if (firstByteNanos == 0) {
+            firstByteNanos = nanoTime;
+        }
+    }
+
+    /**
+     * Counts a data chunk (any frame other than {@code [DONE]}).
+     */
+    public void onChunk() {
+        chunkCount++;
+    }
+
+    /**
+     * Records the arrival of a non-empty content delta; the first one sets the time to first token.
+     *
+     * @param nanoTime Arrival time on the {@link System#nanoTime()} scale, see {@link #arrivalNanos(long, long)}
+     */
+    public void onContentDelta(long nanoTime) {
+        timeline.record(nanoTime);
+    }
+
+    /**
+     * Places the timestamp Gatling put on an SSE message when it was received (epoch milliseconds) on the
+     * {@link System#nanoTime()} scale of this request. The result has millisecond resolution and is kept
+     * between the dispatch and the poll that delivered the message.
+     *
+     * @param messageTimestampMillis Arrival time of the message, from {@code SseInboundMessage.timestamp()}
+     * @param pollNanos              Time the message was handed to the scenario, from {@link System#nanoTime()}
+     */
+    public long arrivalNanos(long messageTimestampMillis, long pollNanos) {
+        long nanos = requestStartNanos + TimeUnit.MILLISECONDS.toNanos(messageTimestampMillis - requestStartEpochMillis);
+        return Math.max(requestStartNanos, Math.min(pollNanos, nanos));
+    }
+
+    /**
+     * @return The buffer the delta content is appended to
+     */
+    public StringBuilder content() {
+        return content;
+    }
+
+    public TokenTimeline getTimeline() {
+        return timeline;
+    }
+
+    public long getRequestStartNanos() {
+        return requestStartNanos;
+    }
+
+    /**
+     * @param nanoTime Current time from {@link System#nanoTime()}
+     * @return Nanoseconds since the request was dispatched
+     */
+    public long elapsedNanos(long nanoTime) {
+        return nanoTime - requestStartNanos;
+    }
+
+    /**
+     * @return Nanoseconds from dispatch until the stream was open, or 0 if it never opened
+     */
+    public long getConnectNanos() {
+        return streamOpenNanos == 0 ? 0 : streamOpenNanos - requestStartNanos;
+    }
+
+    /**
+     * @return Nanoseconds from dispatch until the first SSE frame, or 0 if none arrived
+     */
+    public long getTimeToFirstByteNanos() {
+        return firstByteNanos == 0 ? 0 : firstByteNanos - requestStartNanos;
+    }
+
+    /**
+     * @return Nanoseconds from dispatch until the first content token, or 0 if none arrived
+     */
+    public long getTimeToFirstTokenNanos() {
+        return timeline.getCount() == 0 ? 0 : timeline.getFirst() - requestStartNanos;
+    }
+
+    public boolean hasChunkId() {
+        return chunkId != null;
+    }
+
+    public String getChunkId() {
+        return chunkId;
+    }
+
+    public void setChunkId(String chunkId) {
+        this.chunkId = chunkId;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+}
@@ -0,0 +1,139 @@
+package ssellm.streaming;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Arrival times of the content deltas of one streamed response, on the {@link System#nanoTime()} scale.
+ *
+ * The times come from the timestamps Gatling puts on each SSE message when it is received (see
+ * {@link ResponseAccumulator#arrivalNanos(long, long)}), not from when the scenario polls the messages, so
+ * deltas delivered in one poll keep their own arrival times. Their resolution is one millisecond: gaps are
+ * multiples of 1 ms, and deltas arriving within the same millisecond have a gap of 0.
+ *
+ * Timestamps live in a primitive {@code long[]} ring sized from the request's token budget, so recording
+ * a delta is a single array store. If a stream produces more deltas than the ring holds, the oldest
+ * timestamps are overwritten: percentiles are then computed over the retained window, while the delta
+ * count, the first and last arrival and the longest gap stay exact.
+ */
+public final class TokenTimeline {
+
+    private static final double NANOS_PER_MS = 1_000_000.0;
+
+    private final long[] ring;
+    private int count;
+    private long first;
+    private long last;
+    private long maxGap;
+
+    /**
+     * @param expectedTokens Number of deltas the stream is expected to produce (e.g. max_tokens)
+     */
+    public TokenTimeline(int expectedTokens) {
+        this.ring = new long[Math.max(16, expectedTokens + 16)];
+    }
+
+    /**
+     * Records the arrival of a content delta.
+     *
+     * @param nanoTime Arrival time on the {@link System#nanoTime()} scale
+     */
+    public void record(long nanoTime) {
+        if (count == 0) {
+            first = nanoTime;
+        } else {
+            long gap = nanoTime - last;
+            if (gap > maxGap) {
+                maxGap = gap;
+            }
+        }
+        ring[count % ring.length] = nanoTime;
+        last = nanoTime;
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return Arrival time of the first delta, meaningful only when {@link #getCount()} is positive
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * Passes every inter-token gap of the retained window, in nanoseconds and arrival order, to a consumer.
+     */
+    public void forEachGap(LongConsumer consumer) {
+        int retained = Math.min(count, ring.length);
+        int start = count - retained;
+        for (int i = 1; i < retained; i++) {
+            consumer.accept(ring[(start + i) % ring.length] - ring[(start + i - 1) % ring.length]);
+        }
+    }
+
+    /**
+     * Summarizes inter-token latency for a stream that ended at {@code endNanoTime}.
+     *
+     * @param endNanoTime Time the stream completed or was cut off, from {@link System#nanoTime()}
+     * @return Inter-token latency summary (all zero when fewer than two deltas were recorded)
+     */
+    public Summary summarize(long endNanoTime) {
+        Summary summary = new Summary();
+        if (count == 0) {
+            return summary;
+        }
+
+        // A stall at the end of the stream (e.g. before a timeout) has no closing delta, so the trailing
+        // gap counts towards the longest gap but not towards the inter-token distribution
+        long trailingGap = Math.max(0, endNanoTime - last);
+        summary.longestGapMs = Math.max(maxGap, trailingGap) / NANOS_PER_MS;
+
+        if (count < 2) {
+            return summary;
+        }
+
+        int retained = Math.min(count, ring.length);
+        int start = count - retained;
+        long[] gaps = new long[retained - 1];
+        long previous = ring[start % ring.length];
+        for (int i = 1; i < retained; i++) {
+            long current = ring[(start + i) % ring.length];
+            gaps[i - 1] = current - previous;
+            previous = current;
+        }
+        Arrays.sort(gaps);
+
+        summary.p50Ms = percentile(gaps, 50) / NANOS_PER_MS;
+        summary.p90Ms = percentile(gaps, 90) / NANOS_PER_MS;
+        summary.p99Ms = percentile(gaps, 99) / NANOS_PER_MS;
+        summary.maxMs = maxGap / NANOS_PER_MS;
+
+        long streamingNanos = last - first;
+        summary.tokensPerSecond = streamingNanos > 0 ? (count - 1) * 1_000_000_000.0 / streamingNanos : 0.0;
+        return summary;
+    }
+
+    /**
+     * Nearest-rank percentile over sorted values (same definition as AdvancedMetrics).
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        index = Math.max(0, Math.min(index, sorted.length - 1));
+        return sorted[index];
+    }
+
+    /**
+     * Inter-token latency figures of one response, in milliseconds.
+     */
+    public static final class Summary {
+        public double p50Ms;
+        public double p90Ms;
+        public double p99Ms;
+        public double maxMs;
+        public double tokensPerSecond;
+        public double longestGapMs;
+    }
+}